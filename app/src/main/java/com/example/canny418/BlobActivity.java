@@ -36,7 +36,11 @@ public class BlobActivity extends Activity implements OnTouchListener, CvCameraV
     private static final String  TAG              = "MainActivity";
 
     private boolean              mIsColorSelected = false;
-    private Mat                  mRgba;
+    // Frame size for mapping touches, and the touched region waiting for the next frame
+    private volatile int         mFrameCols;
+    private volatile int         mFrameRows;
+    private volatile Rect        mPendingTouch;
+    private Mat                  mTouchRgba;
     private Scalar               mBlobColorRgba;
     private Scalar               mBlobColorHsv;
     private ColorBlobDetector    mDetector;
@@ -118,7 +122,10 @@ public class BlobActivity extends Activity implements OnTouchListener, CvCameraV
     }
 
     public void onCameraViewStarted(int width, int height) {
-        mRgba = new Mat(height, width, CvType.CV_8UC4);
+        mFrameCols = width;
+        mFrameRows = height;
+        mPendingTouch = null;
+        mTouchRgba = new Mat();
         mDetector = new ColorBlobDetector();
         mSpectrum = new Mat();
         mBlobColorRgba = new Scalar(255);
@@ -128,12 +135,13 @@ public class BlobActivity extends Activity implements OnTouchListener, CvCameraV
     }
 
     public void onCameraViewStopped() {
-        mRgba.release();
+        // The frame's rgba() belongs to the camera view, which recycles it
+        mTouchRgba.release();
     }
 
     public boolean onTouch(View v, MotionEvent event) {
-        int cols = mRgba.cols();
-        int rows = mRgba.rows();
+        int cols = mFrameCols;
+        int rows = mFrameRows;
 
         int xOffset = (mOpenCvCameraView.getWidth() - cols) / 2;
         int yOffset = (mOpenCvCameraView.getHeight() - rows) / 2;
@@ -153,10 +161,22 @@ public class BlobActivity extends Activity implements OnTouchListener, CvCameraV
         touchedRect.width = (x+4 < cols) ? x + 4 - touchedRect.x : cols - touchedRect.x;
         touchedRect.height = (y+4 < rows) ? y + 4 - touchedRect.y : rows - touchedRect.y;
 
-        Mat touchedRegionRgba = mRgba.submat(touchedRect);
+        // The frame's Mats belong to the camera thread, so the region is sampled with the next frame
+        mPendingTouch = touchedRect;
+
+        return false; // don't need subsequent touch events
+    }
+
+    /** Copies the touched region out of the camera frame and picks the blob colour from it. */
+    private void sampleTouch(Mat rgba, Rect touchedRect) {
+        if (touchedRect.x + touchedRect.width > rgba.cols() || touchedRect.y + touchedRect.height > rgba.rows())
+            return;
+        Mat touchedRegionRgba = rgba.submat(touchedRect);
+        touchedRegionRgba.copyTo(mTouchRgba);
+        touchedRegionRgba.release();
 
         Mat touchedRegionHsv = new Mat();
-        Imgproc.cvtColor(touchedRegionRgba, touchedRegionHsv, Imgproc.COLOR_RGB2HSV_FULL);
+        Imgproc.cvtColor(mTouchRgba, touchedRegionHsv, Imgproc.COLOR_RGB2HSV_FULL);
 
         // Calculate average color of touched region
         mBlobColorHsv = Core.sumElems(touchedRegionHsv);
@@ -175,29 +195,35 @@ public class BlobActivity extends Activity implements OnTouchListener, CvCameraV
 
         mIsColorSelected = true;
 
-        touchedRegionRgba.release();
         touchedRegionHsv.release();
-
-        return false; // don't need subsequent touch events
     }
 
     public Mat onCameraFrame(CvCameraViewFrame inputFrame) {
-        mRgba = inputFrame.rgba();
+        Mat rgba = inputFrame.rgba();
+        mFrameCols = rgba.cols();
+        mFrameRows = rgba.rows();
+
+        // Sampled before the labels are drawn over the frame
+        Rect touch = mPendingTouch;
+        if (touch != null) {
+            mPendingTouch = null;
+            sampleTouch(rgba, touch);
+        }
 
         if (mIsColorSelected) {
-            mDetector.process(mRgba);
+            mDetector.process(rgba);
             List<MatOfPoint> contours = mDetector.getContours();
             Log.e(TAG, "Contours count: " + contours.size());
-            Imgproc.drawContours(mRgba, contours, -1, CONTOUR_COLOR);
+            Imgproc.drawContours(rgba, contours, -1, CONTOUR_COLOR);
 
-            Mat colorLabel = mRgba.submat(4, 68, 4, 68);
+            Mat colorLabel = rgba.submat(4, 68, 4, 68);
             colorLabel.setTo(mBlobColorRgba);
 
-            Mat spectrumLabel = mRgba.submat(4, 4 + mSpectrum.rows(), 70, 70 + mSpectrum.cols());
+            Mat spectrumLabel = rgba.submat(4, 4 + mSpectrum.rows(), 70, 70 + mSpectrum.cols());
             mSpectrum.copyTo(spectrumLabel);
         }
 
-        return mRgba;
+        return rgba;
     }
 
     private Scalar converScalarHsv2Rgba(Scalar hsvColor) {
@@ -8,6 +8,7 @@ import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatScope;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 
@@ -68,40 +69,50 @@ public class ColorBlobDetector {
     }
 
     public void process(Mat rgbaImage) {
-        Imgproc.pyrDown(rgbaImage, mPyrDownMat);
-        Imgproc.pyrDown(mPyrDownMat, mPyrDownMat);
+        // The previous frame's contours were promoted out of its scope, so release them here
+        for (MatOfPoint contour : mContours)
+            contour.release();
+        mContours.clear();
 
-        Imgproc.cvtColor(mPyrDownMat, mHsvMat, Imgproc.COLOR_RGB2HSV_FULL);
+        MatScope scope = MatScope.open();
+        try {
+            Imgproc.pyrDown(rgbaImage, mPyrDownMat);
+            Imgproc.pyrDown(mPyrDownMat, mPyrDownMat);
 
-        Core.inRange(mHsvMat, mLowerBound, mUpperBound, mMask);
-        Imgproc.dilate(mMask, mDilatedMask, new Mat());
+            Imgproc.cvtColor(mPyrDownMat, mHsvMat, Imgproc.COLOR_RGB2HSV_FULL);
 
-        List<MatOfPoint> contours = new ArrayList<MatOfPoint>();
+            Core.inRange(mHsvMat, mLowerBound, mUpperBound, mMask);
+            Imgproc.dilate(mMask, mDilatedMask, new Mat());
 
-        Imgproc.findContours(mDilatedMask, contours, mHierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+            List<MatOfPoint> contours = new ArrayList<MatOfPoint>();
 
-        // Find max contour area
-        double maxArea = 0;
-        Iterator<MatOfPoint> each = contours.iterator();
-        while (each.hasNext()) {
-            MatOfPoint wrapper = each.next();
-            double area = Imgproc.contourArea(wrapper);
-            if (area > maxArea)
-                maxArea = area;
-        }
+            Imgproc.findContours(mDilatedMask, contours, mHierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
 
-        // Filter contours by area and resize to fit the original image size
-        mContours.clear();
-        each = contours.iterator();
-        while (each.hasNext()) {
-            MatOfPoint contour = each.next();
-            if (Imgproc.contourArea(contour) > mMinContourArea*maxArea) {
-                Core.multiply(contour, new Scalar(4,4), contour);
-                mContours.add(contour);
+            // Find max contour area
+            double maxArea = 0;
+            Iterator<MatOfPoint> each = contours.iterator();
+            while (each.hasNext()) {
+                MatOfPoint wrapper = each.next();
+                double area = Imgproc.contourArea(wrapper);
+                if (area > maxArea)
+                    maxArea = area;
+            }
+
+            // Filter contours by area and resize to fit the original image size
+            each = contours.iterator();
+            while (each.hasNext()) {
+                MatOfPoint contour = each.next();
+                if (Imgproc.contourArea(contour) > mMinContourArea*maxArea) {
+                    Core.multiply(contour, new Scalar(4,4), contour);
+                    mContours.add(scope.promote(contour));
+                }
             }
+        } finally {
+            scope.close();
         }
     }
 
+    /** Contours found by the last {@link #process} call, valid until the next one. */
     public List<MatOfPoint> getContours() {
         return mContours;
     }
@@ -0,0 +1,78 @@
+package com.example.canny418;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.example.canny418.canny.PackedEdgeMap;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+/**
+ * Converts {@link PackedEdgeMap}s from and to CV_8UC1 Mats and ARGB_8888 Bitmaps. The pixel
+ * buffers needed for the JNI copies are kept in the instance and reused between calls.
+ */
+public class PackedEdgeMapConverter {
+    private byte[] mBytes = new byte[0];
+    private int[] mPixels = new int[0];
+
+    /** Packs a CV_8UC1 edge Mat, every non-zero pixel being an edge. */
+    public void matToPacked(Mat edges, PackedEdgeMap dst) {
+        checkMat(edges, dst);
+        byte[] bytes = bytes(dst);
+        edges.get(0, 0, bytes);
+        dst.pack(bytes, 0, dst.getWidth());
+    }
+
+    /** Writes 255 for edges and 0 elsewhere into a CV_8UC1 Mat of the map's size. */
+    public void packedToMat(PackedEdgeMap src, Mat edges) {
+        checkMat(edges, src);
+        byte[] bytes = bytes(src);
+        src.unpack(bytes, 0, src.getWidth());
+        edges.put(0, 0, bytes);
+    }
+
+    /** Draws edges white on black into a Bitmap of the map's size, as {@code Utils.matToBitmap} would. */
+    public void packedToBitmap(PackedEdgeMap src, Bitmap bitmap) {
+        checkBitmap(bitmap, src);
+        int[] pixels = pixels(src);
+        src.unpackArgb(pixels, 0, src.getWidth(), Color.WHITE, Color.BLACK);
+        bitmap.setPixels(pixels, 0, src.getWidth(), 0, 0, src.getWidth(), src.getHeight());
+    }
+
+    /** Packs a Bitmap, every pixel with a non-zero colour channel being an edge. */
+    public void bitmapToPacked(Bitmap bitmap, PackedEdgeMap dst) {
+        checkBitmap(bitmap, dst);
+        int[] pixels = pixels(dst);
+        bitmap.getPixels(pixels, 0, dst.getWidth(), 0, 0, dst.getWidth(), dst.getHeight());
+        dst.packArgb(pixels, 0, dst.getWidth());
+    }
+
+    private byte[] bytes(PackedEdgeMap map) {
+        int size = map.getWidth() * map.getHeight();
+        if (mBytes.length < size)
+            mBytes = new byte[size];
+        return mBytes;
+    }
+
+    private int[] pixels(PackedEdgeMap map) {
+        int size = map.getWidth() * map.getHeight();
+        if (mPixels.length < size)
+            mPixels = new int[size];
+        return mPixels;
+    }
+
+    private static void checkMat(Mat mat, PackedEdgeMap map) {
+        if (mat.type() != CvType.CV_8UC1 || !mat.isContinuous())
+            throw new IllegalArgumentException("Expected a continuous CV_8UC1 Mat, got " + mat);
+        if (mat.cols() != map.getWidth() || mat.rows() != map.getHeight())
+            throw new IllegalArgumentException("Mat is " + mat.cols() + "x" + mat.rows()
+                    + ", map is " + map.getWidth() + "x" + map.getHeight());
+    }
+
+    private static void checkBitmap(Bitmap bitmap, PackedEdgeMap map) {
+        if (bitmap.getWidth() != map.getWidth() || bitmap.getHeight() != map.getHeight())
+            throw new IllegalArgumentException("Bitmap is " + bitmap.getWidth() + "x" + bitmap.getHeight()
+                    + ", map is " + map.getWidth() + "x" + map.getHeight());
+    }
+}
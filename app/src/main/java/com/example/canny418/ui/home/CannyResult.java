@@ -2,9 +2,10 @@ package com.example.canny418.ui.home;
 
 import android.graphics.Bitmap;
 
+import com.example.canny418.canny.StageBenchmark;
+
 public class CannyResult {
     Bitmap bitmap;
-    long avgMilliSeconds;
-    int iter;
-    long totalMilliSeconds;
+    /** Per-stage timings in nanoseconds. */
+    StageBenchmark.Report report;
 }
@@ -7,6 +7,7 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Debug;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -24,6 +25,8 @@ import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProviders;
 
 import com.example.canny418.R;
+import com.example.canny418.canny.CannyEdgeDetector;
+import com.example.canny418.canny.StageBenchmark;
 
 import org.opencv.android.BaseLoaderCallback;
 import org.opencv.android.LoaderCallbackInterface;
@@ -31,10 +34,16 @@ import org.opencv.android.OpenCVLoader;
 import org.opencv.android.Utils;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.MatPool;
 import org.opencv.imgproc.Imgproc;
 
-import java.io.FileNotFoundException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
 
 public class HomeFragment extends Fragment {
 
@@ -42,6 +51,13 @@ public class HomeFragment extends Fragment {
 
     private static final int RESULT_LOAD_IMAGE = 1;
 
+    // Run the pure Java Canny from the :canny module instead of Imgproc.Canny
+    private static final boolean USE_JAVA_CANNY = false;
+
+    private static final int WARMUP_RUNS = 5;
+
+    private final CannyEdgeDetector mJavaCanny = new CannyEdgeDetector(0, 0);
+
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
         homeViewModel =
@@ -87,38 +103,123 @@ public class HomeFragment extends Fragment {
         }
     };
 
-    private CannyResult detectEdges(Bitmap bitmap, int threshold1, int threshold2, int iter) {
-        long prevTime, currTime;
-        long totalTime = 0;
-        Bitmap ret = null;
-
-        // Convert bitmap to matrix
-        Mat rgba = new Mat();
-        Utils.bitmapToMat(bitmap, rgba);
-
-        for(int i = 0; i < iter; i++) {
-            Mat edges = new Mat(rgba.size(), CvType.CV_8UC1);
-            Imgproc.cvtColor(rgba, edges, Imgproc.COLOR_RGB2GRAY, 4);
-            prevTime = System.nanoTime();
-            Imgproc.Canny(edges, edges, threshold1, threshold2);
-            currTime = System.nanoTime();
-            totalTime += currTime-prevTime;
-
-            ret = bitmap.copy(bitmap.getConfig(), true);
-            Utils.matToBitmap(edges, ret);
+    /**
+     * Runs the still-image pipeline {@code runs} times after {@link #WARMUP_RUNS} warm-up runs,
+     * timing decode, bitmapToMat, cvtColor, Canny and matToBitmap separately. All Mats and the
+     * output bitmap are allocated once up front, so the allocation figures show what each stage
+     * itself costs. The Mats come from the shared pool, so repeated runs on images of the same
+     * size reuse them.
+     */
+    private CannyResult benchmarkEdges(final byte[] encoded, final int threshold1, final int threshold2, int runs)
+            throws Exception {
+        final Bitmap[] decoded = {BitmapFactory.decodeByteArray(encoded, 0, encoded.length)};
+        final int cols = decoded[0].getWidth();
+        final int rows = decoded[0].getHeight();
+        final MatPool pool = MatPool.getDefault();
+        final Mat rgba = pool.borrow(rows, cols, CvType.CV_8UC4);
+        final Mat gray = pool.borrow(rows, cols, CvType.CV_8UC1);
+        final Mat edges = pool.borrow(rows, cols, CvType.CV_8UC1);
+        final Bitmap output = Bitmap.createBitmap(cols, rows, Bitmap.Config.ARGB_8888);
+        final byte[] grayBytes = USE_JAVA_CANNY ? new byte[cols * rows] : null;
+        final byte[] edgeBytes = USE_JAVA_CANNY ? new byte[cols * rows] : null;
+        mJavaCanny.setThresholds(threshold1, threshold2);
+
+        StageBenchmark benchmark = new StageBenchmark();
+        benchmark.setWarmup(WARMUP_RUNS);
+        benchmark.setRuns(runs);
+        benchmark.setAllocationCounter(new StageBenchmark.AllocationCounter() {
+            @Override
+            public long allocatedBytes() {
+                return Debug.getThreadAllocSize();
+            }
+        });
+        benchmark.addStage("decode", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                Bitmap previous = decoded[0];
+                decoded[0] = BitmapFactory.decodeByteArray(encoded, 0, encoded.length);
+                previous.recycle();
+            }
+        }).addStage("bitmapToMat", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                Utils.bitmapToMat(decoded[0], rgba);
+            }
+        }).addStage("cvtColor", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
+            }
+        }).addStage("canny", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                if (USE_JAVA_CANNY) {
+                    gray.get(0, 0, grayBytes);
+                    mJavaCanny.detect(grayBytes, cols, rows, edgeBytes);
+                    edges.put(0, 0, edgeBytes);
+                } else {
+                    Imgproc.Canny(gray, edges, threshold1, threshold2);
+                }
+            }
+        }).addStage("matToBitmap", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                Utils.matToBitmap(edges, output);
+            }
+        });
+
+        StageBenchmark.Report report;
+        Debug.startAllocCounting();
+        try {
+            report = benchmark.run();
+        } finally {
+            Debug.stopAllocCounting();
+            decoded[0].recycle();
+            pool.recycle(rgba);
+            pool.recycle(gray);
+            pool.recycle(edges);
         }
+        Log.d("CANNY", cols + "x" + rows + "\n" + report + "\nMat pool: " + pool);
 
         CannyResult cannyResult = new CannyResult();
-        cannyResult.bitmap = ret;
-        cannyResult.avgMilliSeconds = (totalTime)/iter;
-        cannyResult.totalMilliSeconds = (totalTime);
-        Log.d("CANNY", "Total " + cannyResult.totalMilliSeconds);
+        cannyResult.bitmap = output;
+        cannyResult.report = report;
+        return cannyResult;
+    }
 
-        cannyResult.iter = iter;
+    /** Writes the report as JSON and CSV into the app's external files directory. */
+    private void exportReport(StageBenchmark.Report report) {
+        File dir = getActivity().getExternalFilesDir(null);
+        if (dir == null)
+            return;
+        String name = "still-benchmark-" + System.currentTimeMillis();
+        try {
+            writeText(new File(dir, name + ".json"), report.toJson());
+            writeText(new File(dir, name + ".csv"), report.toCsv());
+            Log.d("CANNY", "Benchmark written to " + new File(dir, name) + ".{json,csv}");
+        } catch (IOException e) {
+            Log.e("CANNY", "Cannot write benchmark report", e);
+        }
+    }
 
-        return cannyResult;
+    private static void writeText(File file, String text) throws IOException {
+        OutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(text.getBytes("UTF-8"));
+        } finally {
+            stream.close();
+        }
     }
 
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = stream.read(buffer)) > 0)
+            bytes.write(buffer, 0, n);
+        stream.close();
+        return bytes.toByteArray();
+    }
 
     @Override
     public void onResume() {
@@ -155,12 +256,6 @@ public class HomeFragment extends Fragment {
 
             ImageView img1 = (ImageView) getActivity().findViewById(R.id.img1);
             ImageView img2 = (ImageView) getActivity().findViewById(R.id.img2);
-            InputStream stream = null;
-            try {
-                stream = getActivity().getContentResolver().openInputStream(selectedImage);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            }
 
             EditText t1 = (EditText) getActivity().findViewById(R.id.threshOne);
             EditText t2 = (EditText) getActivity().findViewById(R.id.threshTwo);
@@ -169,15 +264,22 @@ public class HomeFragment extends Fragment {
             int threshold1 = Integer.parseInt(t1.getText().toString());
             int threshold2 = Integer.parseInt(t2.getText().toString());
             int iter = Integer.parseInt(t3.getText().toString());
-            Bitmap bitmap = BitmapFactory.decodeStream(stream);
-            img1.setImageBitmap(bitmap);
 
-            // canny edge detection
-            CannyResult cannyResult = detectEdges(bitmap, threshold1, threshold2, iter);
+            // The encoded file is read once so every run decodes the same bytes from memory
+            CannyResult cannyResult;
+            try {
+                byte[] encoded = readAll(getActivity().getContentResolver().openInputStream(selectedImage));
+                img1.setImageBitmap(BitmapFactory.decodeByteArray(encoded, 0, encoded.length));
+                cannyResult = benchmarkEdges(encoded, threshold1, threshold2, iter);
+            } catch (Exception e) {
+                Log.e("CANNY", "Benchmark failed", e);
+                return;
+            }
+            exportReport(cannyResult.report);
 
+            StageBenchmark.Stats canny = cannyResult.report.getStats("canny");
             TextView result = (TextView) getActivity().findViewById(R.id.avgMilliSeconds);
-            Log.d("CANNY", "Avg " + cannyResult.avgMilliSeconds);
-            result.setText("" + cannyResult.avgMilliSeconds);
+            result.setText(String.format(Locale.ROOT, "%.3f ms", canny.getMedianNanos() / 1e6));
 
             img2.setImageBitmap(cannyResult.bitmap);
 //            imageView.setImageURI(selectedImage);
@@ -3,7 +3,6 @@ package com.example.canny418.ui.slideshow;
 import android.Manifest;
 import android.app.Activity;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.MotionEvent;
@@ -18,35 +17,86 @@ import androidx.core.content.ContextCompat;
 
 import com.example.canny418.ColorBlobDetector;
 import com.example.canny418.R;
+import com.example.canny418.canny.AutoThreshold;
+import com.example.canny418.canny.CannyEdgeDetector;
+import com.example.canny418.canny.ColorCannyEdgeDetector;
+import com.example.canny418.canny.IncrementalCannyEdgeDetector;
+import com.example.canny418.canny.PlaneRowSource;
+import com.example.canny418.canny.StageLatencies;
 
 import org.opencv.android.BaseLoaderCallback;
 import org.opencv.android.CameraBridgeViewBase;
 import org.opencv.android.CameraBridgeViewBase.CvCameraViewFrame;
 import org.opencv.android.CameraBridgeViewBase.CvCameraViewListener2;
+import org.opencv.android.CameraBridgeViewBase.CvCameraViewPlaneFrame;
+import org.opencv.android.FrameTracer;
 import org.opencv.android.LoaderCallbackInterface;
 import org.opencv.android.OpenCVLoader;
-import org.opencv.android.Utils;
 import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.MatScope;
+import org.opencv.core.MatTracker;
 import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class RealTimeActivity extends Activity implements OnTouchListener, CvCameraViewListener2 {
     private static final String  TAG  = "RealTimeActivity ";
+    // Run the pure Java Canny from the :canny module, with automatic thresholds, instead of Imgproc.Canny
+    private static final boolean USE_JAVA_CANNY = false;
+    // Fixed-mount cameras: only recompute the blocks that changed since the last frame (Java only)
+    private static final boolean INCREMENTAL_CANNY = false;
+    // Canny straight on the RGBA frame, also finding edges between colours of equal brightness (Java only)
+    private static final boolean COLOR_CANNY = false;
+    // Record a per-frame timeline while the camera runs, written to frames.trace.json on stop
+    private static final boolean TRACE_FRAMES = false;
+    private static final int     TRACE_CAPACITY = 1 << 16;
+    // Count live native Mats by allocation site, reported to mats.log once a minute
+    private static final boolean TRACK_MATS = false;
+    private static final int     MAT_SAMPLE_INTERVAL = 16;
+    private static final long    MAT_REPORT_MS = 60000;
+    private static final int     MAT_REPORT_SITES = 10;
+
+    // Stages of the live pipeline, recorded into StageLatencies and written out every few seconds
+    private static final int     STAGE_INTERVAL = 0;
+    private static final int     STAGE_INPUT = 1;
+    private static final int     STAGE_DETECT = 2;
+    private static final int     STAGE_OUTPUT = 3;
+    private static final int     STAGE_DRAW = 4;
+    private static final long    LATENCY_WINDOW_MS = 5000;
 
     private boolean              mIsColorSelected = false;
-    private Mat                  mRgba;
+    // Frame size for mapping touches, and the touched region waiting for the next frame
+    private volatile int         mFrameCols;
+    private volatile int         mFrameRows;
+    private volatile Rect        mPendingTouch;
+    private Mat                  mTouchRgba;
     private Scalar               mBlobColorRgba;
     private Scalar               mBlobColorHsv;
     private ColorBlobDetector    mDetector;
     private Mat                  mSpectrum;
     private Size                 SPECTRUM_SIZE;
     private Scalar               CONTOUR_COLOR;
-    private long                  FPS = 0;
-    private long                 prevTime = 0;
+    private StageLatencies       mLatencies;
+    private long                 mLastFrameNanos;
+    // Dirty block permille summed over the window in the low half, frames in the high half
+    private final AtomicLong     mDirtyBlocks = new AtomicLong();
+    // Null when Imgproc.Canny does the work
+    private CannyEdgeDetector    mCanny;
+    private ColorCannyEdgeDetector mColorCanny;
+    private byte[]               mGrayBytes;
+    private byte[]               mRgbaBytes;
+    private byte[]               mEdgeBytes;
+    private Mat                  mEdges;
+    private PlaneRowSource       mPlaneSource;
 
     private CameraBridgeViewBase mOpenCvCameraView;
 
@@ -90,11 +140,13 @@ public class RealTimeActivity extends Activity implements OnTouchListener, CvCam
         requestWindowFeature(Window.FEATURE_NO_TITLE);
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
 
-        setContentView(R.layout.color_blob_detection_activity_surface_view);
+        setContentView(R.layout.real_time_activity_surface_view);
 
         mOpenCvCameraView = (CameraBridgeViewBase) findViewById(R.id.color_blob_detection_activity_surface_view);
         mOpenCvCameraView.setVisibility(SurfaceView.VISIBLE);
         mOpenCvCameraView.setCvCameraViewListener(this);
+        // Temporaries created in onCameraFrame are released once each frame is drawn
+        mOpenCvCameraView.setFrameScopeEnabled(true);
     }
 
     @Override
@@ -129,23 +181,131 @@ public class RealTimeActivity extends Activity implements OnTouchListener, CvCam
 
     public void onCameraViewStarted(int width, int height) {
         Log.d("CANNY", "camera called");
-        mRgba = new Mat(height, width, CvType.CV_8UC4);
+        mFrameCols = width;
+        mFrameRows = height;
+        mPendingTouch = null;
+        mTouchRgba = new Mat();
         mDetector = new ColorBlobDetector();
         mSpectrum = new Mat();
         mBlobColorRgba = new Scalar(255);
         mBlobColorHsv = new Scalar(255);
         SPECTRUM_SIZE = new Size(200, 64);
         CONTOUR_COLOR = new Scalar(255,0,0,255);
+
+        if (INCREMENTAL_CANNY) {
+            // Fixed thresholds, automatic ones would force a full recompute every frame
+            mCanny = new IncrementalCannyEdgeDetector(50, 50);
+        } else if (USE_JAVA_CANNY || COLOR_CANNY) {
+            // Thresholds follow the scene's gradient histogram, smoothed over frames
+            AutoThreshold autoThreshold = new AutoThreshold(AutoThreshold.Method.OTSU);
+            autoThreshold.setSmoothing(0.2);
+            mCanny = COLOR_CANNY ? new ColorCannyEdgeDetector(50, 50) : new CannyEdgeDetector(50, 50);
+            mCanny.setAutoThreshold(autoThreshold);
+        } else {
+            mCanny = null;
+        }
+        mColorCanny = COLOR_CANNY && !INCREMENTAL_CANNY ? (ColorCannyEdgeDetector) mCanny : null;
+        int pixels = mCanny != null ? width * height : 0;
+        mGrayBytes = new byte[pixels];
+        mRgbaBytes = new byte[mColorCanny != null ? pixels * 4 : 0];
+        mEdgeBytes = new byte[pixels];
+        mEdges = new Mat();
+        mPlaneSource = new PlaneRowSource();
+
+        mLatencies = new StageLatencies("interval", "input", "detect", "output", "draw");
+        mLastFrameNanos = 0;
+        mDirtyBlocks.set(0);
+        final File latencyFile = new File(getExternalFilesDir(null), "latency.csv");
+        mLatencies.start(LATENCY_WINDOW_MS, new StageLatencies.Listener() {
+            @Override
+            public void onWindow(StageLatencies latencies) {
+                Log.i(TAG, "Stage latencies\n" + latencies);
+                Log.i(TAG, "Frame stats: " + mOpenCvCameraView.getFrameStats().snapshot());
+                Log.i(TAG, "Mat pool: " + mOpenCvCameraView.getMatPool());
+                long dirty = mDirtyBlocks.getAndSet(0);
+                long frames = dirty >>> 32;
+                if (frames > 0)
+                    Log.i(TAG, String.format(Locale.ROOT, "Dirty blocks: %.1f%% over %d frames",
+                            (dirty & 0xffffffffL) / 10.0 / frames, frames));
+                appendLatencies(latencies, latencyFile);
+            }
+        });
+
+        if (TRACE_FRAMES)
+            FrameTracer.start(TRACE_CAPACITY);
+        if (TRACK_MATS && !MatTracker.isEnabled()) {
+            final File matsFile = new File(getExternalFilesDir(null), "mats.log");
+            MatTracker.start(MAT_SAMPLE_INTERVAL).startReporting(MAT_REPORT_MS, MAT_REPORT_SITES,
+                    new MatTracker.Listener() {
+                        @Override
+                        public void onReport(MatTracker.Report report) {
+                            Log.i(TAG, "Native Mats\n" + report);
+                            appendReport(report, matsFile);
+                        }
+                    });
+        }
     }
 
     public void onCameraViewStopped() {
-        mRgba.release();
+        FrameTracer tracer = FrameTracer.stop();
+        if (tracer != null)
+            writeTrace(tracer, new File(getExternalFilesDir(null), "frames.trace.json"));
+        mLatencies.stop();
+        mTouchRgba.release();
+        mEdges.release();
+    }
+
+    /** Live per-stage latency windows, for in-app display or inspection. */
+    public StageLatencies getStageLatencies() {
+        return mLatencies;
+    }
+
+    private static void appendLatencies(StageLatencies latencies, File file) {
+        try {
+            boolean header = !file.exists();
+            FileWriter writer = new FileWriter(file, true);
+            try {
+                latencies.dump(writer, header);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write " + file, e);
+        }
+    }
+
+    private static void appendReport(MatTracker.Report report, File file) {
+        try {
+            FileWriter writer = new FileWriter(file, true);
+            try {
+                writer.write(report.getTimeNanos() / 1000000 + " ms\n" + report);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write " + file, e);
+        }
+    }
+
+    /** Writes the trace for chrome://tracing or ui.perfetto.dev. */
+    private static void writeTrace(FrameTracer tracer, File file) {
+        try {
+            FileWriter writer = new FileWriter(file);
+            try {
+                tracer.writeJson(writer);
+            } finally {
+                writer.close();
+            }
+            Log.i(TAG, "Wrote " + tracer.getEventCount() + " trace events to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write " + file, e);
+        }
     }
 
     public boolean onTouch(View v, MotionEvent event) {
         Log.d("CANNY", "touch called");
-        int cols = mRgba.cols();
-        int rows = mRgba.rows();
+        int cols = mFrameCols;
+        int rows = mFrameRows;
 
         int xOffset = (mOpenCvCameraView.getWidth() - cols) / 2;
         int yOffset = (mOpenCvCameraView.getHeight() - rows) / 2;
@@ -164,49 +324,121 @@ public class RealTimeActivity extends Activity implements OnTouchListener, CvCam
         touchedRect.width = (x+4 < cols) ? x + 4 - touchedRect.x : cols - touchedRect.x;
         touchedRect.height = (y+4 < rows) ? y + 4 - touchedRect.y : rows - touchedRect.y;
 
-        Mat touchedRegionRgba = mRgba.submat(touchedRect);
+        // The frame's Mats belong to the camera thread, so the region is sampled with the next frame
+        mPendingTouch = touchedRect;
 
-        Mat touchedRegionHsv = new Mat();
-        Imgproc.cvtColor(touchedRegionRgba, touchedRegionHsv, Imgproc.COLOR_RGB2HSV_FULL);
+        return false; // don't need subsequent touch events
+    }
 
-        // Calculate average color of touched region
-        mBlobColorHsv = Core.sumElems(touchedRegionHsv);
-        int pointCount = touchedRect.width*touchedRect.height;
-        for (int i = 0; i < mBlobColorHsv.val.length; i++)
-            mBlobColorHsv.val[i] /= pointCount;
+    /** Copies the touched region out of the camera frame and picks the blob colour from it. */
+    private void sampleTouch(Mat rgba, Rect touchedRect) {
+        if (touchedRect.x + touchedRect.width > rgba.cols() || touchedRect.y + touchedRect.height > rgba.rows())
+            return;
+        // Releases the touched region, its HSV copy and the spectrum and colour temporaries
+        MatScope scope = MatScope.open();
+        try {
+            rgba.submat(touchedRect).copyTo(mTouchRgba);
 
-        mBlobColorRgba = converScalarHsv2Rgba(mBlobColorHsv);
+            Mat touchedRegionHsv = new Mat();
+            Imgproc.cvtColor(mTouchRgba, touchedRegionHsv, Imgproc.COLOR_RGB2HSV_FULL);
 
-        Log.i(TAG, "Touched rgba color: (" + mBlobColorRgba.val[0] + ", " + mBlobColorRgba.val[1] +
-                ", " + mBlobColorRgba.val[2] + ", " + mBlobColorRgba.val[3] + ")");
+            // Calculate average color of touched region
+            mBlobColorHsv = Core.sumElems(touchedRegionHsv);
+            int pointCount = touchedRect.width*touchedRect.height;
+            for (int i = 0; i < mBlobColorHsv.val.length; i++)
+                mBlobColorHsv.val[i] /= pointCount;
 
-        mDetector.setHsvColor(mBlobColorHsv);
+            mBlobColorRgba = converScalarHsv2Rgba(mBlobColorHsv);
 
-        Imgproc.resize(mDetector.getSpectrum(), mSpectrum, SPECTRUM_SIZE, 0, 0, Imgproc.INTER_LINEAR_EXACT);
+            Log.i(TAG, "Touched rgba color: (" + mBlobColorRgba.val[0] + ", " + mBlobColorRgba.val[1] +
+                    ", " + mBlobColorRgba.val[2] + ", " + mBlobColorRgba.val[3] + ")");
 
-        mIsColorSelected = true;
+            mDetector.setHsvColor(mBlobColorHsv);
 
-        touchedRegionRgba.release();
-        touchedRegionHsv.release();
+            Imgproc.resize(mDetector.getSpectrum(), mSpectrum, SPECTRUM_SIZE, 0, 0, Imgproc.INTER_LINEAR_EXACT);
 
-        return false; // don't need subsequent touch events
+            mIsColorSelected = true;
+        } finally {
+            scope.close();
+        }
     }
 
     public Mat onCameraFrame(CvCameraViewFrame inputFrame) {
-        long currentTime = System.nanoTime();
-        FPS = currentTime - prevTime;
-        prevTime = currentTime;
-        Log.d("CANNY", "" + FPS);
-        long prevTime = System.nanoTime();
-        mRgba = inputFrame.rgba();
-
-        Bitmap bitmap = Bitmap.createBitmap((int)mRgba.size().width, (int)mRgba.size().height, Bitmap.Config.ARGB_8888);
-        Utils.matToBitmap(mRgba, bitmap);
-
-        Mat edges = new Mat(mRgba.size(), CvType.CV_8UC1);
-        Imgproc.cvtColor(mRgba, edges, Imgproc.COLOR_RGB2GRAY, 4);
-        Imgproc.Canny(edges, edges, 50, 50);
-        return edges;
+        long start = System.nanoTime();
+        if (mLastFrameNanos != 0) {
+            mLatencies.record(STAGE_INTERVAL, start - mLastFrameNanos);
+            // Drawing happens after this callback returns, so the previous frame's is recorded here
+            mLatencies.record(STAGE_DRAW, mOpenCvCameraView.getLastDrawNanos());
+        }
+        mLastFrameNanos = start;
+
+        // Only the colour detector needs RGBA; Java gray Canny reads the camera's Y plane directly
+        CvCameraViewPlaneFrame planeFrame = null;
+        Mat rgba = null;
+        Mat gray = null;
+        int cols, rows;
+        if (mColorCanny != null) {
+            rgba = inputFrame.rgba();
+            cols = rgba.cols();
+            rows = rgba.rows();
+        } else if (mCanny != null && inputFrame instanceof CvCameraViewPlaneFrame) {
+            planeFrame = (CvCameraViewPlaneFrame) inputFrame;
+            cols = planeFrame.width();
+            rows = planeFrame.height();
+        } else {
+            gray = inputFrame.gray();
+            cols = gray.cols();
+            rows = gray.rows();
+        }
+        mFrameCols = cols;
+        mFrameRows = rows;
+        if (mCanny != null && mEdgeBytes.length != cols * rows) {
+            mGrayBytes = new byte[cols * rows];
+            mEdgeBytes = new byte[cols * rows];
+            if (mColorCanny != null)
+                mRgbaBytes = new byte[cols * rows * 4];
+        }
+        long detectStart;
+        if (mCanny == null) {
+            FrameTracer.begin("detect");
+            detectStart = System.nanoTime();
+            Imgproc.Canny(gray, mEdges, 50, 50);
+        } else if (mColorCanny != null) {
+            rgba.get(0, 0, mRgbaBytes);
+            FrameTracer.begin("detect");
+            detectStart = System.nanoTime();
+            mColorCanny.detect(mRgbaBytes, cols, rows, 4, mEdgeBytes);
+        } else if (planeFrame != null) {
+            mPlaneSource.set(planeFrame.yPlane(), cols, rows, planeFrame.yRowStride());
+            FrameTracer.begin("detect");
+            detectStart = System.nanoTime();
+            mCanny.detect(mPlaneSource, mEdgeBytes);
+        } else {
+            gray.get(0, 0, mGrayBytes);
+            FrameTracer.begin("detect");
+            detectStart = System.nanoTime();
+            mCanny.detect(mGrayBytes, cols, rows, mEdgeBytes);
+        }
+        long detectEnd = System.nanoTime();
+        FrameTracer.end("detect");
+        mLatencies.record(STAGE_INPUT, detectStart - start);
+        mLatencies.record(STAGE_DETECT, detectEnd - detectStart);
+        if (mCanny instanceof IncrementalCannyEdgeDetector) {
+            double ratio = ((IncrementalCannyEdgeDetector) mCanny).getDirtyBlockRatio();
+            mDirtyBlocks.addAndGet(1L << 32 | Math.round(ratio * 1000));
+        }
+        if (mCanny != null) {
+            mEdges.create(rows, cols, CvType.CV_8UC1);
+            mEdges.put(0, 0, mEdgeBytes);
+        }
+        mLatencies.record(STAGE_OUTPUT, System.nanoTime() - detectEnd);
+
+        Rect touch = mPendingTouch;
+        if (touch != null) {
+            mPendingTouch = null;
+            sampleTouch(rgba != null ? rgba : inputFrame.rgba(), touch);
+        }
+        return mEdges;
     }
 
     private Scalar converScalarHsv2Rgba(Scalar hsvColor) {
@@ -0,0 +1,71 @@
+package com.example.canny418.benchmarks;
+
+import com.example.canny418.canny.CannyEdgeDetector;
+import com.example.canny418.canny.TiledCannyEdgeDetector;
+import com.example.canny418.canny.UnionFindHysteresis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The whole Canny pipeline: single-threaded, tiled over {@link #threads} workers and with
+ * union-find hysteresis on the same pool. The single-threaded run ignores {@link #threads}.
+ */
+@State(Scope.Thread)
+public class CannyBenchmark extends KernelBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"0", "5"})
+    public int blur;
+
+    private byte[] mSrc;
+    private byte[] mDst;
+    private ForkJoinPool mPool;
+    private CannyEdgeDetector mCanny;
+    private TiledCannyEdgeDetector mTiled;
+    private CannyEdgeDetector mUnionFind;
+
+    @Setup
+    public void setup() {
+        mSrc = Frames.gray(mWidth, mHeight);
+        mDst = new byte[mWidth * mHeight];
+        mPool = new ForkJoinPool(threads);
+        mCanny = new CannyEdgeDetector(50, 150);
+        mTiled = new TiledCannyEdgeDetector(50, 150, 3, false, mPool);
+        mUnionFind = new CannyEdgeDetector(50, 150);
+        mUnionFind.setUnionFindHysteresis(new UnionFindHysteresis(mPool));
+        mCanny.setBlurSize(blur);
+        mTiled.setBlurSize(blur);
+        mUnionFind.setBlurSize(blur);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Benchmark
+    public byte[] canny() {
+        mCanny.detect(mSrc, mWidth, mHeight, mDst);
+        return mDst;
+    }
+
+    @Benchmark
+    public byte[] tiled() {
+        mTiled.detect(mSrc, mWidth, mHeight, mDst);
+        return mDst;
+    }
+
+    @Benchmark
+    public byte[] unionFind() {
+        mUnionFind.detect(mSrc, mWidth, mHeight, mDst);
+        return mDst;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.canny418.benchmarks;
+
+import com.example.canny418.canny.bench.SyntheticImages;
+
+/** Test frames at the resolutions the benchmarks are parameterised with, e.g. {@code "1920x1080"}. */
+final class Frames {
+    private Frames() {
+    }
+
+    static int width(String resolution) {
+        return Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+    }
+
+    static int height(String resolution) {
+        return Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+    }
+
+    /** Photo-like gray frame with a typical edge density. */
+    static byte[] gray(int width, int height) {
+        return SyntheticImages.natural(width, height, 1);
+    }
+
+    /** Interleaved colour frame whose channels are shifted copies of {@link #gray}. */
+    static byte[] color(int width, int height, int channels) {
+        byte[] gray = gray(width, height);
+        byte[] color = new byte[width * height * channels];
+        for (int i = 0; i < gray.length; i++) {
+            for (int c = 0; c < channels; c++)
+                color[i * channels + c] = c == 3 ? (byte) 255 : (byte) (gray[i] + 17 * c);
+        }
+        return color;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.canny418.benchmarks;
+
+import com.example.canny418.canny.Gaussian;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Separable Gaussian blur and the 2x pyramid reduction. */
+@State(Scope.Thread)
+public class GaussianBlurBenchmark extends KernelBenchmark {
+    @Param({"3", "5"})
+    public int ksize;
+
+    private byte[] mSrc;
+    private byte[] mDst;
+    private int[] mRow;
+
+    @Setup
+    public void setup() {
+        mSrc = Frames.gray(mWidth, mHeight);
+        mDst = new byte[mWidth * mHeight];
+        mRow = new int[mWidth + 8];
+    }
+
+    @Benchmark
+    public byte[] blur() {
+        Gaussian.blur(mSrc, mWidth, mHeight, ksize, mDst, mRow);
+        return mDst;
+    }
+
+    @Benchmark
+    public byte[] pyrDown() {
+        Gaussian.pyrDown(mSrc, mWidth, mHeight, mDst, mRow);
+        return mDst;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.canny418.benchmarks;
+
+import com.example.canny418.canny.ColorConversion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/** RGB(A) to gray with the {@code COLOR_RGB2GRAY} weights. */
+@State(Scope.Thread)
+public class GrayConversionBenchmark extends KernelBenchmark {
+    @Param({"3", "4"})
+    public int channels;
+
+    private byte[] mColor;
+    private byte[] mGray;
+
+    @Setup
+    public void setup() {
+        mColor = Frames.color(mWidth, mHeight, channels);
+        mGray = new byte[mWidth * mHeight];
+    }
+
+    @Benchmark
+    public byte[] toGray() {
+        int rowBytes = mWidth * channels;
+        for (int y = 0; y < mHeight; y++)
+            ColorConversion.toGray(mColor, y * rowBytes, channels, mGray, y * mWidth, mWidth);
+        return mGray;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.canny418.benchmarks;
+
+import com.example.canny418.canny.GradientKernels;
+import com.example.canny418.canny.Hysteresis;
+import com.example.canny418.canny.NonMaxSuppression;
+import com.example.canny418.canny.Sobel;
+import com.example.canny418.canny.UnionFindHysteresis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stack flood fill and union-find hysteresis on the same suppressed map. Both modify the map, so
+ * it is restored before every call; that copy is outside the measurement and is only a few
+ * percent of a call even at 640x480. The flood fill ignores {@link #threads}.
+ */
+@State(Scope.Thread)
+public class HysteresisBenchmark extends KernelBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private byte[] mSuppressed;
+    private int[] mStrong;
+    private int mTop;
+    private byte[] mMap;
+    private int[] mStack;
+    private ForkJoinPool mPool;
+    private UnionFindHysteresis mUnionFind;
+
+    @Setup
+    public void setup() {
+        GradientKernels kernels = GradientKernels.best();
+        byte[] src = Frames.gray(mWidth, mHeight);
+        int padded = (mWidth + 2) * (mHeight + 2);
+        short[] dx = new short[mWidth * mHeight];
+        short[] dy = new short[mWidth * mHeight];
+        int[] mag = new int[padded];
+        mSuppressed = new byte[padded];
+        mStrong = new int[padded];
+        kernels.sobel(src, mWidth, mHeight, 3, dx, dy, new int[mWidth + 8], new int[mWidth + 8]);
+        Sobel.magnitude(dx, dy, mWidth, mHeight, false, mag, mWidth + 2);
+        mTop = NonMaxSuppression.suppress(dx, dy, mag, mWidth, mHeight, 50, 150, mSuppressed, mStrong);
+        mMap = new byte[padded];
+        mStack = new int[padded];
+        mPool = new ForkJoinPool(threads);
+        mUnionFind = new UnionFindHysteresis(mPool);
+    }
+
+    @Setup(Level.Invocation)
+    public void restore() {
+        System.arraycopy(mSuppressed, 0, mMap, 0, mMap.length);
+        System.arraycopy(mStrong, 0, mStack, 0, mTop);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Benchmark
+    public byte[] floodFill() {
+        Hysteresis.trace(mMap, mWidth + 2, mStack, mTop);
+        return mMap;
+    }
+
+    @Benchmark
+    public byte[] unionFind() {
+        mUnionFind.trace(mMap, mWidth, mHeight);
+        return mMap;
+    }
+}
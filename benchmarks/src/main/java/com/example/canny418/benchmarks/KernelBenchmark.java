@@ -0,0 +1,40 @@
+package com.example.canny418.benchmarks;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Common settings of the kernel benchmarks: average time per frame in microseconds, over the
+ * standard camera and still resolutions. Subclasses set up their inputs from {@link #mWidth} and
+ * {@link #mHeight} in their own {@code @Setup} method, which JMH runs after this one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public abstract class KernelBenchmark {
+    @Param({"640x480", "1280x720", "1920x1080", "4000x3000"})
+    public String resolution;
+
+    int mWidth;
+    int mHeight;
+
+    @Setup(Level.Trial)
+    public void setupFrame() {
+        mWidth = Frames.width(resolution);
+        mHeight = Frames.height(resolution);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.canny418.benchmarks;
+
+import com.example.canny418.canny.GradientKernels;
+import com.example.canny418.canny.NonMaxSuppression;
+import com.example.canny418.canny.Sobel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Non-maximum suppression from precomputed derivatives, by gradient sign tests and by sector table. */
+@State(Scope.Thread)
+public class NonMaxSuppressionBenchmark extends KernelBenchmark {
+    private static final int LOW = 50;
+    private static final int HIGH = 150;
+
+    private short[] mDx;
+    private short[] mDy;
+    private int[] mMag;
+    private byte[] mSector;
+    private byte[] mMap;
+    private int[] mStack;
+
+    @Setup
+    public void setup() {
+        GradientKernels kernels = GradientKernels.best();
+        byte[] src = Frames.gray(mWidth, mHeight);
+        int padded = (mWidth + 2) * (mHeight + 2);
+        mDx = new short[mWidth * mHeight];
+        mDy = new short[mWidth * mHeight];
+        mMag = new int[padded];
+        mSector = new byte[mWidth * mHeight];
+        mMap = new byte[padded];
+        mStack = new int[padded];
+        kernels.sobel(src, mWidth, mHeight, 3, mDx, mDy, new int[mWidth + 8], new int[mWidth + 8]);
+        Sobel.magnitude(mDx, mDy, mWidth, mHeight, false, mMag, mWidth + 2);
+        kernels.sectors(mDx, mDy, 0, mWidth * mHeight, mSector, 0);
+    }
+
+    @Benchmark
+    public int suppress() {
+        return NonMaxSuppression.suppress(mDx, mDy, mMag, mWidth, mHeight, LOW, HIGH, mMap, mStack);
+    }
+
+    @Benchmark
+    public int suppressSectors() {
+        return NonMaxSuppression.suppressSectors(mSector, mMag, mWidth, mHeight, LOW, HIGH, mMap, mStack);
+    }
+}
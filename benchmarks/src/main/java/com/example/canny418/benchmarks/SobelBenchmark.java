@@ -0,0 +1,69 @@
+package com.example.canny418.benchmarks;
+
+import com.example.canny418.canny.GradientKernels;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Sobel derivatives, gradient magnitude and NMS sectors with the scalar kernels and with the best
+ * ones available on this JVM, which are the Vector API kernels on JDK 17 and the scalar ones
+ * elsewhere.
+ */
+@State(Scope.Thread)
+public class SobelBenchmark extends KernelBenchmark {
+    @Param({"scalar", "best"})
+    public String kernels;
+
+    @Param({"3", "5"})
+    public int aperture;
+
+    private GradientKernels mKernels;
+    private byte[] mSrc;
+    private short[] mDx;
+    private short[] mDy;
+    private int[] mMag;
+    private byte[] mSector;
+    private int[] mSmoothRow;
+    private int[] mDerivRow;
+
+    @Setup
+    public void setup() {
+        mKernels = kernels.equals("best") ? GradientKernels.best() : GradientKernels.scalar();
+        mSrc = Frames.gray(mWidth, mHeight);
+        mDx = new short[mWidth * mHeight];
+        mDy = new short[mWidth * mHeight];
+        mMag = new int[mWidth * mHeight];
+        mSector = new byte[mWidth * mHeight];
+        mSmoothRow = new int[mWidth + 8];
+        mDerivRow = new int[mWidth + 8];
+        mKernels.sobel(mSrc, mWidth, mHeight, aperture, mDx, mDy, mSmoothRow, mDerivRow);
+    }
+
+    @Benchmark
+    public short[] sobel() {
+        mKernels.sobel(mSrc, mWidth, mHeight, aperture, mDx, mDy, mSmoothRow, mDerivRow);
+        return mDx;
+    }
+
+    @Benchmark
+    public int[] magnitudeL1() {
+        mKernels.magnitudeL1(mDx, mDy, 0, mWidth * mHeight, mMag, 0);
+        return mMag;
+    }
+
+    @Benchmark
+    public int[] magnitudeL2() {
+        mKernels.magnitudeL2(mDx, mDy, 0, mWidth * mHeight, mMag, 0);
+        return mMag;
+    }
+
+    @Benchmark
+    public byte[] sectors() {
+        mKernels.sectors(mDx, mDy, 0, mWidth * mHeight, mSector, 0);
+        return mSector;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.canny418.canny.bench;
+
+import com.example.canny418.canny.ArrayRowSource;
+import com.example.canny418.canny.BatchCannyEdgeDetector;
+import com.example.canny418.canny.CannyEdgeDetector;
+import com.example.canny418.canny.RowSource;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Throughput of {@link BatchCannyEdgeDetector} from 1 to N workers on a stream of stills of mixed
+ * sizes, with the peak RSS after each run. Every image is a fresh copy of one of a few synthetic
+ * templates, standing in for a decoder, so the in-flight bound is what limits live image memory.
+ * Each edge map is checked against a single-threaded run on its template.
+ *
+ * Arguments: [images] [maxWorkers] [maxInFlight]
+ */
+public class BatchCannyBenchmark {
+    private static final int[][] SIZES = {{640, 480}, {1920, 1080}, {4000, 3000}, {1280, 720}};
+
+    public static void main(String[] args) throws InterruptedException {
+        final int images = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 2 * maxWorkers;
+
+        final byte[][] templates = new byte[SIZES.length][];
+        final byte[][] expected = new byte[SIZES.length][];
+        CannyEdgeDetector reference = new CannyEdgeDetector(50, 150);
+        for (int i = 0; i < SIZES.length; i++) {
+            int w = SIZES[i][0], h = SIZES[i][1];
+            templates[i] = SyntheticImages.natural(w, h, i);
+            expected[i] = new byte[w * h];
+            reference.detect(templates[i], w, h, expected[i]);
+        }
+
+        Iterable<RowSource> batch = new Iterable<RowSource>() {
+            @Override
+            public Iterator<RowSource> iterator() {
+                return new Iterator<RowSource>() {
+                    private int mNext = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return mNext < images;
+                    }
+
+                    @Override
+                    public RowSource next() {
+                        int t = mNext++ % SIZES.length;
+                        byte[] pixels = Arrays.copyOf(templates[t], templates[t].length);
+                        return new ArrayRowSource(pixels, SIZES[t][0], SIZES[t][1], 1);
+                    }
+                };
+            }
+        };
+        BatchCannyEdgeDetector.Callback check = new BatchCannyEdgeDetector.Callback() {
+            @Override
+            public void onEdges(int index, RowSource image, byte[] edges) {
+                byte[] want = expected[index % SIZES.length];
+                for (int i = 0; i < want.length; i++) {
+                    if (edges[i] != want[i])
+                        throw new IllegalStateException("Batch output differs from reference on image " + index);
+                }
+            }
+        };
+
+        System.out.printf("%d images, in flight %d%n", images, maxInFlight);
+        for (int workers = 1; workers <= maxWorkers; workers++) {
+            BatchCannyEdgeDetector detector = new BatchCannyEdgeDetector(new BatchCannyEdgeDetector.DetectorFactory() {
+                @Override
+                public CannyEdgeDetector create() {
+                    return new CannyEdgeDetector(50, 150);
+                }
+            }, workers, Math.max(workers, maxInFlight));
+            detector.detect(batch, check);
+            detector.close();
+            System.out.printf("%2d workers %8.1f images/s %8.1f MP/s  peak RSS %d MB%n", workers,
+                    detector.getImagesPerSecond(), detector.getMegapixelsPerSecond(),
+                    BatchCannyEdgeDetector.peakRssBytes() >> 20);
+        }
+    }
+}
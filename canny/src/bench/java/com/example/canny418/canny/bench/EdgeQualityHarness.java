@@ -0,0 +1,245 @@
+package com.example.canny418.canny.bench;
+
+import com.example.canny418.canny.CannyEdgeDetector;
+import com.example.canny418.canny.ColorConversion;
+import com.example.canny418.canny.EdgeDetector;
+import com.example.canny418.canny.EdgeQuality;
+import com.example.canny418.canny.GradientKernels;
+import com.example.canny418.canny.IncrementalCannyEdgeDetector;
+import com.example.canny418.canny.PyramidCannyEdgeDetector;
+import com.example.canny418.canny.StreamingCannyEdgeDetector;
+import com.example.canny418.canny.TiledCannyEdgeDetector;
+import com.example.canny418.canny.UnionFindHysteresis;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Runs every edge backend over an image corpus and scores it against reference edges: pixel
+ * agreement, precision, recall, F-measure and Pratt's figure of merit, next to the median latency.
+ *
+ * The corpus is every PNG, JPEG or BMP in a directory, converted to gray like
+ * {@code COLOR_RGB2GRAY}. An image {@code name.ext} with a {@code name.edges.png} beside it, e.g.
+ * exported from {@code Imgproc.Canny} on a device, is scored against that file; otherwise the
+ * reference is the scalar {@link CannyEdgeDetector}, which is bit-exact with {@code Imgproc.Canny}.
+ * Without a directory a few synthetic images are used.
+ *
+ * Exact backends fail the run when their worst F-measure or figure of merit drops more than
+ * {@code tolerance} below 1, approximate ones (the pyramid) when it drops more than
+ * {@code approxTolerance}, which by default is 1 so they are only reported: how much the pyramid
+ * loses depends on how sparse the corpus is. A failing run exits with status 1.
+ *
+ * Arguments: [corpusDir|-] [tolerance] [approxTolerance] [matchRadius] [threshold1] [threshold2]
+ */
+public class EdgeQualityHarness {
+    private static final int WARMUP = 2;
+    private static final int RUNS = 5;
+
+    private interface Backend {
+        EdgeDetector create(double threshold1, double threshold2);
+    }
+
+    private static final class Entry {
+        final String mName;
+        final boolean mExact;
+        final Backend mBackend;
+
+        Entry(String name, boolean exact, Backend backend) {
+            mName = name;
+            mExact = exact;
+            mBackend = backend;
+        }
+    }
+
+    private static final class Image {
+        final String mName;
+        final int mWidth;
+        final int mHeight;
+        final byte[] mGray;
+        byte[] mReference;
+
+        Image(String name, int width, int height, byte[] gray) {
+            mName = name;
+            mWidth = width;
+            mHeight = height;
+            mGray = gray;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String corpus = args.length > 0 ? args[0] : "-";
+        double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : 0.0;
+        double approxTolerance = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        double matchRadius = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        final double threshold1 = args.length > 4 ? Double.parseDouble(args[4]) : 50;
+        final double threshold2 = args.length > 5 ? Double.parseDouble(args[5]) : 150;
+
+        List<Image> images = corpus.equals("-") ? syntheticCorpus() : loadCorpus(new File(corpus));
+        if (images.isEmpty())
+            throw new IllegalArgumentException("No images in " + corpus);
+
+        CannyEdgeDetector reference = new CannyEdgeDetector(threshold1, threshold2);
+        reference.setGradientKernels(GradientKernels.scalar());
+        for (Image image : images) {
+            if (image.mReference == null) {
+                image.mReference = new byte[image.mWidth * image.mHeight];
+                reference.detect(image.mGray, image.mWidth, image.mHeight, image.mReference);
+            }
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        Entry[] entries = {
+                new Entry("java " + GradientKernels.best().getName(), true, new Backend() {
+                    @Override
+                    public EdgeDetector create(double t1, double t2) {
+                        return new CannyEdgeDetector(t1, t2);
+                    }
+                }),
+                new Entry("streaming", true, new Backend() {
+                    @Override
+                    public EdgeDetector create(double t1, double t2) {
+                        return new StreamingCannyEdgeDetector(t1, t2);
+                    }
+                }),
+                new Entry("tiled", true, new Backend() {
+                    @Override
+                    public EdgeDetector create(double t1, double t2) {
+                        return new TiledCannyEdgeDetector(t1, t2, 3, false, pool);
+                    }
+                }),
+                new Entry("union-find", true, new Backend() {
+                    @Override
+                    public EdgeDetector create(double t1, double t2) {
+                        CannyEdgeDetector detector = new CannyEdgeDetector(t1, t2);
+                        detector.setUnionFindHysteresis(new UnionFindHysteresis(pool));
+                        return detector;
+                    }
+                }),
+                new Entry("incremental", true, new Backend() {
+                    @Override
+                    public EdgeDetector create(double t1, double t2) {
+                        return new IncrementalCannyEdgeDetector(t1, t2);
+                    }
+                }),
+                new Entry("pyramid", false, new Backend() {
+                    @Override
+                    public EdgeDetector create(double t1, double t2) {
+                        return new PyramidCannyEdgeDetector(t1, t2);
+                    }
+                }),
+        };
+
+        System.out.printf("%d images, match radius %.1f, thresholds %.0f/%.0f%n",
+                images.size(), matchRadius, threshold1, threshold2);
+        System.out.printf("%-22s %10s %10s %9s %9s %9s %9s%n",
+                "backend", "median ms", "agreement", "precision", "recall", "F", "FOM");
+        boolean failed = false;
+        for (Entry entry : entries) {
+            double millis = 0;
+            double agreement = 1, precision = 1, recall = 1, f = 1, fom = 1;
+            String worst = null;
+            for (Image image : images) {
+                // A fresh detector per image, so stateful backends cannot reuse the last frame
+                EdgeDetector detector = entry.mBackend.create(threshold1, threshold2);
+                byte[] dst = new byte[image.mWidth * image.mHeight];
+                millis += medianMillis(detector, image, dst);
+                EdgeQuality q = EdgeQuality.compare(image.mReference, dst, image.mWidth, image.mHeight, matchRadius);
+                agreement = Math.min(agreement, q.getPixelAgreement());
+                precision = Math.min(precision, q.getPrecision());
+                recall = Math.min(recall, q.getRecall());
+                if (q.getFigureOfMerit() < fom || q.getFMeasure() < f)
+                    worst = image.mName;
+                f = Math.min(f, q.getFMeasure());
+                fom = Math.min(fom, q.getFigureOfMerit());
+            }
+            System.out.printf("%-22s %10.2f %10.5f %9.4f %9.4f %9.4f %9.4f%n",
+                    entry.mName, millis, agreement, precision, recall, f, fom);
+            double allowed = entry.mExact ? tolerance : approxTolerance;
+            if (1 - f > allowed || 1 - fom > allowed) {
+                System.out.printf("  FAIL: %s drops more than %.4f below the reference, worst on %s%n",
+                        entry.mName, allowed, worst);
+                failed = true;
+            }
+        }
+        pool.shutdown();
+        if (failed)
+            System.exit(1);
+    }
+
+    private static double medianMillis(EdgeDetector detector, Image image, byte[] dst) {
+        for (int i = 0; i < WARMUP; i++)
+            detector.detect(image.mGray, image.mWidth, image.mHeight, dst);
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            // Time full frames, not the free pass over an unchanged one
+            if (detector instanceof IncrementalCannyEdgeDetector)
+                ((IncrementalCannyEdgeDetector) detector).reset();
+            long start = System.nanoTime();
+            detector.detect(image.mGray, image.mWidth, image.mHeight, dst);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2] / 1e6;
+    }
+
+    private static List<Image> syntheticCorpus() {
+        List<Image> images = new ArrayList<Image>();
+        images.add(new Image("natural", 1280, 720, SyntheticImages.natural(1280, 720, 1)));
+        images.add(new Image("sparseShapes", 1280, 720, SyntheticImages.sparseShapes(1280, 720, 2)));
+        images.add(new Image("edgeDense", 1280, 720, SyntheticImages.edgeDense(1280, 720, 3)));
+        return images;
+    }
+
+    private static List<Image> loadCorpus(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null)
+            throw new IOException("Not a directory: " + dir);
+        Arrays.sort(files);
+        List<Image> images = new ArrayList<Image>();
+        for (File file : files) {
+            String name = file.getName();
+            String lower = name.toLowerCase();
+            if (lower.endsWith(".edges.png")
+                    || !(lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".bmp")))
+                continue;
+            BufferedImage decoded = ImageIO.read(file);
+            if (decoded == null)
+                continue;
+            Image image = new Image(name, decoded.getWidth(), decoded.getHeight(), toGray(decoded));
+            File edges = new File(dir, name.substring(0, name.lastIndexOf('.')) + ".edges.png");
+            if (edges.isFile()) {
+                BufferedImage ref = ImageIO.read(edges);
+                if (ref.getWidth() != image.mWidth || ref.getHeight() != image.mHeight)
+                    throw new IOException(edges + " does not match the size of " + name);
+                image.mReference = toGray(ref);
+            }
+            images.add(image);
+        }
+        return images;
+    }
+
+    private static byte[] toGray(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = new int[width];
+        byte[] rgb = new byte[width * 3];
+        byte[] gray = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, argb, 0, width);
+            for (int x = 0; x < width; x++) {
+                rgb[3 * x] = (byte) (argb[x] >> 16);
+                rgb[3 * x + 1] = (byte) (argb[x] >> 8);
+                rgb[3 * x + 2] = (byte) argb[x];
+            }
+            ColorConversion.toGray(rgb, 0, 3, gray, y * width, width);
+        }
+        return gray;
+    }
+}
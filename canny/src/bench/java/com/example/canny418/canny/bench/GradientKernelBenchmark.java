@@ -0,0 +1,75 @@
+package com.example.canny418.canny.bench;
+
+import com.example.canny418.canny.GradientKernels;
+import com.example.canny418.canny.Sobel;
+
+import java.util.Arrays;
+
+/**
+ * Scalar versus Vector API {@link GradientKernels} at 640x480, 1080p and 12 MP, with the
+ * row-buffer {@link Sobel#gradient} as the baseline. Without
+ * {@code --add-modules jdk.incubator.vector} both columns run the scalar kernels.
+ *
+ * Arguments: [apertureSize]
+ */
+public class GradientKernelBenchmark {
+    private static final int WARMUP = 10;
+    private static final int RUNS = 20;
+    private static final int[][] SIZES = {{640, 480}, {1920, 1080}, {4000, 3000}};
+
+    private interface Kernel {
+        void run();
+    }
+
+    public static void main(String[] args) {
+        int aperture = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        GradientKernels scalar = GradientKernels.scalar();
+        GradientKernels vector = GradientKernels.best();
+        System.out.printf("aperture %d, best kernels: %s%n", aperture, vector.getName());
+        System.out.printf("%-10s %-12s %10s %10s %10s %8s%n", "size", "kernel", "baseline", "scalar", "vector", "speedup");
+
+        for (int[] size : SIZES) {
+            final int width = size[0], height = size[1], pixels = width * height;
+            final byte[] src = SyntheticImages.natural(width, height, 1);
+            final short[] dx = new short[pixels];
+            final short[] dy = new short[pixels];
+            final int[] mag = new int[pixels];
+            final byte[] dir = new byte[pixels];
+            final int[] smoothRow = new int[width + 8];
+            final int[] derivRow = new int[width + 8];
+            String label = width + "x" + height;
+
+            double baseline = medianMillis(() -> Sobel.gradient(src, width, height, aperture, dx, dy, smoothRow, derivRow));
+            report(label, "sobel", baseline,
+                    medianMillis(() -> scalar.sobel(src, width, height, aperture, dx, dy, smoothRow, derivRow)),
+                    medianMillis(() -> vector.sobel(src, width, height, aperture, dx, dy, smoothRow, derivRow)));
+            report(label, "L1", Double.NaN,
+                    medianMillis(() -> scalar.magnitudeL1(dx, dy, 0, pixels, mag, 0)),
+                    medianMillis(() -> vector.magnitudeL1(dx, dy, 0, pixels, mag, 0)));
+            report(label, "L2 isqrt", Double.NaN,
+                    medianMillis(() -> scalar.magnitudeL2(dx, dy, 0, pixels, mag, 0)),
+                    medianMillis(() -> vector.magnitudeL2(dx, dy, 0, pixels, mag, 0)));
+            report(label, "octants", Double.NaN,
+                    medianMillis(() -> scalar.octants(dx, dy, 0, pixels, dir, 0)),
+                    medianMillis(() -> vector.octants(dx, dy, 0, pixels, dir, 0)));
+        }
+    }
+
+    private static void report(String size, String kernel, double baseline, double scalar, double vector) {
+        System.out.printf("%-10s %-12s %10s %10.3f %10.3f %7.2fx%n", size, kernel,
+                Double.isNaN(baseline) ? "-" : String.format("%.3f", baseline), scalar, vector, scalar / vector);
+    }
+
+    private static double medianMillis(Kernel kernel) {
+        for (int i = 0; i < WARMUP; i++)
+            kernel.run();
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            kernel.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2] / 1e6;
+    }
+}
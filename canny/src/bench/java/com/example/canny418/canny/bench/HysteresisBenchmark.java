@@ -0,0 +1,88 @@
+package com.example.canny418.canny.bench;
+
+import com.example.canny418.canny.Hysteresis;
+import com.example.canny418.canny.NonMaxSuppression;
+import com.example.canny418.canny.Sobel;
+import com.example.canny418.canny.UnionFindHysteresis;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stack flood fill versus {@link UnionFindHysteresis} on an edge-dense image, where most pixels
+ * survive NMS and the flood fill stack grows to a large fraction of the frame.
+ *
+ * Arguments: [width] [height] [maxThreads]
+ */
+public class HysteresisBenchmark {
+    private static final int WARMUP = 5;
+    private static final int RUNS = 15;
+    private static final int LOW = 30;
+    private static final int HIGH = 500;
+
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        byte[] src = SyntheticImages.edgeDense(width, height, 1);
+        int pixels = width * height;
+        int padded = (width + 2) * (height + 2);
+        short[] dx = new short[pixels];
+        short[] dy = new short[pixels];
+        int[] mag = new int[padded];
+        byte[] nms = new byte[padded];
+        int[] stack = new int[padded];
+        Sobel.gradient(src, width, height, 3, dx, dy, new int[width + 8], new int[width + 8]);
+        Sobel.magnitude(dx, dy, width, height, false, mag, width + 2);
+        int seeds = NonMaxSuppression.suppress(dx, dy, mag, width, height, LOW, HIGH, nms, stack);
+        int weak = 0;
+        for (byte v : nms)
+            if (v == Hysteresis.WEAK)
+                weak++;
+
+        byte[] expected = nms.clone();
+        Hysteresis.trace(expected, width + 2, stack, seeds);
+        int promoted = 0;
+        for (int i = 0; i < padded; i++)
+            if (expected[i] == Hysteresis.STRONG && nms[i] == Hysteresis.WEAK)
+                promoted++;
+        System.out.printf("%dx%d, %d seeds, %d weak, %d promoted by hysteresis%n", width, height, seeds, weak, promoted);
+
+        byte[] map = new byte[padded];
+        long[] times = new long[RUNS];
+        for (int i = 0; i < WARMUP + RUNS; i++) {
+            System.arraycopy(nms, 0, map, 0, padded);
+            int top = NonMaxSuppression.suppress(dx, dy, mag, width, height, LOW, HIGH, map, stack);
+            long start = System.nanoTime();
+            Hysteresis.trace(map, width + 2, stack, top);
+            if (i >= WARMUP)
+                times[i - WARMUP] = System.nanoTime() - start;
+        }
+        double flood = median(times);
+        System.out.printf("flood fill           %8.2f ms%n", flood);
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            UnionFindHysteresis unionFind = new UnionFindHysteresis(pool);
+            for (int i = 0; i < WARMUP + RUNS; i++) {
+                System.arraycopy(nms, 0, map, 0, padded);
+                long start = System.nanoTime();
+                unionFind.trace(map, width, height);
+                if (i >= WARMUP)
+                    times[i - WARMUP] = System.nanoTime() - start;
+            }
+            pool.shutdown();
+            if (!Arrays.equals(expected, map))
+                throw new IllegalStateException("Union-find result differs from flood fill with " + threads + " threads");
+            double ms = median(times);
+            System.out.printf("union-find %2d threads %8.2f ms  x%.2f%n", threads, ms, flood / ms);
+        }
+    }
+
+    private static double median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+}
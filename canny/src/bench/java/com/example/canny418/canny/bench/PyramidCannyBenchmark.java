@@ -0,0 +1,45 @@
+package com.example.canny418.canny.bench;
+
+import com.example.canny418.canny.CannyEdgeDetector;
+import com.example.canny418.canny.PyramidCannyEdgeDetector;
+
+/**
+ * Pyramid Canny at 1 to N levels against a full resolution run on a still with sparse edges:
+ * time, pixels processed and the share of the full resolution edges that are still found.
+ *
+ * Arguments: [width] [height] [maxLevels]
+ */
+public class PyramidCannyBenchmark {
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+        int maxLevels = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        byte[] src = SyntheticImages.sparseShapes(width, height, 1);
+        byte[] expected = new byte[width * height];
+        byte[] dst = new byte[width * height];
+        CannyEdgeDetector reference = new CannyEdgeDetector(50, 150);
+        reference.setBlurSize(5);
+        double base = TiledCannyBenchmark.medianMillis(reference, src, width, height, expected);
+        int edges = 0;
+        for (byte v : expected)
+            if (v != 0)
+                edges++;
+        System.out.printf("%dx%d, %d edges%n", width, height, edges);
+        System.out.printf("full resolution  %8.2f ms%n", base);
+
+        for (int levels = 1; levels <= maxLevels; levels++) {
+            PyramidCannyEdgeDetector pyramid = new PyramidCannyEdgeDetector(50, 150);
+            pyramid.setBlurSize(5);
+            pyramid.setLevels(levels);
+            double ms = TiledCannyBenchmark.medianMillis(pyramid, src, width, height, dst);
+            int found = 0;
+            for (int i = 0; i < dst.length; i++)
+                if (dst[i] != 0 && expected[i] != 0)
+                    found++;
+            System.out.printf("%d levels (%d used) %8.2f ms  x%.2f  pixels %5.1f%%  recall %5.1f%%%n",
+                    levels, pyramid.getLevelsUsed(), ms, base / ms, 100 * pyramid.getProcessedRatio(),
+                    100.0 * found / Math.max(1, edges));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.canny418.canny.bench;
+
+import com.example.canny418.canny.CannyEdgeDetector;
+import com.example.canny418.canny.ColorConversion;
+import com.example.canny418.canny.StageBenchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Headless counterpart of the app's still-image benchmark: the same stages, with the Android
+ * calls replaced by their desktop equivalents. The stages are decode, unpacking to RGBA as in
+ * bitmapToMat, RGBA to gray, Canny, and writing the edges back to an image as in matToBitmap.
+ * Writes {@code <out>.json} and {@code <out>.csv}.
+ *
+ * Arguments: [image|-] [runs] [warmup] [out] [threshold1] [threshold2]
+ */
+public class StillImageBenchmark {
+    public static void main(String[] args) throws Exception {
+        String path = args.length > 0 ? args[0] : "-";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String out = args.length > 3 ? args[3] : "build/reports/still/still";
+        double threshold1 = args.length > 4 ? Double.parseDouble(args[4]) : 50;
+        double threshold2 = args.length > 5 ? Double.parseDouble(args[5]) : 150;
+
+        final byte[] encoded = path.equals("-") ? syntheticPng(1920, 1080) : Files.readAllBytes(new File(path).toPath());
+        final BufferedImage[] decoded = new BufferedImage[1];
+        decoded[0] = ImageIO.read(new ByteArrayInputStream(encoded));
+        if (decoded[0] == null)
+            throw new IOException("Cannot decode " + path);
+        final int width = decoded[0].getWidth();
+        final int height = decoded[0].getHeight();
+        final int[] argb = new int[width * height];
+        final byte[] rgba = new byte[width * height * 4];
+        final byte[] gray = new byte[width * height];
+        final byte[] edges = new byte[width * height];
+        final BufferedImage edgeImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        final CannyEdgeDetector canny = new CannyEdgeDetector(threshold1, threshold2);
+
+        StageBenchmark benchmark = new StageBenchmark();
+        benchmark.setRuns(runs);
+        benchmark.setWarmup(warmup);
+        benchmark.addStage("decode", new StageBenchmark.Stage() {
+            @Override
+            public void run() throws IOException {
+                decoded[0] = ImageIO.read(new ByteArrayInputStream(encoded));
+            }
+        }).addStage("toRgba", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                decoded[0].getRGB(0, 0, width, height, argb, 0, width);
+                for (int i = 0, j = 0; i < argb.length; i++, j += 4) {
+                    int c = argb[i];
+                    rgba[j] = (byte) (c >> 16);
+                    rgba[j + 1] = (byte) (c >> 8);
+                    rgba[j + 2] = (byte) c;
+                    rgba[j + 3] = (byte) (c >>> 24);
+                }
+            }
+        }).addStage("cvtColor", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                for (int y = 0; y < height; y++)
+                    ColorConversion.toGray(rgba, y * width * 4, 4, gray, y * width, width);
+            }
+        }).addStage("canny", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                canny.detect(gray, width, height, edges);
+            }
+        }).addStage("toImage", new StageBenchmark.Stage() {
+            @Override
+            public void run() {
+                edgeImage.getRaster().setDataElements(0, 0, width, height, edges);
+            }
+        });
+
+        StageBenchmark.Report report = benchmark.run();
+        System.out.printf("%dx%d, %d runs after %d warm-up%n", width, height, runs, warmup);
+        System.out.print(report);
+        write(new File(out + ".json"), report.toJson());
+        write(new File(out + ".csv"), report.toCsv());
+    }
+
+    private static byte[] syntheticPng(int width, int height) throws IOException {
+        byte[] pixels = SyntheticImages.natural(width, height, 1);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setDataElements(0, 0, width, height, pixels);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    private static void write(File file, String text) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create " + dir);
+        OutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(text.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.canny418.canny.bench;
+
+import java.util.Random;
+
+/** Deterministic gray test images for the benchmarks. */
+public final class SyntheticImages {
+    private SyntheticImages() {
+    }
+
+    /** Smooth gradients, a checkerboard of blocks and mild noise; roughly photo-like edge density. */
+    public static byte[] natural(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] img = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double v = 128 + 60 * Math.sin(x * 0.013 + seed) + 50 * Math.cos(y * 0.021);
+                if (((x / 97) + (y / 71)) % 2 == 0)
+                    v += 40;
+                v += random.nextGaussian() * 6;
+                img[y * width + x] = (byte) Math.max(0, Math.min(255, (int) v));
+            }
+        }
+        return img;
+    }
+
+    /**
+     * A few dozen flat discs over a slow gradient with light noise: a still where most of the frame
+     * has no edges.
+     */
+    public static byte[] sparseShapes(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] img = new byte[width * height];
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                img[y * width + x] = (byte) (120 + 40 * Math.sin(x * 0.002) + 30 * Math.cos(y * 0.003));
+        int scale = Math.max(1, Math.min(width, height) / 10);
+        for (int k = 0; k < 60; k++) {
+            int cx = random.nextInt(width), cy = random.nextInt(height);
+            int r = scale / 8 + random.nextInt(scale);
+            byte v = (byte) random.nextInt(256);
+            for (int y = Math.max(0, cy - r); y < Math.min(height, cy + r); y++)
+                for (int x = Math.max(0, cx - r); x < Math.min(width, cx + r); x++)
+                    if ((x - cx) * (x - cx) + (y - cy) * (y - cy) < r * r)
+                        img[y * width + x] = v;
+        }
+        for (int i = 0; i < img.length; i++)
+            img[i] = (byte) Math.max(0, Math.min(255, (img[i] & 0xFF) + random.nextInt(7) - 3));
+        return img;
+    }
+
+    /**
+     * Low contrast concentric rings under heavy noise with a few high contrast ones: most pixels
+     * survive NMS as weak and join a few huge components reached from sparse strong seeds, which
+     * is the worst case for the hysteresis flood fill.
+     */
+    public static byte[] edgeDense(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] img = new byte[width * height];
+        int cx = width / 2, cy = height / 2;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int dx = x - cx, dy = y - cy;
+                int ring = (int) Math.sqrt(dx * dx + dy * dy) / 3;
+                int v = (ring & 1) == 0 ? 110 : 150;
+                if (ring % 32 == 0)
+                    v = 20;
+                v += random.nextInt(81) - 40;
+                img[y * width + x] = (byte) Math.max(0, Math.min(255, v));
+            }
+        }
+        return img;
+    }
+}
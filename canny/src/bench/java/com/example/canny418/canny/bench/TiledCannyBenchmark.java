@@ -0,0 +1,56 @@
+package com.example.canny418.canny.bench;
+
+import com.example.canny418.canny.CannyEdgeDetector;
+import com.example.canny418.canny.TiledCannyEdgeDetector;
+
+import java.util.Arrays;
+
+/**
+ * Scaling of {@link TiledCannyEdgeDetector} from 1 to N threads against the single-threaded
+ * {@link CannyEdgeDetector}, checking on every configuration that the output is identical.
+ *
+ * Arguments: [width] [height] [maxThreads] [tileSize]
+ */
+public class TiledCannyBenchmark {
+    private static final int WARMUP = 5;
+    private static final int RUNS = 15;
+
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int tileSize = args.length > 3 ? Integer.parseInt(args[3]) : TiledCannyEdgeDetector.DEFAULT_TILE_SIZE;
+
+        byte[] src = SyntheticImages.natural(width, height, 1);
+        byte[] expected = new byte[width * height];
+        byte[] dst = new byte[width * height];
+
+        CannyEdgeDetector reference = new CannyEdgeDetector(50, 150);
+        double base = medianMillis(reference, src, width, height, expected);
+        System.out.printf("%dx%d, tile %d%n", width, height, tileSize);
+        System.out.printf("single-threaded  %8.2f ms%n", base);
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            TiledCannyEdgeDetector tiled = new TiledCannyEdgeDetector(50, 150, 3, false, threads);
+            tiled.setTileSize(tileSize, tileSize);
+            double ms = medianMillis(tiled, src, width, height, dst);
+            tiled.close();
+            if (!Arrays.equals(expected, dst))
+                throw new IllegalStateException("Tiled output differs from reference with " + threads + " threads");
+            System.out.printf("tiled %2d threads %8.2f ms  x%.2f%n", threads, ms, base / ms);
+        }
+    }
+
+    static double medianMillis(CannyEdgeDetector detector, byte[] src, int width, int height, byte[] dst) {
+        for (int i = 0; i < WARMUP; i++)
+            detector.detect(src, width, height, dst);
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            detector.detect(src, width, height, dst);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2] / 1e6;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.canny418.canny.golden;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Writes the golden Canny fixtures of {@code CannyGoldenTest}: a few small gray images and the
+ * edges desktop OpenCV computes for them, {@code GaussianBlur(ksize, 0)} when blurred and then
+ * {@code Imgproc.Canny}, for every aperture, L1 and L2 and blur size. {@code cases.txt} lists one
+ * case per line as {@code input edges threshold1 threshold2 aperture L2gradient blur}.
+ *
+ * Arguments: [outputDir]
+ */
+public class GoldenFixtureExporter {
+    private static final int[] APERTURES = {3, 5, 7};
+    private static final int[] BLURS = {0, 3, 5};
+
+    public static void main(String[] args) throws IOException {
+        nu.pattern.OpenCV.loadLocally();
+        File dir = new File(args.length > 0 ? args[0] : "src/test/resources/com/example/canny418/canny/golden");
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create " + dir);
+
+        Writer cases = new FileWriter(new File(dir, "cases.txt"));
+        try {
+            cases.write("# Exported from OpenCV " + Core.VERSION + " by GoldenFixtureExporter\n");
+            export(dir, cases, "noise", 31, 23, noise(31, 23, 1));
+            export(dir, cases, "shapes", 40, 30, shapes(40, 30, 2));
+            export(dir, cases, "row", 37, 1, shapes(37, 1, 3));
+            export(dir, cases, "column", 1, 29, shapes(1, 29, 4));
+            export(dir, cases, "tiny", 3, 2, noise(3, 2, 5));
+        } finally {
+            cases.close();
+        }
+    }
+
+    private static void export(File dir, Writer cases, String name, int width, int height, byte[] gray)
+            throws IOException {
+        String input = name + ".png";
+        write(new File(dir, input), gray, width, height);
+        Mat src = new Mat(height, width, CvType.CV_8UC1);
+        src.put(0, 0, gray);
+        for (int aperture : APERTURES) {
+            // Aperture 5 gradients are about four times those of 3; 7 is scaled back by 1/16 inside Canny
+            double t1 = aperture == 5 ? 200 : 50;
+            double t2 = aperture == 5 ? 600 : 150;
+            for (int l2 = 0; l2 < 2; l2++) {
+                for (int blur : BLURS) {
+                    Mat in = src;
+                    if (blur != 0) {
+                        in = new Mat();
+                        Imgproc.GaussianBlur(src, in, new Size(blur, blur), 0);
+                    }
+                    // Every other case passes the thresholds swapped, which Canny must accept
+                    boolean swap = (aperture + l2 + blur) % 2 == 1;
+                    Mat edges = new Mat();
+                    Imgproc.Canny(in, edges, swap ? t2 : t1, swap ? t1 : t2, aperture, l2 == 1);
+                    byte[] out = new byte[width * height];
+                    edges.get(0, 0, out);
+                    String output = String.format(Locale.ROOT, "%s_a%d_%s_b%d.png", name, aperture, l2 == 1 ? "l2" : "l1", blur);
+                    write(new File(dir, output), out, width, height);
+                    cases.write(String.format(Locale.ROOT, "%s %s %.0f %.0f %d %b %d\n", input, output,
+                            swap ? t2 : t1, swap ? t1 : t2, aperture, l2 == 1, blur));
+                }
+            }
+        }
+    }
+
+    private static void write(File file, byte[] gray, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(gray, 0, data, 0, gray.length);
+        if (!ImageIO.write(image, "png", file))
+            throw new IOException("No PNG writer for " + file);
+    }
+
+    private static byte[] noise(int width, int height, long seed) {
+        byte[] gray = new byte[width * height];
+        new Random(seed).nextBytes(gray);
+        return gray;
+    }
+
+    /** A ramp, blocks, a disc and two thin dark lines over light noise. */
+    private static byte[] shapes(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] gray = new byte[width * height];
+        int cx = width / 2, cy = height / 2;
+        int r = Math.max(1, Math.min(width, height) / 3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = 40 + 100 * x / Math.max(1, width - 1) + 3 * y;
+                if ((x / 7 + y / 5) % 3 == 0)
+                    v += 60;
+                if ((x - cx) * (x - cx) + (y - cy) * (y - cy) <= r * r)
+                    v = 220;
+                if (x == y || (x + 2 * y) % 13 == 0)
+                    v = 10;
+                v += random.nextInt(9) - 4;
+                gray[y * width + x] = (byte) Math.max(0, Math.min(255, v));
+            }
+        }
+        return gray;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.canny418.canny;
+
+/** {@link RowSource} over an in-memory, row-major, channel-interleaved pixel array. */
+public class ArrayRowSource implements RowSource {
+    private byte[] mPixels;
+    private int mWidth;
+    private int mHeight;
+    private int mChannels;
+    private int mStride;
+
+    public ArrayRowSource() {
+    }
+
+    public ArrayRowSource(byte[] pixels, int width, int height, int channels) {
+        set(pixels, width, height, channels, width * channels);
+    }
+
+    /** Points this source at another image; {@code stride} is the distance between rows in bytes. */
+    public ArrayRowSource set(byte[] pixels, int width, int height, int channels, int stride) {
+        ColorConversion.checkChannels(channels);
+        if (stride < width * channels || pixels.length < (height - 1) * stride + width * channels)
+            throw new IllegalArgumentException("Buffer too small for a " + width + "x" + height + " image");
+        mPixels = pixels;
+        mWidth = width;
+        mHeight = height;
+        mChannels = channels;
+        mStride = stride;
+        return this;
+    }
+
+    @Override
+    public int getWidth() {
+        return mWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return mHeight;
+    }
+
+    @Override
+    public int getChannels() {
+        return mChannels;
+    }
+
+    @Override
+    public void readRow(int y, byte[] dst, int offset) {
+        System.arraycopy(mPixels, y * mStride, dst, offset, mWidth * mChannels);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.canny418.canny;
+
+import java.util.Arrays;
+
+/**
+ * Picks Canny thresholds from a histogram of gradient magnitudes that the detector fills while
+ * it computes the magnitude, so no extra pass over the frame is needed.
+ *
+ * {@link Method#MEDIAN} brackets the median non-zero magnitude by {@code +-sigma};
+ * {@link Method#OTSU} uses Otsu's split of the histogram as the high threshold and a fraction of
+ * it as the low one. Results can be smoothed over consecutive frames with an exponential moving
+ * average so thresholds follow lighting changes without flickering.
+ */
+public class AutoThreshold {
+    public enum Method { MEDIAN, OTSU }
+
+    static final int BINS = 4096;
+
+    private final int[] mHistogram = new int[BINS];
+    private int mShift;
+
+    private Method mMethod;
+    private double mSigma = 0.33;
+    private double mLowRatio = 0.5;
+    private double mSmoothing = 1.0;
+
+    private double mLow = -1;
+    private double mHigh = -1;
+
+    public AutoThreshold(Method method) {
+        mMethod = method;
+    }
+
+    public void setMethod(Method method) {
+        mMethod = method;
+    }
+
+    public Method getMethod() {
+        return mMethod;
+    }
+
+    /** Relative spread around the median for {@link Method#MEDIAN}; default 0.33. */
+    public void setSigma(double sigma) {
+        mSigma = sigma;
+    }
+
+    /** Low threshold as a fraction of the high one for {@link Method#OTSU}; default 0.5. */
+    public void setLowRatio(double lowRatio) {
+        mLowRatio = lowRatio;
+    }
+
+    /**
+     * Weight of the newest frame in the moving average, in (0, 1]. The default 1 disables
+     * smoothing; camera previews work well around 0.1 to 0.3.
+     */
+    public void setSmoothing(double alpha) {
+        if (alpha <= 0 || alpha > 1)
+            throw new IllegalArgumentException("Smoothing must be in (0, 1], got " + alpha);
+        mSmoothing = alpha;
+    }
+
+    /** Forgets the smoothed thresholds, e.g. when the camera restarts. */
+    public void reset() {
+        mLow = -1;
+        mHigh = -1;
+    }
+
+    /** Low threshold from the latest frame, in the units {@code Imgproc.Canny} expects. */
+    public double getLowThreshold() {
+        return mLow;
+    }
+
+    /** High threshold from the latest frame, in the units {@code Imgproc.Canny} expects. */
+    public double getHighThreshold() {
+        return mHigh;
+    }
+
+    /** Clears the histogram before a frame; magnitudes are binned {@code >> shift()}. */
+    void begin(int apertureSize) {
+        Arrays.fill(mHistogram, 0);
+        mShift = apertureSize == 3 ? 0 : 4;
+    }
+
+    int[] histogram() {
+        return mHistogram;
+    }
+
+    int shift() {
+        return mShift;
+    }
+
+    /** Derives this frame's thresholds from the filled histogram and folds them into the average. */
+    void update(int apertureSize) {
+        double high, low;
+        if (mMethod == Method.OTSU) {
+            high = binValue(otsuBin());
+            low = mLowRatio * high;
+        } else {
+            double median = binValue(medianBin());
+            low = Math.max(0, (1 - mSigma) * median);
+            high = (1 + mSigma) * median;
+        }
+        // Canny divides aperture 7 thresholds by 16 to match its scaled Sobel
+        if (apertureSize == 7) {
+            low *= 16;
+            high *= 16;
+        }
+        if (mLow < 0) {
+            mLow = low;
+            mHigh = high;
+        } else {
+            mLow += mSmoothing * (low - mLow);
+            mHigh += mSmoothing * (high - mHigh);
+        }
+    }
+
+    /** Centre of a bin in magnitude units. */
+    private double binValue(int bin) {
+        return ((bin << mShift) + ((1 << mShift) - 1) / 2.0);
+    }
+
+    /** Median over the non-zero bins; flat areas would otherwise drag it to 0. */
+    private int medianBin() {
+        long total = 0;
+        for (int i = 1; i < BINS; i++)
+            total += mHistogram[i];
+        long half = (total + 1) / 2;
+        long sum = 0;
+        for (int i = 1; i < BINS; i++) {
+            sum += mHistogram[i];
+            if (sum >= half && sum > 0)
+                return i;
+        }
+        return 0;
+    }
+
+    /** Otsu's threshold over the non-zero bins: the split maximising between-class variance. */
+    private int otsuBin() {
+        long total = 0;
+        double sumAll = 0;
+        for (int i = 1; i < BINS; i++) {
+            total += mHistogram[i];
+            sumAll += (double) i * mHistogram[i];
+        }
+        long weightB = 0;
+        double sumB = 0;
+        double best = -1;
+        int bestBin = 0;
+        for (int i = 1; i < BINS; i++) {
+            weightB += mHistogram[i];
+            if (weightB == 0)
+                continue;
+            long weightF = total - weightB;
+            if (weightF == 0)
+                break;
+            sumB += (double) i * mHistogram[i];
+            double meanB = sumB / weightB;
+            double meanF = (sumAll - sumB) / weightF;
+            double between = (double) weightB * weightF * (meanB - meanF) * (meanB - meanF);
+            if (between > best) {
+                best = between;
+                bestBin = i;
+            }
+        }
+        return bestBin;
+    }
+}
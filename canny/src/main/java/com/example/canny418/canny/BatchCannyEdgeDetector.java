@@ -0,0 +1,232 @@
+package com.example.canny418.canny;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs Canny over a batch of images on a fixed set of worker threads.
+ *
+ * Every worker owns a detector from the factory and an edge buffer, both of which grow to the
+ * largest image it has seen and are reused for the rest of the batch, so a long run allocates
+ * next to nothing per image. At most {@code maxInFlight} images are queued or being processed at
+ * any time: the submitting thread blocks until a worker has finished with an earlier one, so a
+ * lazy {@link Iterable} that decodes on demand keeps only that many decoded images alive.
+ */
+public class BatchCannyEdgeDetector implements AutoCloseable {
+    /** Creates the detector of one worker; called once per worker thread. */
+    public interface DetectorFactory {
+        CannyEdgeDetector create();
+    }
+
+    public interface Callback {
+        /**
+         * Receives the edges of the {@code index}th image of the batch, on a worker thread and in
+         * no particular order. The first {@code width * height} bytes of {@code edges} hold the
+         * result; the array is reused by the worker once this returns.
+         */
+        void onEdges(int index, RowSource image, byte[] edges);
+    }
+
+    private static final Job STOP = new Job(-1, null);
+
+    private final Worker[] mWorkers;
+    private final int mMaxInFlight;
+    private final Semaphore mPermits;
+    private final LinkedBlockingQueue<Job> mQueue = new LinkedBlockingQueue<Job>();
+    private volatile boolean mClosed;
+
+    // Per batch state
+    private volatile Callback mCallback;
+    private volatile Throwable mFailure;
+    private int mImageCount;
+    private long mPixelCount;
+    private long mElapsedNanos;
+
+    public BatchCannyEdgeDetector(DetectorFactory factory, int workers, int maxInFlight) {
+        if (workers <= 0)
+            throw new IllegalArgumentException("Invalid worker count " + workers);
+        if (maxInFlight < workers)
+            throw new IllegalArgumentException("maxInFlight " + maxInFlight + " is below the worker count " + workers);
+        mMaxInFlight = maxInFlight;
+        mPermits = new Semaphore(maxInFlight);
+        mWorkers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            mWorkers[i] = new Worker(factory.create(), i);
+            mWorkers[i].start();
+        }
+    }
+
+    /**
+     * Detects edges on every image of {@code images} and blocks until all callbacks have
+     * returned. Images are pulled from the iterator only as workers free up. If an image or a
+     * callback throws, the rest of the batch is skipped and the first failure is rethrown here.
+     *
+     * @throws IllegalStateException if the detector has been closed
+     */
+    public void detect(Iterable<? extends RowSource> images, Callback callback) throws InterruptedException {
+        if (mClosed)
+            throw new IllegalStateException("BatchCannyEdgeDetector is closed");
+        mCallback = callback;
+        mFailure = null;
+        int count = 0;
+        long pixels = 0;
+        long start = System.nanoTime();
+        try {
+            Iterator<? extends RowSource> iterator = images.iterator();
+            while (true) {
+                // Take the permit before pulling the image, so a lazy iterable never holds more than maxInFlight
+                mPermits.acquire();
+                RowSource image = null;
+                try {
+                    if (mFailure == null && iterator.hasNext())
+                        image = iterator.next();
+                } finally {
+                    if (image == null)
+                        mPermits.release();
+                }
+                if (image == null)
+                    break;
+                mQueue.add(new Job(count++, image));
+                pixels += (long) image.getWidth() * image.getHeight();
+            }
+        } finally {
+            // Wait for the images already queued, even when interrupted, as they still use the callback
+            mPermits.acquireUninterruptibly(mMaxInFlight);
+            mPermits.release(mMaxInFlight);
+            mElapsedNanos = System.nanoTime() - start;
+            mImageCount = count;
+            mPixelCount = pixels;
+            mCallback = null;
+        }
+
+        Throwable failure = mFailure;
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+    }
+
+    public int getWorkerCount() {
+        return mWorkers.length;
+    }
+
+    /** Images submitted by the last {@link #detect} call. */
+    public int getImageCount() {
+        return mImageCount;
+    }
+
+    /** Wall time of the last {@link #detect} call, including waiting for the iterator. */
+    public long getElapsedNanos() {
+        return mElapsedNanos;
+    }
+
+    public double getImagesPerSecond() {
+        return mElapsedNanos > 0 ? mImageCount * 1e9 / mElapsedNanos : 0;
+    }
+
+    public double getMegapixelsPerSecond() {
+        return mElapsedNanos > 0 ? mPixelCount * 1e3 / mElapsedNanos : 0;
+    }
+
+    private synchronized void fail(Throwable t) {
+        if (mFailure == null)
+            mFailure = t;
+    }
+
+    /**
+     * Stops the workers once they have drained the queue. Must not be called while {@link #detect}
+     * runs; closing again has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (mClosed)
+            return;
+        mClosed = true;
+        for (int i = 0; i < mWorkers.length; i++)
+            mQueue.add(STOP);
+    }
+
+    /**
+     * Peak resident set size of this process in bytes, read from {@code VmHWM} in
+     * {@code /proc/self/status}, or -1 where that is not available.
+     */
+    public static long peakRssBytes() {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader("/proc/self/status"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    String kb = line.substring(6).trim();
+                    return Long.parseLong(kb.substring(0, kb.indexOf(' '))) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux or an unexpected format
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static final class Job {
+        final int mIndex;
+        final RowSource mImage;
+
+        Job(int index, RowSource image) {
+            mIndex = index;
+            mImage = image;
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final CannyEdgeDetector mDetector;
+        private byte[] mEdges = new byte[0];
+
+        Worker(CannyEdgeDetector detector, int id) {
+            super("canny-batch-" + id);
+            mDetector = detector;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Job job;
+                try {
+                    job = mQueue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (job == STOP)
+                    return;
+                try {
+                    if (mFailure == null)
+                        process(job);
+                } catch (Throwable t) {
+                    fail(t);
+                } finally {
+                    mPermits.release();
+                }
+            }
+        }
+
+        private void process(Job job) {
+            RowSource image = job.mImage;
+            int size = image.getWidth() * image.getHeight();
+            if (mEdges.length < size)
+                mEdges = new byte[size];
+            mDetector.detect(image, mEdges);
+            mCallback.onEdges(job.mIndex, image, mEdges);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.canny418.canny;
+
+/**
+ * Pure Java Canny edge detector producing the same output as
+ * {@code Imgproc.Canny(image, edges, threshold1, threshold2, apertureSize, L2gradient)}.
+ *
+ * Like OpenCV, no smoothing is applied unless a blur size is set with {@link #setBlurSize(int)}.
+ * All scratch memory is kept in the instance and reused, so repeated calls on images no larger
+ * than the biggest one seen so far do not allocate.
+ */
+public class CannyEdgeDetector implements EdgeDetector {
+    private double mThreshold1;
+    private double mThreshold2;
+    private int mApertureSize;
+    private boolean mL2Gradient;
+    private int mBlurSize = 0;
+    private UnionFindHysteresis mUnionFind;
+    private AutoThreshold mAutoThreshold;
+    private GradientKernels mKernels = GradientKernels.best();
+
+    private final CannyWorkspace mWorkspace = new CannyWorkspace();
+    private byte[] mSourceGray = new byte[0];
+    private byte[] mSourceRow = new byte[0];
+
+    public CannyEdgeDetector(double threshold1, double threshold2) {
+        this(threshold1, threshold2, 3, false);
+    }
+
+    public CannyEdgeDetector(double threshold1, double threshold2, int apertureSize, boolean L2gradient) {
+        Sobel.checkAperture(apertureSize);
+        mThreshold1 = threshold1;
+        mThreshold2 = threshold2;
+        mApertureSize = apertureSize;
+        mL2Gradient = L2gradient;
+    }
+
+    public void setThresholds(double threshold1, double threshold2) {
+        mThreshold1 = threshold1;
+        mThreshold2 = threshold2;
+    }
+
+    public double getThreshold1() {
+        return mThreshold1;
+    }
+
+    public double getThreshold2() {
+        return mThreshold2;
+    }
+
+    public void setApertureSize(int apertureSize) {
+        Sobel.checkAperture(apertureSize);
+        mApertureSize = apertureSize;
+    }
+
+    public int getApertureSize() {
+        return mApertureSize;
+    }
+
+    public void setL2Gradient(boolean L2gradient) {
+        mL2Gradient = L2gradient;
+    }
+
+    public boolean isL2Gradient() {
+        return mL2Gradient;
+    }
+
+    /** Gaussian kernel size applied before the gradient, 0 to disable (the default), 3 or 5. */
+    public void setBlurSize(int ksize) {
+        if (ksize != 0)
+            Gaussian.kernel(ksize);
+        mBlurSize = ksize;
+    }
+
+    public int getBlurSize() {
+        return mBlurSize;
+    }
+
+    /** Runs hysteresis with the given parallel union-find instead of the stack flood fill; null restores the flood fill. */
+    public void setUnionFindHysteresis(UnionFindHysteresis unionFind) {
+        mUnionFind = unionFind;
+    }
+
+    /**
+     * Derives the thresholds of every frame from its gradient histogram instead of using the
+     * fixed ones; null restores the fixed thresholds. The chosen values are available from the
+     * {@link AutoThreshold} after each call.
+     */
+    public void setAutoThreshold(AutoThreshold autoThreshold) {
+        mAutoThreshold = autoThreshold;
+    }
+
+    public AutoThreshold getAutoThreshold() {
+        return mAutoThreshold;
+    }
+
+    /** Kernels for the Sobel, L1 magnitude and NMS direction stages; {@link GradientKernels#best()} by default. */
+    public void setGradientKernels(GradientKernels kernels) {
+        if (kernels == null)
+            throw new NullPointerException("kernels");
+        mKernels = kernels;
+    }
+
+    public GradientKernels getGradientKernels() {
+        return mKernels;
+    }
+
+    @Override
+    public void detect(byte[] src, int width, int height, byte[] dst) {
+        checkImage(src, width, height, dst);
+        int top = suppress(src, width, height);
+        CannyWorkspace ws = mWorkspace;
+        traceHysteresis(ws.mMap, width, height, ws.mStack, top);
+        Hysteresis.toEdges(ws.mMap, width, height, dst);
+    }
+
+    /**
+     * Reads {@code source} into a reused gray buffer, converting colour rows on the way, and runs
+     * {@link #detect(byte[], int, int, byte[])} on it. Lets strided or off-heap frames such as a
+     * camera's Y plane go straight to the detector with a single row copy.
+     */
+    public void detect(RowSource source, byte[] dst) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int channels = source.getChannels();
+        ColorConversion.checkChannels(channels);
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        if (mSourceGray.length < width * height)
+            mSourceGray = new byte[width * height];
+        if (channels != 1 && mSourceRow.length < width * channels)
+            mSourceRow = new byte[width * channels];
+        byte[] gray = mSourceGray;
+        for (int y = 0; y < height; y++) {
+            if (channels == 1) {
+                source.readRow(y, gray, y * width);
+            } else {
+                source.readRow(y, mSourceRow, 0);
+                ColorConversion.toGray(mSourceRow, 0, channels, gray, y * width, width);
+            }
+        }
+        detect(gray, width, height, dst);
+    }
+
+    /**
+     * Runs Canny and stores the edge pixels in {@code dst} instead of a dense image, replacing
+     * its previous contents. With the flood fill hysteresis the list is filled while tracing, so
+     * the cost follows the number of edges rather than the image size. Always runs the whole
+     * image pipeline of this class, even on subclasses that override the dense {@code detect}.
+     */
+    public void detect(byte[] src, int width, int height, EdgeList dst) {
+        checkSource(src, width, height);
+        if (width > EdgeList.MAX_SIZE || height > EdgeList.MAX_SIZE)
+            throw new IllegalArgumentException("Image too large for an edge list: " + width + "x" + height);
+        int top = suppress(src, width, height);
+        CannyWorkspace ws = mWorkspace;
+        dst.clear();
+        if (mUnionFind != null) {
+            mUnionFind.trace(ws.mMap, width, height);
+            Hysteresis.collect(ws.mMap, width, height, dst, ws.mDx, ws.mDy, ws.mMag, mL2Gradient);
+        } else {
+            ws.mStack = Hysteresis.traceToList(ws.mMap, width, ws.mStack, top, dst,
+                    ws.mDx, ws.mDy, ws.mMag, mL2Gradient);
+        }
+    }
+
+    /**
+     * Blur, Sobel, magnitude and non-maximum suppression into the workspace map.
+     *
+     * @return the number of strong pixels left on the workspace stack
+     */
+    private int suppress(byte[] src, int width, int height) {
+        CannyWorkspace ws = mWorkspace;
+        ws.ensure(width, height);
+
+        byte[] gray = src;
+        if (mBlurSize != 0) {
+            Gaussian.blur(src, width, height, mBlurSize, ws.mBlurred, ws.mRowA);
+            gray = ws.mBlurred;
+        }
+
+        mKernels.sobel(gray, width, height, mApertureSize, ws.mDx, ws.mDy, ws.mRowA, ws.mRowB);
+        ws.clearMagBorder(width, height);
+        double threshold1 = mThreshold1;
+        double threshold2 = mThreshold2;
+        AutoThreshold auto = mAutoThreshold;
+        if (auto != null) {
+            auto.begin(mApertureSize);
+            int[] histogram = auto.histogram();
+            int shift = auto.shift();
+            for (int y = 0; y < height; y++)
+                Sobel.magnitudeRow(ws.mDx, ws.mDy, y * width, width, mL2Gradient, ws.mMag,
+                        (y + 1) * (width + 2) + 1, histogram, shift);
+            auto.update(mApertureSize);
+            threshold1 = auto.getLowThreshold();
+            threshold2 = auto.getHighThreshold();
+        } else if (mL2Gradient) {
+            Sobel.magnitude(ws.mDx, ws.mDy, width, height, true, ws.mMag, width + 2);
+        } else {
+            for (int y = 0; y < height; y++)
+                mKernels.magnitudeL1(ws.mDx, ws.mDy, y * width, width, ws.mMag, (y + 1) * (width + 2) + 1);
+        }
+
+        int low = lowThreshold(threshold1, threshold2, mApertureSize, mL2Gradient);
+        int high = highThreshold(threshold1, threshold2, mApertureSize, mL2Gradient);
+        mKernels.sectors(ws.mDx, ws.mDy, 0, width * height, ws.mSector, 0);
+        return NonMaxSuppression.suppressSectors(ws.mSector, ws.mMag, width, height, low, high, ws.mMap, ws.mStack);
+    }
+
+    /**
+     * Runs the configured hysteresis on a padded map with {@code top} strong pixels on
+     * {@code stack}. The flood fill grows the stack if needed; the stack in use is returned.
+     */
+    int[] traceHysteresis(byte[] map, int width, int height, int[] stack, int top) {
+        if (mUnionFind != null) {
+            mUnionFind.trace(map, width, height);
+            return stack;
+        }
+        return Hysteresis.traceGrowable(map, width + 2, stack, top);
+    }
+
+    /** Low threshold in magnitude units, after the same ordering, scaling and squaring OpenCV applies. */
+    static int lowThreshold(double threshold1, double threshold2, int apertureSize, boolean L2gradient) {
+        return scaleThreshold(Math.min(threshold1, threshold2), apertureSize, L2gradient);
+    }
+
+    /** High threshold in magnitude units, see {@link #lowThreshold}. */
+    static int highThreshold(double threshold1, double threshold2, int apertureSize, boolean L2gradient) {
+        return scaleThreshold(Math.max(threshold1, threshold2), apertureSize, L2gradient);
+    }
+
+    private static int scaleThreshold(double t, int apertureSize, boolean L2gradient) {
+        if (apertureSize == 7)
+            t = t / 16.0;
+        if (L2gradient) {
+            t = Math.min(32767.0, t);
+            if (t > 0)
+                t *= t;
+        }
+        return (int) Math.floor(t);
+    }
+
+    static void checkImage(byte[] src, int width, int height, byte[] dst) {
+        checkSource(src, width, height);
+        if (dst.length < width * height)
+            throw new IllegalArgumentException("Buffers too small for a " + width + "x" + height + " image");
+        if (src == dst)
+            throw new IllegalArgumentException("dst must not alias src");
+    }
+
+    static void checkSource(byte[] src, int width, int height) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        if (src.length < width * height)
+            throw new IllegalArgumentException("Buffers too small for a " + width + "x" + height + " image");
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.canny418.canny;
+
+/**
+ * Runs blur, Sobel, magnitude and NMS for one rectangle of a larger image, computing each stage
+ * over a halo wide enough that the result equals the same rectangle of a full frame run.
+ */
+final class CannyRegion {
+    private CannyRegion() {
+    }
+
+    /** Workspace dimensions that fit any region no larger than {@code regionWidth x regionHeight}. */
+    static void ensure(CannyWorkspace ws, int regionWidth, int regionHeight, int apertureSize) {
+        int r = apertureSize >> 1;
+        ws.ensure(regionWidth + 2 + 2 * r, regionHeight + 2 + 2 * r);
+    }
+
+    /**
+     * Classifies the pixels of [x0, x1) x [y0, y1) as {@link Hysteresis#NONE}, {@link Hysteresis#WEAK}
+     * or {@link Hysteresis#STRONG}. Pixel (x0, y) is written to {@code map[mapOffset + (y - y0) * mapStep]}
+     * and strong pixels are pushed onto {@code stack} as map indices.
+     *
+     * @return the new stack top
+     */
+    static int suppress(byte[] src, int width, int height, int blurSize, int apertureSize, boolean l2Gradient,
+                        int low, int high, int x0, int y0, int x1, int y1, CannyWorkspace ws,
+                        byte[] map, int mapOffset, int mapStep, int[] stack, int top) {
+        int r = apertureSize >> 1;
+
+        // Gradient region: the core plus the one pixel ring NMS compares against
+        int gx0 = Math.max(0, x0 - 1), gy0 = Math.max(0, y0 - 1);
+        int gx1 = Math.min(width, x1 + 1), gy1 = Math.min(height, y1 + 1);
+        int gw = gx1 - gx0, gh = gy1 - gy0;
+
+        byte[] win = src;
+        int winW = width, winH = height, rx0 = gx0, ry0 = gy0;
+        if (blurSize != 0) {
+            // Blur region: the gradient region plus the Sobel radius
+            int bx0 = Math.max(0, gx0 - r), by0 = Math.max(0, gy0 - r);
+            int bx1 = Math.min(width, gx1 + r), by1 = Math.min(height, gy1 + r);
+            Gaussian.blurRect(src, width, height, blurSize, bx0, by0, bx1, by1, ws.mBlurred, bx1 - bx0, ws.mRowA);
+            win = ws.mBlurred;
+            winW = bx1 - bx0;
+            winH = by1 - by0;
+            rx0 = gx0 - bx0;
+            ry0 = gy0 - by0;
+        }
+
+        Sobel.gradientRect(win, winW, winH, apertureSize, rx0, ry0, rx0 + gw, ry0 + gh,
+                ws.mDx, ws.mDy, 0, gw, ws.mRowA, ws.mRowB);
+        ws.clearMagBorder(gw, gh);
+        int magStep = gw + 2;
+        for (int y = 0; y < gh; y++)
+            Sobel.magnitudeRow(ws.mDx, ws.mDy, y * gw, gw, l2Gradient, ws.mMag, (y + 1) * magStep + 1);
+
+        int cw = x1 - x0;
+        for (int y = y0; y < y1; y++) {
+            int ly = y - gy0;
+            int cur = (ly + 1) * magStep + 1 + (x0 - gx0);
+            top = NonMaxSuppression.suppressRow(ws.mDx, ws.mDy, ly * gw + (x0 - gx0), cw,
+                    ws.mMag, cur - magStep, cur, cur + magStep, low, high,
+                    map, mapOffset + (y - y0) * mapStep, stack, top);
+        }
+        return top;
+    }
+}
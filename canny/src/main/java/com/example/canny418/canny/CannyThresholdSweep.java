@@ -0,0 +1,125 @@
+package com.example.canny418.canny;
+
+/**
+ * Evaluates many Canny threshold pairs on one image while computing blur, Sobel, magnitude and
+ * the non-maximum test only once.
+ *
+ * {@link #prepare} keeps the magnitude of every NMS local maximum; the local-maximum test itself
+ * does not depend on the thresholds. Each pair then costs one classification pass and one
+ * hysteresis flood, and gives exactly what {@link CannyEdgeDetector} would for that pair.
+ */
+public class CannyThresholdSweep {
+    /** Marks pixels that are not local maxima, so they never pass a threshold. */
+    private static final int SUPPRESSED = Integer.MIN_VALUE;
+
+    private final int mApertureSize;
+    private final boolean mL2Gradient;
+    private int mBlurSize = 0;
+
+    private final CannyWorkspace mWorkspace = new CannyWorkspace();
+    /** Magnitude of local maxima, {@link #SUPPRESSED} elsewhere; padded like the edge map. */
+    private int[] mMaxima = new int[0];
+    private int mWidth;
+    private int mHeight;
+
+    public CannyThresholdSweep(int apertureSize, boolean L2gradient) {
+        Sobel.checkAperture(apertureSize);
+        mApertureSize = apertureSize;
+        mL2Gradient = L2gradient;
+    }
+
+    /** Gaussian kernel size applied before the gradient, 0 to disable (the default), 3 or 5. */
+    public void setBlurSize(int ksize) {
+        if (ksize != 0)
+            Gaussian.kernel(ksize);
+        mBlurSize = ksize;
+    }
+
+    /** Runs everything up to and including the local-maximum test on {@code src}. */
+    public void prepare(byte[] src, int width, int height) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        if (src.length < width * height)
+            throw new IllegalArgumentException("src too small for a " + width + "x" + height + " image");
+        CannyWorkspace ws = mWorkspace;
+        ws.ensure(width, height);
+        int padded = (width + 2) * (height + 2);
+        if (mMaxima.length < padded)
+            mMaxima = new int[padded];
+
+        byte[] gray = src;
+        if (mBlurSize != 0) {
+            Gaussian.blur(src, width, height, mBlurSize, ws.mBlurred, ws.mRowA);
+            gray = ws.mBlurred;
+        }
+        GradientKernels.best().sobel(gray, width, height, mApertureSize, ws.mDx, ws.mDy, ws.mRowA, ws.mRowB);
+        ws.clearMagBorder(width, height);
+        Sobel.magnitude(ws.mDx, ws.mDy, width, height, mL2Gradient, ws.mMag, width + 2);
+
+        // Magnitudes are never negative, so low = -1 tests every pixel and high = MAX marks none strong
+        NonMaxSuppression.suppress(ws.mDx, ws.mDy, ws.mMag, width, height, -1, Integer.MAX_VALUE, ws.mMap, ws.mStack);
+        for (int i = 0; i < padded; i++)
+            mMaxima[i] = ws.mMap[i] == Hysteresis.WEAK ? ws.mMag[i] : SUPPRESSED;
+
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /** Edge map of the prepared image for one threshold pair, as {@code Imgproc.Canny} would produce. */
+    public void detect(double threshold1, double threshold2, byte[] dst) {
+        checkPrepared();
+        if (dst.length < mWidth * mHeight)
+            throw new IllegalArgumentException("dst too small for a " + mWidth + "x" + mHeight + " image");
+        threshold(threshold1, threshold2);
+        Hysteresis.toEdges(mWorkspace.mMap, mWidth, mHeight, dst);
+    }
+
+    /** Number of edge pixels of the prepared image for one threshold pair. */
+    public int countEdges(double threshold1, double threshold2) {
+        checkPrepared();
+        return threshold(threshold1, threshold2);
+    }
+
+    /** Edge pixel counts for every pair {@code (threshold1[i], threshold2[i])}, written to {@code counts}. */
+    public void countEdges(double[] threshold1, double[] threshold2, int[] counts) {
+        if (threshold1.length != threshold2.length || counts.length < threshold1.length)
+            throw new IllegalArgumentException("Threshold and count arrays must have matching lengths");
+        for (int i = 0; i < threshold1.length; i++)
+            counts[i] = countEdges(threshold1[i], threshold2[i]);
+    }
+
+    /** Builds the edge map for one pair in the workspace map and returns its edge count. */
+    private int threshold(double threshold1, double threshold2) {
+        CannyWorkspace ws = mWorkspace;
+        int low = CannyEdgeDetector.lowThreshold(threshold1, threshold2, mApertureSize, mL2Gradient);
+        int high = CannyEdgeDetector.highThreshold(threshold1, threshold2, mApertureSize, mL2Gradient);
+        int[] maxima = mMaxima;
+        byte[] map = ws.mMap;
+        int[] stack = ws.mStack;
+        int padded = (mWidth + 2) * (mHeight + 2);
+        int top = 0;
+        int weak = 0;
+        for (int i = 0; i < padded; i++) {
+            int m = maxima[i];
+            if (m > high) {
+                map[i] = Hysteresis.STRONG;
+                stack[top++] = i;
+            } else if (m > low) {
+                map[i] = Hysteresis.WEAK;
+                weak++;
+            } else {
+                map[i] = Hysteresis.NONE;
+            }
+        }
+        int strong = top;
+        Hysteresis.trace(map, mWidth + 2, stack, top);
+        if (weak == 0)
+            return strong;
+        return Hysteresis.countEdges(map, mWidth, mHeight);
+    }
+
+    private void checkPrepared() {
+        if (mWidth == 0)
+            throw new IllegalStateException("prepare() must be called first");
+    }
+}
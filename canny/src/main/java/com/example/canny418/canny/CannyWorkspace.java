@@ -0,0 +1,55 @@
+package com.example.canny418.canny;
+
+/**
+ * Scratch buffers for one Canny run. Buffers only grow, so once the workspace has seen the
+ * largest image of a session no further allocation happens.
+ */
+final class CannyWorkspace {
+    byte[] mBlurred = new byte[0];
+    short[] mDx = new short[0];
+    short[] mDy = new short[0];
+    /** NMS direction per pixel, see {@link GradientKernels#sectors}. */
+    byte[] mSector = new byte[0];
+    /** Magnitude, padded by one pixel on every side. */
+    int[] mMag = new int[0];
+    /** Edge map, padded like {@link #mMag}. */
+    byte[] mMap = new byte[0];
+    int[] mStack = new int[0];
+    int[] mRowA = new int[0];
+    int[] mRowB = new int[0];
+
+    void ensure(int width, int height) {
+        int pixels = width * height;
+        int padded = (width + 2) * (height + 2);
+        int row = width + 8;
+        if (mBlurred.length < pixels) {
+            mBlurred = new byte[pixels];
+            mDx = new short[pixels];
+            mDy = new short[pixels];
+            mSector = new byte[pixels];
+        }
+        if (mMag.length < padded) {
+            mMag = new int[padded];
+            mMap = new byte[padded];
+            mStack = new int[padded];
+        }
+        if (mRowA.length < row) {
+            mRowA = new int[row];
+            mRowB = new int[row];
+        }
+    }
+
+    /** Zeroes the magnitude padding; needed because a previous, differently sized image may have left data there. */
+    void clearMagBorder(int width, int height) {
+        int step = width + 2;
+        int last = (height + 1) * step;
+        for (int x = 0; x < step; x++) {
+            mMag[x] = 0;
+            mMag[last + x] = 0;
+        }
+        for (int y = 1; y <= height; y++) {
+            mMag[y * step] = 0;
+            mMag[y * step + width + 1] = 0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.canny418.canny;
+
+/**
+ * Canny on interleaved RGB or RGBA pixels without a gray conversion, matching
+ * {@code Imgproc.Canny} on a 3-channel Mat: Sobel runs on each colour channel and every pixel
+ * keeps the derivatives of the channel with the largest magnitude, the first one on ties. Alpha
+ * is ignored. Edges between colours of equal luminance survive, and no gray frame is written.
+ *
+ * The channel selection is fused into the gradient pass one row at a time, so the only full
+ * frame buffers are the ones the gray pipeline needs anyway. Blurring is not supported here.
+ */
+public class ColorCannyEdgeDetector extends CannyEdgeDetector {
+    private static final int COLORS = 3;
+
+    private final CannyWorkspace mWorkspace = new CannyWorkspace();
+    private short[][] mChannelDx = new short[COLORS][0];
+    private short[][] mChannelDy = new short[COLORS][0];
+
+    public ColorCannyEdgeDetector(double threshold1, double threshold2) {
+        super(threshold1, threshold2);
+    }
+
+    public ColorCannyEdgeDetector(double threshold1, double threshold2, int apertureSize, boolean L2gradient) {
+        super(threshold1, threshold2, apertureSize, L2gradient);
+    }
+
+    @Override
+    public void setBlurSize(int ksize) {
+        if (ksize != 0)
+            throw new IllegalArgumentException("Colour Canny does not blur");
+        super.setBlurSize(ksize);
+    }
+
+    /**
+     * Detects edges in {@code width x height} pixels of {@code channels} bytes each, 3 for RGB or
+     * 4 for RGBA. One channel runs the gray detector.
+     */
+    public void detect(byte[] src, int width, int height, int channels, byte[] dst) {
+        ColorConversion.checkChannels(channels);
+        if (channels == 1) {
+            detect(src, width, height, dst);
+            return;
+        }
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        if (src.length < width * height * channels || dst.length < width * height)
+            throw new IllegalArgumentException("Buffers too small for a " + width + "x" + height + " image");
+
+        CannyWorkspace ws = mWorkspace;
+        ws.ensure(width, height);
+        ensureRows(width);
+        int aperture = getApertureSize();
+        boolean l2 = isL2Gradient();
+        int step = width + 2;
+        ws.clearMagBorder(width, height);
+
+        AutoThreshold auto = getAutoThreshold();
+        int[] histogram = null;
+        int shift = 0;
+        if (auto != null) {
+            auto.begin(aperture);
+            histogram = auto.histogram();
+            shift = auto.shift();
+        }
+        for (int y = 0; y < height; y++) {
+            for (int c = 0; c < COLORS; c++)
+                Sobel.gradientRow(src, width, height, height, channels, c, y, 0, width, aperture,
+                        mChannelDx[c], mChannelDy[c], 0, ws.mRowA, ws.mRowB);
+            selectChannels(width, l2, ws.mDx, ws.mDy, y * width, ws.mMag, (y + 1) * step + 1);
+            if (histogram != null)
+                count(ws.mMag, (y + 1) * step + 1, width, l2, histogram, shift);
+        }
+
+        double threshold1 = getThreshold1();
+        double threshold2 = getThreshold2();
+        if (auto != null) {
+            auto.update(aperture);
+            threshold1 = auto.getLowThreshold();
+            threshold2 = auto.getHighThreshold();
+        }
+        int low = lowThreshold(threshold1, threshold2, aperture, l2);
+        int high = highThreshold(threshold1, threshold2, aperture, l2);
+        int top = NonMaxSuppression.suppress(ws.mDx, ws.mDy, ws.mMag, width, height, low, high, ws.mMap, ws.mStack);
+        traceHysteresis(ws.mMap, width, height, ws.mStack, top);
+        Hysteresis.toEdges(ws.mMap, width, height, dst);
+    }
+
+    /** Keeps the derivatives and magnitude of the strongest channel of each pixel of a row. */
+    private void selectChannels(int width, boolean l2, short[] dx, short[] dy, int offset, int[] mag, int magOffset) {
+        short[] dx0 = mChannelDx[0], dx1 = mChannelDx[1], dx2 = mChannelDx[2];
+        short[] dy0 = mChannelDy[0], dy1 = mChannelDy[1], dy2 = mChannelDy[2];
+        for (int x = 0; x < width; x++) {
+            int gx = dx0[x], gy = dy0[x];
+            int best = norm(gx, gy, l2);
+            int m = norm(dx1[x], dy1[x], l2);
+            if (m > best) {
+                best = m;
+                gx = dx1[x];
+                gy = dy1[x];
+            }
+            m = norm(dx2[x], dy2[x], l2);
+            if (m > best) {
+                best = m;
+                gx = dx2[x];
+                gy = dy2[x];
+            }
+            dx[offset + x] = (short) gx;
+            dy[offset + x] = (short) gy;
+            mag[magOffset + x] = best;
+        }
+    }
+
+    private static int norm(int gx, int gy, boolean l2) {
+        return l2 ? gx * gx + gy * gy : Math.abs(gx) + Math.abs(gy);
+    }
+
+    /** Bins one row of magnitudes the way {@link Sobel#magnitudeRow} does for {@link AutoThreshold}. */
+    private static void count(int[] mag, int offset, int width, boolean l2, int[] histogram, int shift) {
+        int last = histogram.length - 1;
+        for (int x = 0; x < width; x++) {
+            int m = mag[offset + x];
+            histogram[Math.min(last, (l2 ? (int) Math.sqrt(m) : m) >> shift)]++;
+        }
+    }
+
+    private void ensureRows(int width) {
+        if (mChannelDx[0].length < width) {
+            for (int c = 0; c < COLORS; c++) {
+                mChannelDx[c] = new short[width];
+                mChannelDy[c] = new short[width];
+            }
+        }
+    }
+}
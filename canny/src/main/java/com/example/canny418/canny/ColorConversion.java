@@ -0,0 +1,33 @@
+package com.example.canny418.canny;
+
+/**
+ * RGB(A) to gray conversion with the fixed-point weights of OpenCV's {@code COLOR_RGB2GRAY}:
+ * {@code (4899 R + 9617 G + 1868 B + 8192) >> 14}.
+ */
+public final class ColorConversion {
+    static final int R2Y = 4899;
+    static final int G2Y = 9617;
+    static final int B2Y = 1868;
+    static final int SHIFT = 14;
+
+    private ColorConversion() {
+    }
+
+    /** Converts {@code width} pixels of 1, 3 or 4 interleaved channels; gray input is copied. */
+    public static void toGray(byte[] src, int srcOffset, int channels, byte[] dst, int dstOffset, int width) {
+        if (channels == 1) {
+            System.arraycopy(src, srcOffset, dst, dstOffset, width);
+            return;
+        }
+        int round = 1 << (SHIFT - 1);
+        for (int x = 0, s = srcOffset; x < width; x++, s += channels) {
+            int y = R2Y * (src[s] & 0xFF) + G2Y * (src[s + 1] & 0xFF) + B2Y * (src[s + 2] & 0xFF);
+            dst[dstOffset + x] = (byte) ((y + round) >> SHIFT);
+        }
+    }
+
+    static void checkChannels(int channels) {
+        if (channels != 1 && channels != 3 && channels != 4)
+            throw new IllegalArgumentException("Expected 1, 3 or 4 channels, got " + channels);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.canny418.canny;
+
+/**
+ * Computes a binary edge map from an 8-bit single channel image.
+ *
+ * Implementations keep their scratch memory between calls, so a single instance should not be
+ * shared between threads.
+ */
+public interface EdgeDetector {
+    /**
+     * Detects edges in {@code src}.
+     *
+     * @param src    gray pixels, row-major, at least {@code width * height} bytes
+     * @param width  image width in pixels
+     * @param height image height in pixels
+     * @param dst    output edge map, 255 on edge pixels and 0 elsewhere; must not alias {@code src}
+     */
+    void detect(byte[] src, int width, int height, byte[] dst);
+}
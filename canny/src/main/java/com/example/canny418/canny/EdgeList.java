@@ -0,0 +1,141 @@
+package com.example.canny418.canny;
+
+import java.util.Arrays;
+
+/**
+ * Sparse Canny output: the coordinates of every edge pixel, packed as {@code (y << 16) | x}, and
+ * optionally the Sobel derivatives and gradient magnitude at each of them and a sub-pixel
+ * position refined across the edge.
+ *
+ * The arrays grow as needed and are reused across calls, so a list kept between frames stops
+ * allocating once it has seen the busiest frame. Entries come out in the order hysteresis
+ * confirms them, not in raster order.
+ */
+public final class EdgeList {
+    /** Largest image side that fits the packed coordinates. */
+    public static final int MAX_SIZE = 1 << 16;
+
+    private final boolean mGradients;
+    private final boolean mSubPixel;
+    private int mSize;
+    private int[] mPoints;
+    private short[] mDx;
+    private short[] mDy;
+    private int[] mMagnitudes;
+    private float[] mSubPixelPoints;
+
+    /** A list of coordinates only. */
+    public EdgeList() {
+        this(false, false);
+    }
+
+    /** @param withGradients also record dx, dy and magnitude for every edge pixel */
+    public EdgeList(boolean withGradients) {
+        this(withGradients, false);
+    }
+
+    /**
+     * @param withGradients also record dx, dy and magnitude for every edge pixel
+     * @param withSubPixel  also record the sub-pixel edge position, see {@link #getSubPixelPoints()}
+     */
+    public EdgeList(boolean withGradients, boolean withSubPixel) {
+        mGradients = withGradients;
+        mSubPixel = withSubPixel;
+        mPoints = new int[64];
+        if (withGradients) {
+            mDx = new short[64];
+            mDy = new short[64];
+            mMagnitudes = new int[64];
+        }
+        if (withSubPixel)
+            mSubPixelPoints = new float[2 * 64];
+    }
+
+    public boolean hasGradients() {
+        return mGradients;
+    }
+
+    public boolean hasSubPixel() {
+        return mSubPixel;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    public int getX(int i) {
+        return mPoints[i] & 0xffff;
+    }
+
+    public int getY(int i) {
+        return mPoints[i] >>> 16;
+    }
+
+    /** Packed {@code (y << 16) | x} coordinates; only the first {@link #size()} entries are valid. */
+    public int[] getPoints() {
+        return mPoints;
+    }
+
+    /** Horizontal Sobel derivative per edge, or null without gradients. */
+    public short[] getDx() {
+        return mDx;
+    }
+
+    /** Vertical Sobel derivative per edge, or null without gradients. */
+    public short[] getDy() {
+        return mDy;
+    }
+
+    /**
+     * Gradient magnitude per edge in the units the thresholds are compared in: |dx| + |dy|, or
+     * dx * dx + dy * dy with the L2 gradient. Null without gradients.
+     */
+    public int[] getMagnitudes() {
+        return mMagnitudes;
+    }
+
+    /**
+     * Sub-pixel edge positions as interleaved x, y pairs, or null without sub-pixel output. A
+     * parabola is fitted to the gradient magnitude of each edge pixel and its two neighbours along
+     * the quantised gradient direction, and the pixel is moved to the peak, at most half a pixel.
+     * Pixel centres sit at integer coordinates.
+     */
+    public float[] getSubPixelPoints() {
+        return mSubPixelPoints;
+    }
+
+    /** Appends the pixel at padded map index {@code p} of a map {@code width} pixels wide. */
+    void add(int p, int width, short[] dx, short[] dy, int[] mag, boolean l2) {
+        if (mSize == mPoints.length)
+            grow();
+        int step = width + 2;
+        int y = p / step - 1;
+        int x = p - (y + 1) * step - 1;
+        mPoints[mSize] = (y << 16) | x;
+        if (mGradients) {
+            int i = y * width + x;
+            mDx[mSize] = dx[i];
+            mDy[mSize] = dy[i];
+            mMagnitudes[mSize] = mag[p];
+        }
+        if (mSubPixel)
+            NonMaxSuppression.locate(dx, dy, y * width + x, mag, p, step, x, y, l2, mSubPixelPoints, 2 * mSize);
+        mSize++;
+    }
+
+    private void grow() {
+        int capacity = mPoints.length * 2;
+        mPoints = Arrays.copyOf(mPoints, capacity);
+        if (mGradients) {
+            mDx = Arrays.copyOf(mDx, capacity);
+            mDy = Arrays.copyOf(mDy, capacity);
+            mMagnitudes = Arrays.copyOf(mMagnitudes, capacity);
+        }
+        if (mSubPixel)
+            mSubPixelPoints = Arrays.copyOf(mSubPixelPoints, 2 * capacity);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.canny418.canny;
+
+/**
+ * Agreement between a candidate edge map and reference edges, e.g. a new backend against
+ * {@code Imgproc.Canny}. Any non-zero byte counts as an edge.
+ *
+ * Precision and recall count an edge pixel as matched when the other map has an edge within
+ * {@code matchRadius} pixels, so a radius of 0 asks for exact positions. Pratt's figure of merit
+ * scores every candidate pixel by {@code 1 / (1 + alpha * d * d)}, where {@code d} is its distance
+ * to the nearest reference edge, and divides the sum by the larger of the two edge counts.
+ * Distances are exact Euclidean ones from a two pass distance transform.
+ */
+public final class EdgeQuality {
+    /** The usual scaling constant of Pratt's figure of merit. */
+    public static final double PRATT_ALPHA = 1.0 / 9;
+
+    private final long mPixels;
+    private final long mMismatched;
+    private final long mReferenceEdges;
+    private final long mCandidateEdges;
+    private final long mMatchedCandidate;
+    private final long mMatchedReference;
+    private final double mFigureOfMerit;
+
+    private EdgeQuality(long pixels, long mismatched, long referenceEdges, long candidateEdges,
+                        long matchedCandidate, long matchedReference, double figureOfMerit) {
+        mPixels = pixels;
+        mMismatched = mismatched;
+        mReferenceEdges = referenceEdges;
+        mCandidateEdges = candidateEdges;
+        mMatchedCandidate = matchedCandidate;
+        mMatchedReference = matchedReference;
+        mFigureOfMerit = figureOfMerit;
+    }
+
+    public static EdgeQuality compare(byte[] reference, byte[] candidate, int width, int height, double matchRadius) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        int size = width * height;
+        if (reference.length < size || candidate.length < size)
+            throw new IllegalArgumentException("Buffers too small for a " + width + "x" + height + " image");
+        if (matchRadius < 0)
+            throw new IllegalArgumentException("Invalid match radius " + matchRadius);
+
+        long mismatched = 0, referenceEdges = 0, candidateEdges = 0;
+        for (int i = 0; i < size; i++) {
+            boolean r = reference[i] != 0;
+            boolean c = candidate[i] != 0;
+            if (r)
+                referenceEdges++;
+            if (c)
+                candidateEdges++;
+            if (r != c)
+                mismatched++;
+        }
+        if (mismatched == 0)
+            return new EdgeQuality(size, 0, referenceEdges, candidateEdges, candidateEdges, referenceEdges, 1.0);
+
+        double r2 = matchRadius * matchRadius;
+        float[] dist = new float[size];
+        int span = Math.max(width, height);
+        float[] column = new float[span];
+        int[] hull = new int[span];
+        double[] bounds = new double[span];
+
+        squaredDistances(reference, width, height, dist, column, hull, bounds);
+        long matchedCandidate = 0;
+        double merit = 0;
+        for (int i = 0; i < size; i++) {
+            if (candidate[i] == 0)
+                continue;
+            float d2 = dist[i];
+            if (d2 <= r2)
+                matchedCandidate++;
+            merit += 1.0 / (1.0 + PRATT_ALPHA * d2);
+        }
+
+        squaredDistances(candidate, width, height, dist, column, hull, bounds);
+        long matchedReference = 0;
+        for (int i = 0; i < size; i++) {
+            if (reference[i] != 0 && dist[i] <= r2)
+                matchedReference++;
+        }
+
+        double fom = merit / Math.max(referenceEdges, candidateEdges);
+        return new EdgeQuality(size, mismatched, referenceEdges, candidateEdges,
+                matchedCandidate, matchedReference, fom);
+    }
+
+    /**
+     * Squared distance from every pixel to the nearest edge of {@code edges}, infinite when there
+     * is none: a vertical scan per column followed by the lower envelope of parabolas per row.
+     */
+    static void squaredDistances(byte[] edges, int width, int height, float[] dist,
+                                 float[] column, int[] hull, double[] bounds) {
+        for (int x = 0; x < width; x++) {
+            int last = -1;
+            for (int y = 0; y < height; y++) {
+                if (edges[y * width + x] != 0)
+                    last = y;
+                column[y] = last < 0 ? Float.POSITIVE_INFINITY : y - last;
+            }
+            last = -1;
+            for (int y = height - 1; y >= 0; y--) {
+                if (edges[y * width + x] != 0)
+                    last = y;
+                float d = last < 0 ? Float.POSITIVE_INFINITY : last - y;
+                if (d < column[y])
+                    column[y] = d;
+                dist[y * width + x] = column[y] * column[y];
+            }
+        }
+
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            // Lower envelope of the parabolas (x - q)^2 + f(q) over the columns with an edge
+            int k = -1;
+            for (int q = 0; q < width; q++) {
+                float fq = dist[row + q];
+                if (fq == Float.POSITIVE_INFINITY)
+                    continue;
+                double s = Double.NEGATIVE_INFINITY;
+                while (k >= 0) {
+                    int v = hull[k];
+                    s = ((fq + (double) q * q) - (dist[row + v] + (double) v * v)) / (2.0 * (q - v));
+                    if (s > bounds[k])
+                        break;
+                    k--;
+                }
+                k++;
+                hull[k] = q;
+                bounds[k] = k == 0 ? Double.NEGATIVE_INFINITY : s;
+            }
+            if (k < 0)
+                continue;
+            // The envelope reads from the row while it is overwritten, so keep the hull values
+            for (int i = 0; i <= k; i++)
+                column[i] = dist[row + hull[i]];
+            int j = 0;
+            for (int x = 0; x < width; x++) {
+                while (j < k && bounds[j + 1] < x)
+                    j++;
+                int dx = x - hull[j];
+                dist[row + x] = dx * dx + column[j];
+            }
+        }
+    }
+
+    public long getPixels() {
+        return mPixels;
+    }
+
+    /** Pixels where exactly one of the two maps has an edge. */
+    public long getMismatchedPixels() {
+        return mMismatched;
+    }
+
+    /** Share of all pixels on which both maps agree. */
+    public double getPixelAgreement() {
+        return 1.0 - (double) mMismatched / mPixels;
+    }
+
+    public long getReferenceEdges() {
+        return mReferenceEdges;
+    }
+
+    public long getCandidateEdges() {
+        return mCandidateEdges;
+    }
+
+    /** Share of candidate edges with a reference edge in range; 1 when there are no candidate edges. */
+    public double getPrecision() {
+        return mCandidateEdges == 0 ? 1.0 : (double) mMatchedCandidate / mCandidateEdges;
+    }
+
+    /** Share of reference edges with a candidate edge in range; 1 when there are no reference edges. */
+    public double getRecall() {
+        return mReferenceEdges == 0 ? 1.0 : (double) mMatchedReference / mReferenceEdges;
+    }
+
+    public double getFMeasure() {
+        double p = getPrecision();
+        double r = getRecall();
+        return p + r == 0 ? 0 : 2 * p * r / (p + r);
+    }
+
+    /** Pratt's figure of merit in [0, 1]; 1 for identical maps, including two empty ones. */
+    public double getFigureOfMerit() {
+        return mFigureOfMerit;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("agreement %.5f  precision %.4f  recall %.4f  F %.4f  FOM %.4f",
+                getPixelAgreement(), getPrecision(), getRecall(), getFMeasure(), getFigureOfMerit());
+    }
+}
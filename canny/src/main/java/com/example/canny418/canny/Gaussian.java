@@ -0,0 +1,123 @@
+package com.example.canny418.canny;
+
+/**
+ * Separable integer Gaussian blur on 8-bit gray images.
+ *
+ * Uses the binomial kernels OpenCV picks for {@code sigma = 0} ([1 2 1]/4 and [1 4 6 4 1]/16, the
+ * same weights as the {@code gaussblur55_f} shader) with {@code BORDER_REFLECT_101}.
+ */
+public final class Gaussian {
+    private static final int[] KERNEL_3 = {1, 2, 1};
+    private static final int[] KERNEL_5 = {1, 4, 6, 4, 1};
+
+    private Gaussian() {
+    }
+
+    public static boolean isSupported(int ksize) {
+        return ksize == 3 || ksize == 5;
+    }
+
+    /**
+     * Blurs {@code src} into {@code dst}.
+     *
+     * @param rowBuf scratch row of at least {@code width + ksize - 1} ints
+     */
+    public static void blur(byte[] src, int width, int height, int ksize, byte[] dst, int[] rowBuf) {
+        blurRect(src, width, height, ksize, 0, 0, width, height, dst, width, rowBuf);
+    }
+
+    /**
+     * Blurs the rectangle [x0, x1) x [y0, y1) of {@code src}, reflecting at the image border.
+     * Pixel (x, y) is written to {@code dst[(y - y0) * dstStride + (x - x0)]}.
+     */
+    static void blurRect(byte[] src, int width, int height, int ksize,
+                         int x0, int y0, int x1, int y1, byte[] dst, int dstStride, int[] rowBuf) {
+        for (int y = y0; y < y1; y++)
+            blurRow(src, width, height, height, ksize, y, x0, x1, dst, (y - y0) * dstStride, rowBuf);
+    }
+
+    /**
+     * Blurs columns [x0, x1) of row {@code y} into {@code dst} at {@code dstOffset}. Source row
+     * {@code r} is read from {@code (r % ringRows) * width}, so {@code src} may be a ring buffer;
+     * pass {@code ringRows = height} for a full image.
+     */
+    static void blurRow(byte[] src, int width, int height, int ringRows, int ksize, int y,
+                        int x0, int x1, byte[] dst, int dstOffset, int[] rowBuf) {
+        int[] k = kernel(ksize);
+        int r = ksize >> 1;
+        int shift = ksize == 3 ? 4 : 8;
+        int round = 1 << (shift - 1);
+        int n = x1 - x0;
+
+        // vertical pass into the padded row buffer
+        for (int j = 0; j < n + 2 * r; j++)
+            rowBuf[j] = 0;
+        for (int i = 0; i < ksize; i++) {
+            int o = (reflect101(y + i - r, height) % ringRows) * width;
+            int ki = k[i];
+            for (int j = 0; j < n + 2 * r; j++)
+                rowBuf[j] += ki * (src[o + reflect101(x0 - r + j, width)] & 0xFF);
+        }
+
+        // horizontal pass
+        if (ksize == 3) {
+            for (int x = 0; x < n; x++)
+                dst[dstOffset + x] = (byte) ((rowBuf[x] + 2 * rowBuf[x + 1] + rowBuf[x + 2] + round) >> shift);
+        } else {
+            for (int x = 0; x < n; x++) {
+                int sum = rowBuf[x] + rowBuf[x + 4] + 4 * (rowBuf[x + 1] + rowBuf[x + 3]) + 6 * rowBuf[x + 2];
+                dst[dstOffset + x] = (byte) ((sum + round) >> shift);
+            }
+        }
+    }
+
+    /**
+     * Halves {@code src} like {@code Imgproc.pyrDown}: [1 4 6 4 1] smoothing in both directions,
+     * then every second pixel. {@code dst} is {@code (width + 1) / 2 x (height + 1) / 2}.
+     *
+     * @param rowBuf scratch row of at least {@code width + 4} ints
+     */
+    public static void pyrDown(byte[] src, int width, int height, byte[] dst, int[] rowBuf) {
+        int dw = (width + 1) / 2;
+        int dh = (height + 1) / 2;
+        for (int y = 0; y < dh; y++) {
+            int o0 = reflect101(2 * y - 2, height) * width;
+            int o1 = reflect101(2 * y - 1, height) * width;
+            int o2 = reflect101(2 * y, height) * width;
+            int o3 = reflect101(2 * y + 1, height) * width;
+            int o4 = reflect101(2 * y + 2, height) * width;
+            for (int j = 0; j < width + 4; j++) {
+                int x = reflect101(j - 2, width);
+                rowBuf[j] = (src[o0 + x] & 0xFF) + (src[o4 + x] & 0xFF)
+                        + 4 * ((src[o1 + x] & 0xFF) + (src[o3 + x] & 0xFF)) + 6 * (src[o2 + x] & 0xFF);
+            }
+            int o = y * dw;
+            for (int x = 0; x < dw; x++) {
+                int j = 2 * x;
+                int sum = rowBuf[j] + rowBuf[j + 4] + 4 * (rowBuf[j + 1] + rowBuf[j + 3]) + 6 * rowBuf[j + 2];
+                dst[o + x] = (byte) ((sum + 128) >> 8);
+            }
+        }
+    }
+
+    static int[] kernel(int ksize) {
+        if (ksize == 3)
+            return KERNEL_3;
+        if (ksize == 5)
+            return KERNEL_5;
+        throw new IllegalArgumentException("Gaussian kernel size must be 3 or 5, got " + ksize);
+    }
+
+    /** gfedcb|abcdefgh|gfedcba */
+    static int reflect101(int i, int n) {
+        if (n == 1)
+            return 0;
+        while (i < 0 || i >= n) {
+            if (i < 0)
+                i = -i;
+            else
+                i = 2 * n - 2 - i;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.canny418.canny;
+
+/**
+ * Integer-only gradient kernels: Sobel derivatives into shorts, L1 or integer square root L2
+ * magnitude, and the gradient octant from sign and tangent comparisons.
+ *
+ * {@link #scalar()} works everywhere. {@link #best()} returns an implementation on the
+ * {@code jdk.incubator.vector} API when its classes are on the classpath and the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and the scalar one otherwise. Every implementation
+ * produces identical results.
+ */
+public abstract class GradientKernels {
+    private static final String VECTOR_CLASS = "com.example.canny418.canny.VectorGradientKernels";
+
+    private static final GradientKernels SCALAR = new ScalarGradientKernels();
+    private static GradientKernels sBest;
+
+    public static GradientKernels scalar() {
+        return SCALAR;
+    }
+
+    /** The fastest implementation available in this runtime, looked up once. */
+    public static synchronized GradientKernels best() {
+        if (sBest == null) {
+            try {
+                sBest = (GradientKernels) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                sBest = SCALAR;
+            }
+        }
+        return sBest;
+    }
+
+    public abstract String getName();
+
+    /**
+     * Sobel derivatives with replicated borders, identical to {@link Sobel#gradient}. Apertures 3
+     * and 5 run the integer kernels; 7 falls back to {@link Sobel}, which is the only user of the
+     * scratch rows. Implementations keep no state, so one instance can serve several threads.
+     *
+     * @param smoothRow scratch row of at least {@code width + apertureSize - 1} ints
+     * @param derivRow  scratch row of at least {@code width + apertureSize - 1} ints
+     */
+    public abstract void sobel(byte[] src, int width, int height, int apertureSize, short[] dx, short[] dy,
+                               int[] smoothRow, int[] derivRow);
+
+    /** {@code mag[i] = |dx[i]| + |dy[i]|} for {@code count} pixels. */
+    public abstract void magnitudeL1(short[] dx, short[] dy, int offset, int count, int[] mag, int magOffset);
+
+    /**
+     * {@code mag[i] = floor(sqrt(dx[i]^2 + dy[i]^2))} for {@code count} pixels, with -32768
+     * read as -32767 so the sum of squares fits in an int.
+     */
+    public abstract void magnitudeL2(short[] dx, short[] dy, int offset, int count, int[] mag, int magOffset);
+
+    /**
+     * Gradient direction quantised to the nearest multiple of 45 degrees, 0 to 7 counting from +x
+     * towards +y (down the image). Sectors are split with the tan(22.5) and tan(67.5) comparisons
+     * of {@link NonMaxSuppression}, so {@code octant & 3} is the direction it compares along:
+     * 0 horizontal, 1 diagonal with equal signs, 2 vertical, 3 diagonal with opposite signs.
+     */
+    public abstract void octants(short[] dx, short[] dy, int offset, int count, byte[] dir, int dirOffset);
+
+    /**
+     * The 2-bit direction {@link NonMaxSuppression#suppressSectors} compares along, equal to
+     * {@code octant & 3}: 0 horizontal, 1 diagonal with equal signs, 2 vertical, 3 diagonal with
+     * opposite signs.
+     */
+    public abstract void sectors(short[] dx, short[] dy, int offset, int count, byte[] sector, int sectorOffset);
+
+    /** Sector of a single gradient, see {@link #sectors}. */
+    static int sector(int gx, int gy) {
+        int ax = Math.min(Math.abs(gx), Short.MAX_VALUE);
+        int ay = Math.abs(gy) << 15;
+        int tg22x = ax * NonMaxSuppression.TG22;
+        if (ay < tg22x)
+            return 0;
+        if (ay - tg22x > ax << 16)
+            return 2;
+        return (gx ^ gy) >= 0 ? 1 : 3;
+    }
+
+    /** Octant of a single gradient, see {@link #octants}. */
+    static int octant(int gx, int gy) {
+        // Clamp so ax << 16 cannot overflow; the vertical test is false from there anyway
+        int ax = Math.min(Math.abs(gx), Short.MAX_VALUE);
+        int ay = Math.abs(gy) << 15;
+        int tg22x = ax * NonMaxSuppression.TG22;
+        if (ay < tg22x)
+            return gx >= 0 ? 0 : 4;
+        if (ay - tg22x > ax << 16)
+            return gy > 0 ? 2 : 6;
+        if ((gx ^ gy) >= 0)
+            return gx + gy >= 0 ? 1 : 5;
+        return gy > 0 ? 3 : 7;
+    }
+
+    static void checkKernelAperture(int apertureSize) {
+        Sobel.checkAperture(apertureSize);
+    }
+}
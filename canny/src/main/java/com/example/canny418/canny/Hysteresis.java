@@ -0,0 +1,130 @@
+package com.example.canny418.canny;
+
+import java.util.Arrays;
+
+/**
+ * Hysteresis edge tracking over a padded edge map: every {@link #WEAK} pixel 8-connected to a
+ * {@link #STRONG} one is promoted to {@link #STRONG}. This is the stack based flood fill used by
+ * OpenCV's {@code Canny}.
+ */
+public final class Hysteresis {
+    /** NMS survivor between the thresholds; becomes an edge only if connected to a strong pixel. */
+    public static final byte WEAK = 0;
+    /** Not an edge. Also used for the one pixel border around the map. */
+    public static final byte NONE = 1;
+    /** Confirmed edge. */
+    public static final byte STRONG = 2;
+
+    private Hysteresis() {
+    }
+
+    /**
+     * Floods from the {@code top} map indices on {@code stack}. The stack must be able to hold one
+     * entry per pixel of the map, since each pixel is pushed at most once.
+     */
+    public static void trace(byte[] map, int mapStep, int[] stack, int top) {
+        traceGrowable(map, mapStep, stack, top);
+    }
+
+    /**
+     * Like {@link #trace}, but doubles the stack whenever it could overflow, so it can start small.
+     *
+     * @return the stack in use at the end, to be kept for the next call
+     */
+    static int[] traceGrowable(byte[] map, int mapStep, int[] stack, int top) {
+        while (top > 0) {
+            if (stack.length - top < 8)
+                stack = Arrays.copyOf(stack, Math.max(16, stack.length * 2));
+            int i = stack[--top];
+            int a = i - mapStep;
+            int b = i + mapStep;
+            if (map[a - 1] == WEAK) { map[a - 1] = STRONG; stack[top++] = a - 1; }
+            if (map[a] == WEAK)     { map[a] = STRONG;     stack[top++] = a; }
+            if (map[a + 1] == WEAK) { map[a + 1] = STRONG; stack[top++] = a + 1; }
+            if (map[i - 1] == WEAK) { map[i - 1] = STRONG; stack[top++] = i - 1; }
+            if (map[i + 1] == WEAK) { map[i + 1] = STRONG; stack[top++] = i + 1; }
+            if (map[b - 1] == WEAK) { map[b - 1] = STRONG; stack[top++] = b - 1; }
+            if (map[b] == WEAK)     { map[b] = STRONG;     stack[top++] = b; }
+            if (map[b + 1] == WEAK) { map[b + 1] = STRONG; stack[top++] = b + 1; }
+        }
+        return stack;
+    }
+
+    /**
+     * Like {@link #traceGrowable}, but also appends every pixel to {@code list} as it leaves the
+     * stack. Each edge pixel is on the stack exactly once, the strong seeds included, so the list
+     * ends up holding every edge without a scan of the map. {@code dx}, {@code dy} and the padded
+     * {@code mag} are only read if the list records gradients or sub-pixel positions.
+     */
+    static int[] traceToList(byte[] map, int width, int[] stack, int top, EdgeList list,
+                             short[] dx, short[] dy, int[] mag, boolean l2) {
+        int mapStep = width + 2;
+        while (top > 0) {
+            if (stack.length - top < 8)
+                stack = Arrays.copyOf(stack, Math.max(16, stack.length * 2));
+            int i = stack[--top];
+            list.add(i, width, dx, dy, mag, l2);
+            int a = i - mapStep;
+            int b = i + mapStep;
+            if (map[a - 1] == WEAK) { map[a - 1] = STRONG; stack[top++] = a - 1; }
+            if (map[a] == WEAK)     { map[a] = STRONG;     stack[top++] = a; }
+            if (map[a + 1] == WEAK) { map[a + 1] = STRONG; stack[top++] = a + 1; }
+            if (map[i - 1] == WEAK) { map[i - 1] = STRONG; stack[top++] = i - 1; }
+            if (map[i + 1] == WEAK) { map[i + 1] = STRONG; stack[top++] = i + 1; }
+            if (map[b - 1] == WEAK) { map[b - 1] = STRONG; stack[top++] = b - 1; }
+            if (map[b] == WEAK)     { map[b] = STRONG;     stack[top++] = b; }
+            if (map[b + 1] == WEAK) { map[b + 1] = STRONG; stack[top++] = b + 1; }
+        }
+        return stack;
+    }
+
+    /** Appends every {@link #STRONG} pixel of a traced padded map to {@code list}, in raster order. */
+    static void collect(byte[] map, int width, int height, EdgeList list,
+                        short[] dx, short[] dy, int[] mag, boolean l2) {
+        int step = width + 2;
+        for (int y = 0; y < height; y++) {
+            int m = (y + 1) * step + 1;
+            for (int x = 0; x < width; x++)
+                if (map[m + x] == STRONG)
+                    list.add(m + x, width, dx, dy, mag, l2);
+        }
+    }
+
+    /** Writes 255 for every {@link #STRONG} pixel of the padded map and 0 elsewhere. */
+    public static void toEdges(byte[] map, int width, int height, byte[] dst) {
+        int step = width + 2;
+        for (int y = 0; y < height; y++) {
+            int m = (y + 1) * step + 1;
+            int o = y * width;
+            for (int x = 0; x < width; x++)
+                dst[o + x] = map[m + x] == STRONG ? (byte) 255 : 0;
+        }
+    }
+
+    /** Number of {@link #STRONG} pixels in a padded map. */
+    public static int countEdges(byte[] map, int width, int height) {
+        int step = width + 2;
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            int m = (y + 1) * step + 1;
+            for (int x = 0; x < width; x++)
+                if (map[m + x] == STRONG)
+                    count++;
+        }
+        return count;
+    }
+
+    /** Sets the one pixel border of a padded {@code (width + 2) x (height + 2)} map to {@link #NONE}. */
+    static void clearBorder(byte[] map, int width, int height) {
+        int step = width + 2;
+        int last = (height + 1) * step;
+        for (int x = 0; x < step; x++) {
+            map[x] = NONE;
+            map[last + x] = NONE;
+        }
+        for (int y = 1; y <= height; y++) {
+            map[y * step] = NONE;
+            map[y * step + width + 1] = NONE;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.canny418.canny;
+
+import java.util.Arrays;
+
+/**
+ * Canny edge detector for mostly static scenes that only recomputes what changed since the
+ * previous frame.
+ *
+ * The new frame is compared with the previous one in square blocks. Dirty blocks and their
+ * neighbours, which cover the blur, Sobel and NMS halo, are run through blur, Sobel and NMS again;
+ * everything else keeps last frame's NMS classification. Hysteresis is then redone only for the
+ * edge components that touched the recomputed blocks before or touch them now. The output always
+ * equals a full recompute; parameter or size changes fall back to one, and so does every frame
+ * while an {@link AutoThreshold} is set since its histogram needs the whole gradient. Hysteresis
+ * always uses the stack flood, never the {@link UnionFindHysteresis}.
+ */
+public class IncrementalCannyEdgeDetector extends CannyEdgeDetector {
+    public static final int DEFAULT_BLOCK_SIZE = 32;
+
+    /** Marks pixels collected by the reset flood; never left in the map after a call. */
+    private static final byte VISITED = 3;
+
+    private int mBlockSize = DEFAULT_BLOCK_SIZE;
+
+    private final CannyWorkspace mWorkspace = new CannyWorkspace();
+    private byte[] mPrevious = new byte[0];
+    /** NMS classification before hysteresis, padded. */
+    private byte[] mNms = new byte[0];
+    /** Classification after hysteresis, padded; the output of the previous call. */
+    private byte[] mMap = new byte[0];
+    private int[] mStack = new int[0];
+    private int[] mReset = new int[0];
+    private boolean[] mDirty = new boolean[0];
+    private boolean[] mRecompute = new boolean[0];
+
+    // State of the previous frame
+    private boolean mValid;
+    private int mWidth;
+    private int mHeight;
+    private int mLow;
+    private int mHigh;
+    private int mLastAperture;
+    private int mLastBlur;
+    private boolean mLastL2;
+
+    private int mBlocksX;
+    private int mBlocksY;
+    private int mDirtyBlocks;
+    private int mRecomputedBlocks;
+
+    public IncrementalCannyEdgeDetector(double threshold1, double threshold2) {
+        super(threshold1, threshold2);
+    }
+
+    public IncrementalCannyEdgeDetector(double threshold1, double threshold2, int apertureSize, boolean L2gradient) {
+        super(threshold1, threshold2, apertureSize, L2gradient);
+    }
+
+    /** Side of the square blocks frames are compared in; must be at least 8. Forces a full recompute. */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 8)
+            throw new IllegalArgumentException("Block size must be at least 8, got " + blockSize);
+        mBlockSize = blockSize;
+        mValid = false;
+    }
+
+    public int getBlockSize() {
+        return mBlockSize;
+    }
+
+    /** Drops the previous frame so the next call recomputes everything. */
+    public void reset() {
+        mValid = false;
+    }
+
+    /** Fraction of blocks that differed from the previous frame in the last call, 1 after a full recompute. */
+    public double getDirtyBlockRatio() {
+        return mBlocksX * mBlocksY == 0 ? 0 : (double) mDirtyBlocks / (mBlocksX * mBlocksY);
+    }
+
+    /** Fraction of blocks run through blur, Sobel and NMS in the last call: the dirty ones plus their halo. */
+    public double getRecomputedBlockRatio() {
+        return mBlocksX * mBlocksY == 0 ? 0 : (double) mRecomputedBlocks / (mBlocksX * mBlocksY);
+    }
+
+    @Override
+    public void detect(byte[] src, int width, int height, byte[] dst) {
+        if (getAutoThreshold() != null) {
+            mValid = false;
+            super.detect(src, width, height, dst);
+            return;
+        }
+        checkImage(src, width, height, dst);
+        int aperture = getApertureSize();
+        int blur = getBlurSize();
+        boolean l2 = isL2Gradient();
+        int low = lowThreshold(getThreshold1(), getThreshold2(), aperture, l2);
+        int high = highThreshold(getThreshold1(), getThreshold2(), aperture, l2);
+        boolean full = !mValid || width != mWidth || height != mHeight || low != mLow || high != mHigh
+                || aperture != mLastAperture || blur != mLastBlur || l2 != mLastL2;
+
+        int block = mBlockSize;
+        if (full) {
+            ensure(width, height);
+            Arrays.fill(mNms, 0, (width + 2) * (height + 2), Hysteresis.NONE);
+            Arrays.fill(mMap, 0, (width + 2) * (height + 2), Hysteresis.NONE);
+            Arrays.fill(mDirty, 0, mBlocksX * mBlocksY, true);
+            mDirtyBlocks = mBlocksX * mBlocksY;
+        } else {
+            mDirtyBlocks = diffBlocks(src);
+        }
+        mWidth = width;
+        mHeight = height;
+        mLow = low;
+        mHigh = high;
+        mLastAperture = aperture;
+        mLastBlur = blur;
+        mLastL2 = l2;
+        mValid = true;
+
+        markRecompute(((blur >> 1) + (aperture >> 1) + 1 + block - 1) / block);
+        if (mRecomputedBlocks > 0)
+            update(src);
+
+        Hysteresis.toEdges(mMap, width, height, dst);
+        copyDirty(src);
+    }
+
+    private void update(byte[] src) {
+        int width = mWidth;
+        int height = mHeight;
+        int step = width + 2;
+        int block = mBlockSize;
+
+        // 1. Collect every old edge component that touches a recomputed block
+        int resetCount = 0;
+        int top = 0;
+        for (int by = 0; by < mBlocksY; by++) {
+            for (int bx = 0; bx < mBlocksX; bx++) {
+                if (!mRecompute[by * mBlocksX + bx])
+                    continue;
+                int x0 = bx * block, x1 = Math.min(width, x0 + block);
+                int y0 = by * block, y1 = Math.min(height, y0 + block);
+                for (int y = y0; y < y1; y++) {
+                    int row = (y + 1) * step + 1;
+                    for (int x = x0; x < x1; x++) {
+                        int p = row + x;
+                        byte v = mMap[p];
+                        if (v != Hysteresis.WEAK && v != Hysteresis.STRONG)
+                            continue;
+                        mMap[p] = VISITED;
+                        resetCount = pushReset(p, resetCount);
+                        top = pushStack(p, top);
+                        while (top > 0) {
+                            int i = mStack[--top];
+                            for (int dy = -step; dy <= step; dy += step) {
+                                for (int dx = -1; dx <= 1; dx++) {
+                                    int q = i + dy + dx;
+                                    byte w = mMap[q];
+                                    if (w == Hysteresis.WEAK || w == Hysteresis.STRONG) {
+                                        mMap[q] = VISITED;
+                                        resetCount = pushReset(q, resetCount);
+                                        top = pushStack(q, top);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // 2. Recompute the NMS classification of the recomputed blocks
+        CannyWorkspace ws = mWorkspace;
+        CannyRegion.ensure(ws, block, block, mLastAperture);
+        if (mStack.length < block * block)
+            mStack = new int[block * block];
+        for (int by = 0; by < mBlocksY; by++) {
+            for (int bx = 0; bx < mBlocksX; bx++) {
+                if (!mRecompute[by * mBlocksX + bx])
+                    continue;
+                int x0 = bx * block, x1 = Math.min(width, x0 + block);
+                int y0 = by * block, y1 = Math.min(height, y0 + block);
+                CannyRegion.suppress(src, width, height, mLastBlur, mLastAperture, mLastL2, mLow, mHigh,
+                        x0, y0, x1, y1, ws, mNms, (y0 + 1) * step + 1 + x0, step, mStack, 0);
+            }
+        }
+
+        // 3. Restore the pre-hysteresis state of everything that was reset or recomputed, and
+        //    seed the flood with its strong pixels plus confirmed edges bordering the blocks
+        top = 0;
+        for (int k = 0; k < resetCount; k++) {
+            int p = mReset[k];
+            mMap[p] = mNms[p];
+            if (mNms[p] == Hysteresis.STRONG)
+                top = pushStack(p, top);
+        }
+        for (int by = 0; by < mBlocksY; by++) {
+            for (int bx = 0; bx < mBlocksX; bx++) {
+                if (!mRecompute[by * mBlocksX + bx])
+                    continue;
+                int x0 = bx * block, x1 = Math.min(width, x0 + block);
+                int y0 = by * block, y1 = Math.min(height, y0 + block);
+                for (int y = y0; y < y1; y++) {
+                    int row = (y + 1) * step + 1;
+                    for (int x = x0; x < x1; x++) {
+                        int p = row + x;
+                        mMap[p] = mNms[p];
+                        if (mNms[p] == Hysteresis.STRONG)
+                            top = pushStack(p, top);
+                    }
+                }
+                top = seedRing(x0, y0, x1, y1, top);
+            }
+        }
+
+        // 4. Hysteresis over the affected components only
+        mStack = Hysteresis.traceGrowable(mMap, step, mStack, top);
+    }
+
+    /** Pushes confirmed edges in the one pixel ring around a block; the padding border is never strong. */
+    private int seedRing(int x0, int y0, int x1, int y1, int top) {
+        int step = mWidth + 2;
+        for (int x = x0 - 1; x <= x1; x++) {
+            int a = y0 * step + 1 + x;
+            int b = (y1 + 1) * step + 1 + x;
+            if (mMap[a] == Hysteresis.STRONG)
+                top = pushStack(a, top);
+            if (mMap[b] == Hysteresis.STRONG)
+                top = pushStack(b, top);
+        }
+        for (int y = y0; y < y1; y++) {
+            int l = (y + 1) * step + x0;
+            int r = (y + 1) * step + x1 + 1;
+            if (mMap[l] == Hysteresis.STRONG)
+                top = pushStack(l, top);
+            if (mMap[r] == Hysteresis.STRONG)
+                top = pushStack(r, top);
+        }
+        return top;
+    }
+
+    /** Marks blocks that differ from the previous frame and returns how many do. */
+    private int diffBlocks(byte[] src) {
+        int width = mWidth;
+        int block = mBlockSize;
+        Arrays.fill(mDirty, 0, mBlocksX * mBlocksY, false);
+        int dirty = 0;
+        for (int y = 0; y < mHeight; y++) {
+            int rowBlock = (y / block) * mBlocksX;
+            int o = y * width;
+            for (int bx = 0; bx < mBlocksX; bx++) {
+                if (mDirty[rowBlock + bx])
+                    continue;
+                int x1 = Math.min(width, (bx + 1) * block);
+                for (int x = bx * block; x < x1; x++) {
+                    if (src[o + x] != mPrevious[o + x]) {
+                        mDirty[rowBlock + bx] = true;
+                        dirty++;
+                        break;
+                    }
+                }
+            }
+        }
+        return dirty;
+    }
+
+    /** Dilates the dirty blocks by {@code halo} blocks into the recompute mask. */
+    private void markRecompute(int halo) {
+        int count = 0;
+        for (int by = 0; by < mBlocksY; by++) {
+            for (int bx = 0; bx < mBlocksX; bx++) {
+                boolean any = false;
+                for (int y = Math.max(0, by - halo); y <= Math.min(mBlocksY - 1, by + halo) && !any; y++)
+                    for (int x = Math.max(0, bx - halo); x <= Math.min(mBlocksX - 1, bx + halo) && !any; x++)
+                        any = mDirty[y * mBlocksX + x];
+                mRecompute[by * mBlocksX + bx] = any;
+                if (any)
+                    count++;
+            }
+        }
+        mRecomputedBlocks = count;
+    }
+
+    private void copyDirty(byte[] src) {
+        int width = mWidth;
+        int block = mBlockSize;
+        if (mDirtyBlocks == mBlocksX * mBlocksY) {
+            System.arraycopy(src, 0, mPrevious, 0, width * mHeight);
+            return;
+        }
+        for (int y = 0; y < mHeight; y++) {
+            int rowBlock = (y / block) * mBlocksX;
+            for (int bx = 0; bx < mBlocksX; bx++) {
+                if (mDirty[rowBlock + bx]) {
+                    int x0 = bx * block;
+                    System.arraycopy(src, y * width + x0, mPrevious, y * width + x0, Math.min(width, x0 + block) - x0);
+                }
+            }
+        }
+    }
+
+    private int pushStack(int p, int top) {
+        if (top == mStack.length)
+            mStack = Arrays.copyOf(mStack, Math.max(16, mStack.length * 2));
+        mStack[top] = p;
+        return top + 1;
+    }
+
+    private int pushReset(int p, int count) {
+        if (count == mReset.length)
+            mReset = Arrays.copyOf(mReset, Math.max(16, mReset.length * 2));
+        mReset[count] = p;
+        return count + 1;
+    }
+
+    private void ensure(int width, int height) {
+        int pixels = width * height;
+        int padded = (width + 2) * (height + 2);
+        if (mPrevious.length < pixels)
+            mPrevious = new byte[pixels];
+        if (mNms.length < padded) {
+            mNms = new byte[padded];
+            mMap = new byte[padded];
+        }
+        mBlocksX = (width + mBlockSize - 1) / mBlockSize;
+        mBlocksY = (height + mBlockSize - 1) / mBlockSize;
+        if (mDirty.length < mBlocksX * mBlocksY) {
+            mDirty = new boolean[mBlocksX * mBlocksY];
+            mRecompute = new boolean[mBlocksX * mBlocksY];
+        }
+    }
+}
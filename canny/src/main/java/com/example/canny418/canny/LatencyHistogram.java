@@ -0,0 +1,122 @@
+package com.example.canny418.canny;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds with logarithmic buckets: exact below 16 ns,
+ * then eight buckets per power of two, so any recorded value is reported within 12.5%.
+ *
+ * {@link #record} is a handful of atomic increments and never allocates or blocks, so it can sit
+ * on a camera or render thread. A reader takes {@link #snapshotAndReset()} periodically; values
+ * recorded while the snapshot is taken land in either that window or the next one.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR = 2 * SUB_COUNT;
+    /** Linear buckets, then one group of sub-buckets for every exponent from 4 to 62. */
+    static final int BUCKETS = LINEAR + (63 - 4) * SUB_COUNT;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        mCounts.incrementAndGet(bucket(nanos));
+        mSum.addAndGet(nanos);
+        long max = mMax.get();
+        while (nanos > max && !mMax.compareAndSet(max, nanos))
+            max = mMax.get();
+    }
+
+    /** Copies the current counts, leaving them in place. */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = mCounts.get(i);
+        return new Snapshot(counts, mSum.get(), mMax.get());
+    }
+
+    /** Copies the current counts and starts a new window. */
+    public Snapshot snapshotAndReset() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = mCounts.getAndSet(i, 0);
+        return new Snapshot(counts, mSum.getAndSet(0), mMax.getAndSet(0));
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) - SUB_COUNT;
+        return LINEAR + (exponent - SUB_BITS - 1) * SUB_COUNT + sub;
+    }
+
+    /** Largest value that falls into {@code bucket}. */
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR)
+            return bucket;
+        int exponent = (bucket - LINEAR) / SUB_COUNT + SUB_BITS + 1;
+        long sub = (bucket - LINEAR) % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    /** Immutable copy of a histogram window. */
+    public static final class Snapshot {
+        private final long[] mCounts;
+        private final long mCount;
+        private final long mSum;
+        private final long mMax;
+
+        Snapshot(long[] counts, long sum, long max) {
+            long count = 0;
+            for (long c : counts)
+                count += c;
+            mCounts = counts;
+            mCount = count;
+            mSum = sum;
+            mMax = max;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public double getMeanNanos() {
+            return mCount == 0 ? 0 : (double) mSum / mCount;
+        }
+
+        public long getMaxNanos() {
+            return mMax;
+        }
+
+        /**
+         * Upper bound of the bucket holding the value at {@code percentile} (0 to 100), capped at
+         * the largest recorded value; 0 when empty.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (mCount == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * mCount));
+            long seen = 0;
+            for (int i = 0; i < mCounts.length; i++) {
+                seen += mCounts[i];
+                if (seen >= rank)
+                    return Math.min(highestValue(i), mMax);
+            }
+            return mMax;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "n %d  mean %.3f  p50 %.3f  p90 %.3f  p99 %.3f  max %.3f ms",
+                    mCount, getMeanNanos() / 1e6, getValueAtPercentile(50) / 1e6,
+                    getValueAtPercentile(90) / 1e6, getValueAtPercentile(99) / 1e6, mMax / 1e6);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.canny418.canny;
+
+/**
+ * Non-maximum suppression and double thresholding, following the integer tangent comparisons of
+ * OpenCV's {@code Canny}: a pixel survives when its magnitude is above the low threshold and is a
+ * local maximum along the gradient direction quantised to 0, 45, 90 or 135 degrees.
+ *
+ * Survivors are written to the edge map as {@link Hysteresis#WEAK} or {@link Hysteresis#STRONG};
+ * strong pixels are also pushed onto the hysteresis stack.
+ */
+public final class NonMaxSuppression {
+    /** tan(22.5 degrees) in Q15. */
+    static final int TG22 = 13573;
+
+    /** Neighbour step per sector: (1, 0), (1, 1), (0, 1) and (-1, 1). */
+    private static final int[] SECTOR_X = {1, 1, 0, -1};
+    private static final int[] SECTOR_Y = {0, 1, 1, 1};
+    /** Added to the magnitude for the second compare, turning {@code >} into {@code >=}. */
+    private static final int[] TIE = {1, 0, 1, 0};
+
+    private NonMaxSuppression() {
+    }
+
+    /**
+     * Suppresses a whole image. {@code mag} and {@code map} are both padded by one pixel and share
+     * the row step {@code width + 2}; the map border is set to {@link Hysteresis#NONE}.
+     *
+     * @return number of strong pixels pushed onto {@code stack}
+     */
+    public static int suppress(short[] dx, short[] dy, int[] mag, int width, int height,
+                               int low, int high, byte[] map, int[] stack) {
+        int step = width + 2;
+        Hysteresis.clearBorder(map, width, height);
+        int top = 0;
+        for (int y = 0; y < height; y++) {
+            int cur = (y + 1) * step + 1;
+            top = suppressRow(dx, dy, y * width, width, mag, cur - step, cur, cur + step,
+                    low, high, map, cur, stack, top);
+        }
+        return top;
+    }
+
+    /**
+     * Suppresses one row. {@code prev}, {@code cur} and {@code next} index the first pixel of the
+     * rows above, at and below the current one in {@code mag}; each must have a readable zero at
+     * index -1 and {@code width}.
+     *
+     * @return the new stack top
+     */
+    static int suppressRow(short[] dx, short[] dy, int gradOffset, int width,
+                           int[] mag, int prev, int cur, int next,
+                           int low, int high, byte[] map, int mapOffset, int[] stack, int top) {
+        for (int x = 0; x < width; x++) {
+            int m = mag[cur + x];
+            if (m > low) {
+                int xs = dx[gradOffset + x];
+                int ys = dy[gradOffset + x];
+                int ax = Math.abs(xs);
+                int ay = Math.abs(ys) << 15;
+                int tg22x = ax * TG22;
+                boolean max;
+                if (ay < tg22x) {
+                    max = m > mag[cur + x - 1] && m >= mag[cur + x + 1];
+                } else {
+                    int tg67x = tg22x + (ax << 16);
+                    if (ay > tg67x) {
+                        max = m > mag[prev + x] && m >= mag[next + x];
+                    } else {
+                        int s = (xs ^ ys) < 0 ? -1 : 1;
+                        max = m > mag[prev + x - s] && m > mag[next + x + s];
+                    }
+                }
+                if (max) {
+                    if (m > high) {
+                        map[mapOffset + x] = Hysteresis.STRONG;
+                        stack[top++] = mapOffset + x;
+                    } else {
+                        map[mapOffset + x] = Hysteresis.WEAK;
+                    }
+                    continue;
+                }
+            }
+            map[mapOffset + x] = Hysteresis.NONE;
+        }
+        return top;
+    }
+
+    /**
+     * Same result as {@link #suppress}, driven by the 2-bit sectors from
+     * {@link GradientKernels#sectors} instead of per-pixel tangent comparisons: every candidate
+     * costs two table lookups, two magnitude loads and two compares, with no branch on the
+     * direction. {@code sector} is unpadded, one byte per pixel.
+     *
+     * Sector 0 to 3 compares against the pixels one step either way along (1, 0), (1, 1), (0, 1)
+     * and (-1, 1), which are also the texel steps a GLSL version would sample with. OpenCV keeps
+     * the first neighbour strictly below and lets the second one tie on the axes but not on the
+     * diagonals, so one unit is added to the magnitude for the second compare on the axes.
+     *
+     * @return number of strong pixels pushed onto {@code stack}
+     */
+    public static int suppressSectors(byte[] sector, int[] mag, int width, int height,
+                                      int low, int high, byte[] map, int[] stack) {
+        int step = width + 2;
+        Hysteresis.clearBorder(map, width, height);
+        int[] offsets = neighbourOffsets(step);
+        int top = 0;
+        for (int y = 0; y < height; y++) {
+            int cur = (y + 1) * step + 1;
+            top = suppressSectorsRow(sector, y * width, width, mag, cur, offsets, low, high, map, stack, top);
+        }
+        return top;
+    }
+
+    /** Index offsets of the sector neighbours in a buffer with row step {@code step}. */
+    static int[] neighbourOffsets(int step) {
+        int[] offsets = new int[4];
+        for (int s = 0; s < 4; s++)
+            offsets[s] = SECTOR_Y[s] * step + SECTOR_X[s];
+        return offsets;
+    }
+
+    static int suppressSectorsRow(byte[] sector, int sectorOffset, int width, int[] mag, int cur,
+                                  int[] offsets, int low, int high, byte[] map, int[] stack, int top) {
+        int[] tie = TIE;
+        for (int x = 0; x < width; x++) {
+            int p = cur + x;
+            int m = mag[p];
+            if (m > low) {
+                int s = sector[sectorOffset + x];
+                int o = offsets[s];
+                if (m > mag[p - o] && m + tie[s] > mag[p + o]) {
+                    if (m > high) {
+                        map[p] = Hysteresis.STRONG;
+                        stack[top++] = p;
+                    } else {
+                        map[p] = Hysteresis.WEAK;
+                    }
+                    continue;
+                }
+            }
+            map[p] = Hysteresis.NONE;
+        }
+        return top;
+    }
+
+    /**
+     * Sub-pixel position of the edge at padded magnitude index {@code p}: fits a parabola through
+     * the magnitudes the suppression compared, along the same quantised gradient direction, and
+     * moves the pixel centre to its vertex. L2 magnitudes are square rooted first so the fit sees
+     * the gradient itself. The offset is clamped to half a pixel; the coordinates are written to
+     * {@code out[o]} and {@code out[o + 1]}.
+     */
+    static void locate(short[] dx, short[] dy, int gradIndex, int[] mag, int p, int step,
+                       int x, int y, boolean l2, float[] out, int o) {
+        int xs = dx[gradIndex];
+        int ys = dy[gradIndex];
+        int ax = Math.abs(xs);
+        int ay = Math.abs(ys) << 15;
+        int tg22x = ax * TG22;
+        int before, after, sx, sy;
+        if (ay < tg22x) {
+            before = p - 1;
+            after = p + 1;
+            sx = 1;
+            sy = 0;
+        } else if (ay > tg22x + (ax << 16)) {
+            before = p - step;
+            after = p + step;
+            sx = 0;
+            sy = 1;
+        } else {
+            int s = (xs ^ ys) < 0 ? -1 : 1;
+            before = p - step - s;
+            after = p + step + s;
+            sx = s;
+            sy = 1;
+        }
+        double a = mag[before], m = mag[p], b = mag[after];
+        if (l2) {
+            a = Math.sqrt(a);
+            m = Math.sqrt(m);
+            b = Math.sqrt(b);
+        }
+        double curvature = a - 2 * m + b;
+        double t = curvature < 0 ? (a - b) / (2 * curvature) : 0;
+        t = Math.max(-0.5, Math.min(0.5, t));
+        out[o] = (float) (x + t * sx);
+        out[o + 1] = (float) (y + t * sy);
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.canny418.canny;
+
+import java.util.Arrays;
+
+/**
+ * Binary edge map stored one bit per pixel, 64 pixels per {@code long}.
+ *
+ * Each row starts on a new word. Bit {@code x & 63} of word {@code x >> 6} holds column
+ * {@code x}, so shifting a word left moves pixels right. Bits past the image width are always
+ * zero, which keeps {@link #count()} and the bitwise operations exact without masking.
+ */
+public final class PackedEdgeMap {
+    private final int mWidth;
+    private final int mHeight;
+    private final int mWordsPerRow;
+    private final long[] mWords;
+
+    public PackedEdgeMap(int width, int height) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        mWidth = width;
+        mHeight = height;
+        mWordsPerRow = (width + 63) >>> 6;
+        mWords = new long[mWordsPerRow * height];
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getWordsPerRow() {
+        return mWordsPerRow;
+    }
+
+    /** Backing words, row by row with {@link #getWordsPerRow()} words each. */
+    public long[] getWords() {
+        return mWords;
+    }
+
+    public boolean get(int x, int y) {
+        return (mWords[y * mWordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y, boolean edge) {
+        int i = y * mWordsPerRow + (x >>> 6);
+        if (edge)
+            mWords[i] |= 1L << x;
+        else
+            mWords[i] &= ~(1L << x);
+    }
+
+    public void clear() {
+        Arrays.fill(mWords, 0L);
+    }
+
+    public void copyFrom(PackedEdgeMap other) {
+        checkSize(other);
+        System.arraycopy(other.mWords, 0, mWords, 0, mWords.length);
+    }
+
+    /** Packs an 8-bit image, every non-zero byte being an edge. */
+    public void pack(byte[] src, int offset, int stride) {
+        int width = mWidth;
+        for (int y = 0; y < mHeight; y++) {
+            int o = offset + y * stride;
+            int w = y * mWordsPerRow;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                int n = Math.min(64, width - x0);
+                long bits = 0;
+                for (int b = 0; b < n; b++)
+                    bits |= (long) (-(src[o + x0 + b] & 0xff) >>> 31) << b;
+                mWords[w++] = bits;
+            }
+        }
+    }
+
+    /** Unpacks to an 8-bit image with 255 for edges and 0 elsewhere, the format of {@code Imgproc.Canny}. */
+    public void unpack(byte[] dst, int offset, int stride) {
+        int width = mWidth;
+        for (int y = 0; y < mHeight; y++) {
+            int o = offset + y * stride;
+            int w = y * mWordsPerRow;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                int n = Math.min(64, width - x0);
+                long bits = mWords[w++];
+                for (int b = 0; b < n; b++)
+                    dst[o + x0 + b] = (byte) -((int) (bits >>> b) & 1);
+            }
+        }
+    }
+
+    /** Unpacks to packed colour ints, the layout of {@code Bitmap.setPixels}. */
+    public void unpackArgb(int[] dst, int offset, int stride, int edgeColor, int backgroundColor) {
+        int width = mWidth;
+        int diff = edgeColor ^ backgroundColor;
+        for (int y = 0; y < mHeight; y++) {
+            int o = offset + y * stride;
+            int w = y * mWordsPerRow;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                int n = Math.min(64, width - x0);
+                long bits = mWords[w++];
+                for (int b = 0; b < n; b++)
+                    dst[o + x0 + b] = backgroundColor ^ (diff & -((int) (bits >>> b) & 1));
+            }
+        }
+    }
+
+    /** Packs colour ints as read by {@code Bitmap.getPixels}, every pixel with a non-zero colour channel being an edge. */
+    public void packArgb(int[] src, int offset, int stride) {
+        int width = mWidth;
+        for (int y = 0; y < mHeight; y++) {
+            int o = offset + y * stride;
+            int w = y * mWordsPerRow;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                int n = Math.min(64, width - x0);
+                long bits = 0;
+                for (int b = 0; b < n; b++)
+                    bits |= (long) (-(src[o + x0 + b] & 0xffffff) >>> 31) << b;
+                mWords[w++] = bits;
+            }
+        }
+    }
+
+    /** Number of edge pixels. */
+    public int count() {
+        int count = 0;
+        for (long word : mWords)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /** {@code dst = this & other}; {@code dst} may be either operand. */
+    public void and(PackedEdgeMap other, PackedEdgeMap dst) {
+        checkSize(other);
+        checkSize(dst);
+        long[] a = mWords, b = other.mWords, d = dst.mWords;
+        for (int i = 0; i < a.length; i++)
+            d[i] = a[i] & b[i];
+    }
+
+    /** {@code dst = this | other}; {@code dst} may be either operand. */
+    public void or(PackedEdgeMap other, PackedEdgeMap dst) {
+        checkSize(other);
+        checkSize(dst);
+        long[] a = mWords, b = other.mWords, d = dst.mWords;
+        for (int i = 0; i < a.length; i++)
+            d[i] = a[i] | b[i];
+    }
+
+    /** {@code dst = this ^ other}, the pixels that changed between two frames; {@code dst} may be either operand. */
+    public void xor(PackedEdgeMap other, PackedEdgeMap dst) {
+        checkSize(other);
+        checkSize(dst);
+        long[] a = mWords, b = other.mWords, d = dst.mWords;
+        for (int i = 0; i < a.length; i++)
+            d[i] = a[i] ^ b[i];
+    }
+
+    /** {@code dst = this & ~other}, the edges of this map missing from the other; {@code dst} may be either operand. */
+    public void andNot(PackedEdgeMap other, PackedEdgeMap dst) {
+        checkSize(other);
+        checkSize(dst);
+        long[] a = mWords, b = other.mWords, d = dst.mWords;
+        for (int i = 0; i < a.length; i++)
+            d[i] = a[i] & ~b[i];
+    }
+
+    /** Number of pixels set in both maps, without materialising the intersection. */
+    public int countAnd(PackedEdgeMap other) {
+        checkSize(other);
+        long[] a = mWords, b = other.mWords;
+        int count = 0;
+        for (int i = 0; i < a.length; i++)
+            count += Long.bitCount(a[i] & b[i]);
+        return count;
+    }
+
+    /** Number of pixels that differ between the maps. */
+    public int countXor(PackedEdgeMap other) {
+        checkSize(other);
+        long[] a = mWords, b = other.mWords;
+        int count = 0;
+        for (int i = 0; i < a.length; i++)
+            count += Long.bitCount(a[i] ^ b[i]);
+        return count;
+    }
+
+    /**
+     * Dilates by a 3x3 square, setting every pixel that has an edge among its 8 neighbours.
+     * {@code dst} must be a different map of the same size.
+     */
+    public void dilate(PackedEdgeMap dst) {
+        checkSize(dst);
+        if (dst == this)
+            throw new IllegalArgumentException("dst must not alias src");
+        int words = mWordsPerRow;
+        int rest = mWidth & 63;
+        long lastMask = rest == 0 ? -1L : (1L << rest) - 1;
+        long[] src = mWords, d = dst.mWords;
+        for (int y = 0; y < mHeight; y++) {
+            int row = y * words;
+            int up = y > 0 ? row - words : -1;
+            int down = y + 1 < mHeight ? row + words : -1;
+            for (int k = 0; k < words; k++) {
+                long v = horizontal(src, row, k, words);
+                if (up >= 0)
+                    v |= horizontal(src, up, k, words);
+                if (down >= 0)
+                    v |= horizontal(src, down, k, words);
+                d[row + k] = k == words - 1 ? v & lastMask : v;
+            }
+        }
+    }
+
+    /**
+     * Doubles the map into {@code dst}, every pixel becoming a 2x2 block. {@code dst} must be
+     * {@code 2 * width} or {@code 2 * width - 1} wide, and likewise high, the sizes that
+     * {@link Gaussian#pyrDown} halves to this one.
+     */
+    public void upsample(PackedEdgeMap dst) {
+        if ((dst.mWidth + 1) / 2 != mWidth || (dst.mHeight + 1) / 2 != mHeight)
+            throw new IllegalArgumentException("Cannot upsample " + mWidth + "x" + mHeight
+                    + " to " + dst.mWidth + "x" + dst.mHeight);
+        int fineWords = dst.mWordsPerRow;
+        int rest = dst.mWidth & 63;
+        long lastMask = rest == 0 ? -1L : (1L << rest) - 1;
+        for (int y = 0; y < dst.mHeight; y++) {
+            int src = (y >> 1) * mWordsPerRow;
+            int row = y * fineWords;
+            for (int k = 0; k < fineWords; k++) {
+                long word = mWords[src + (k >> 1)];
+                dst.mWords[row + k] = doubleBits((k & 1) == 0 ? word : word >>> 32);
+            }
+            dst.mWords[row + fineWords - 1] &= lastMask;
+        }
+    }
+
+    /** Spreads the low 32 bits of {@code x} so bit i lands on bits 2i and 2i + 1. */
+    private static long doubleBits(long x) {
+        x &= 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x | (x << 1);
+    }
+
+    /** True if any pixel of columns [64 * word, 64 * word + 64) in rows [y0, y1) is set. */
+    boolean anyInWord(int word, int y0, int y1) {
+        for (int y = y0; y < y1; y++)
+            if (mWords[y * mWordsPerRow + word] != 0)
+                return true;
+        return false;
+    }
+
+    /** Packs the {@link Hysteresis#STRONG} pixels of a padded {@code (width + 2) x (height + 2)} map. */
+    void packStrong(byte[] map) {
+        int width = mWidth;
+        int step = width + 2;
+        for (int y = 0; y < mHeight; y++) {
+            int m = (y + 1) * step + 1;
+            int w = y * mWordsPerRow;
+            for (int x0 = 0; x0 < width; x0 += 64) {
+                int n = Math.min(64, width - x0);
+                long bits = 0;
+                for (int b = 0; b < n; b++)
+                    if (map[m + x0 + b] == Hysteresis.STRONG)
+                        bits |= 1L << b;
+                mWords[w++] = bits;
+            }
+        }
+    }
+
+    /** Word {@code k} of a row ORed with itself shifted one pixel left and right, carrying across words. */
+    private static long horizontal(long[] src, int row, int k, int words) {
+        long w = src[row + k];
+        long left = w << 1;
+        long right = w >>> 1;
+        if (k > 0)
+            left |= src[row + k - 1] >>> 63;
+        if (k + 1 < words)
+            right |= src[row + k + 1] << 63;
+        return w | left | right;
+    }
+
+    private void checkSize(PackedEdgeMap other) {
+        if (other.mWidth != mWidth || other.mHeight != mHeight)
+            throw new IllegalArgumentException("Size mismatch: " + other.mWidth + "x" + other.mHeight
+                    + " vs " + mWidth + "x" + mHeight);
+    }
+}
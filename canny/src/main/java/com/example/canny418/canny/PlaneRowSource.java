@@ -0,0 +1,65 @@
+package com.example.canny418.canny;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Gray {@link RowSource} over one 8-bit image plane in a {@link ByteBuffer}, such as the Y plane
+ * of a camera {@code YUV_420_888} image. Rows may be padded: {@code rowStride} is the distance
+ * between rows in bytes and the last row may end right after its last pixel. Rows are copied
+ * with bulk gets on a private duplicate, so the caller's buffer position is left untouched and
+ * direct buffers are read without an intermediate array.
+ */
+public class PlaneRowSource implements RowSource {
+    private ByteBuffer mPlane;
+    private int mWidth;
+    private int mHeight;
+    private int mRowStride;
+
+    public PlaneRowSource() {
+    }
+
+    public PlaneRowSource(ByteBuffer plane, int width, int height, int rowStride) {
+        set(plane, width, height, rowStride);
+    }
+
+    /** Points this source at another plane, starting at index 0 of {@code plane}. */
+    public PlaneRowSource set(ByteBuffer plane, int width, int height, int rowStride) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        if (rowStride < width || plane.capacity() < (long) (height - 1) * rowStride + width)
+            throw new IllegalArgumentException("Plane too small for a " + width + "x" + height + " image");
+        mPlane = plane.duplicate();
+        mWidth = width;
+        mHeight = height;
+        mRowStride = rowStride;
+        return this;
+    }
+
+    public int getRowStride() {
+        return mRowStride;
+    }
+
+    @Override
+    public int getWidth() {
+        return mWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return mHeight;
+    }
+
+    @Override
+    public int getChannels() {
+        return 1;
+    }
+
+    @Override
+    public void readRow(int y, byte[] dst, int offset) {
+        ByteBuffer plane = mPlane;
+        int start = y * mRowStride;
+        plane.limit(start + mWidth);
+        plane.position(start);
+        plane.get(dst, offset, mWidth);
+    }
+}
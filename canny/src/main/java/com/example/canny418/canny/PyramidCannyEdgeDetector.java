@@ -0,0 +1,239 @@
+package com.example.canny418.canny;
+
+import java.util.Arrays;
+
+/**
+ * Coarse-to-fine Canny for large stills. The image is halved with {@link Gaussian#pyrDown}, as
+ * {@code ColorBlobDetector} does with {@code Imgproc.pyrDown}, and Canny runs on the whole
+ * coarsest level only. The pyramid already smooths, so the blur size only applies at full
+ * resolution. The edges of each level are doubled and dilated by the search radius to
+ * give the region examined at the next finer level; there only blocks touching that region are
+ * run through blur, Sobel and NMS, and only candidates inside it can become edges.
+ *
+ * Edges without support at the coarse levels are lost, so more levels trade recall for speed.
+ * One level is plain Canny. {@link #getProcessedRatio()} reports the work done relative to a
+ * full resolution run.
+ */
+public class PyramidCannyEdgeDetector extends CannyEdgeDetector {
+    /** Blocks are one mask word wide. */
+    private static final int BLOCK_WIDTH = 64;
+    private static final int BLOCK_HEIGHT = 32;
+    /** Levels whose smaller side would drop below this are not built. */
+    private static final int MIN_LEVEL_SIZE = 32;
+
+    private int mLevels = 3;
+    private int mSearchRadius = 2;
+    private double mCoarseThresholdScale = 0.5;
+
+    private final CannyWorkspace mWorkspace = new CannyWorkspace();
+    private byte[][] mImages = new byte[0][];
+    /** Width and height of each level, interleaved. */
+    private int[] mSizes = new int[0];
+    private byte[] mMap = new byte[0];
+    private int[] mStack = new int[0];
+    private int[] mBlockStack = new int[0];
+    private int[] mRowBuf = new int[0];
+    private PackedEdgeMap[] mMasks = new PackedEdgeMap[0];
+    private PackedEdgeMap[] mScratch = new PackedEdgeMap[0];
+    private PackedEdgeMap[] mEdges = new PackedEdgeMap[0];
+
+    private int mWidth;
+    private int mHeight;
+    private long mPixelsProcessed;
+    private long mFullPixels;
+    private int mLevelsUsed;
+
+    public PyramidCannyEdgeDetector(double threshold1, double threshold2) {
+        super(threshold1, threshold2);
+    }
+
+    public PyramidCannyEdgeDetector(double threshold1, double threshold2, int apertureSize, boolean L2gradient) {
+        super(threshold1, threshold2, apertureSize, L2gradient);
+    }
+
+    /** Pyramid depth including full resolution, 3 by default. Capped so no level is smaller than 32 pixels. */
+    public void setLevels(int levels) {
+        if (levels < 1)
+            throw new IllegalArgumentException("Need at least one level, got " + levels);
+        mLevels = levels;
+    }
+
+    public int getLevels() {
+        return mLevels;
+    }
+
+    /** Distance in pixels, at each finer level, around the upsampled coarse edges that is searched; 2 by default. */
+    public void setSearchRadius(int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("Invalid search radius " + radius);
+        mSearchRadius = radius;
+    }
+
+    public int getSearchRadius() {
+        return mSearchRadius;
+    }
+
+    /**
+     * Factor applied to both thresholds below full resolution, 0.5 by default. Each halving
+     * smooths the image, which lowers the gradient across an edge, and the coarse levels only
+     * choose where to look, so missing an edge there costs more than a spurious one.
+     */
+    public void setCoarseThresholdScale(double scale) {
+        if (!(scale > 0))
+            throw new IllegalArgumentException("Invalid threshold scale " + scale);
+        mCoarseThresholdScale = scale;
+    }
+
+    public double getCoarseThresholdScale() {
+        return mCoarseThresholdScale;
+    }
+
+    /** Pixels run through blur, Sobel and NMS in the last call, summed over all levels. */
+    public long getPixelsProcessed() {
+        return mPixelsProcessed;
+    }
+
+    /** {@link #getPixelsProcessed()} relative to a full resolution run of the last image. */
+    public double getProcessedRatio() {
+        return mFullPixels == 0 ? 0 : (double) mPixelsProcessed / mFullPixels;
+    }
+
+    /** Levels actually used in the last call, after the minimum size cap. */
+    public int getLevelsUsed() {
+        return mLevelsUsed;
+    }
+
+    @Override
+    public void detect(byte[] src, int width, int height, byte[] dst) {
+        checkImage(src, width, height, dst);
+        int levels = 1;
+        while (levels < mLevels && Math.min(width >> levels, height >> levels) >= MIN_LEVEL_SIZE)
+            levels++;
+        ensure(width, height, levels);
+        mLevelsUsed = levels;
+        mFullPixels = (long) width * height;
+        mPixelsProcessed = 0;
+
+        int[] sizes = mSizes;
+        mImages[0] = src;
+        for (int l = 1; l < levels; l++)
+            Gaussian.pyrDown(mImages[l - 1], sizes[2 * l - 2], sizes[2 * l - 1], mImages[l], mRowBuf);
+
+        for (int l = levels - 1; l >= 0; l--) {
+            int w = sizes[2 * l], h = sizes[2 * l + 1];
+            PackedEdgeMap mask = l == levels - 1 ? null : mMasks[l];
+            int top = suppress(mImages[l], w, h, mask, l > 0);
+            mStack = Hysteresis.traceGrowable(mMap, w + 2, mStack, top);
+            if (l == 0) {
+                Hysteresis.toEdges(mMap, w, h, dst);
+            } else {
+                mEdges[l].packStrong(mMap);
+                mEdges[l].upsample(mMasks[l - 1]);
+                dilate(mMasks[l - 1], mScratch[l - 1]);
+            }
+        }
+    }
+
+    /**
+     * NMS of one level into {@link #mMap}, limited to the blocks the mask touches and to the
+     * candidates it covers; a null mask runs every block.
+     *
+     * @return the number of strong pixels on {@link #mStack}
+     */
+    private int suppress(byte[] image, int width, int height, PackedEdgeMap mask, boolean coarse) {
+        int step = width + 2;
+        Arrays.fill(mMap, 0, step * (height + 2), Hysteresis.NONE);
+        int aperture = getApertureSize();
+        boolean l2 = isL2Gradient();
+        double scale = coarse ? mCoarseThresholdScale : 1;
+        int low = lowThreshold(scale * getThreshold1(), scale * getThreshold2(), aperture, l2);
+        int high = highThreshold(scale * getThreshold1(), scale * getThreshold2(), aperture, l2);
+        int blur = coarse ? 0 : getBlurSize();
+        int top = 0;
+        for (int y0 = 0; y0 < height; y0 += BLOCK_HEIGHT) {
+            int y1 = Math.min(height, y0 + BLOCK_HEIGHT);
+            for (int word = 0, x0 = 0; x0 < width; word++, x0 += BLOCK_WIDTH) {
+                if (mask != null && !mask.anyInWord(word, y0, y1))
+                    continue;
+                int x1 = Math.min(width, x0 + BLOCK_WIDTH);
+                mPixelsProcessed += (x1 - x0) * (y1 - y0);
+                int mapOffset = (y0 + 1) * step + x0 + 1;
+                int seeds = CannyRegion.suppress(image, width, height, blur, aperture, l2, low, high,
+                        x0, y0, x1, y1, mWorkspace, mMap, mapOffset, step, mBlockStack, 0);
+                if (mask == null) {
+                    top = pushSeeds(mBlockStack, seeds, top);
+                    continue;
+                }
+                // Drop candidates outside the searched region, then keep the surviving seeds
+                long[] words = mask.getWords();
+                int wordsPerRow = mask.getWordsPerRow();
+                for (int y = y0; y < y1; y++) {
+                    long bits = words[y * wordsPerRow + word];
+                    int m = (y + 1) * step + x0 + 1;
+                    for (int x = 0; x < x1 - x0; x++)
+                        if ((bits & (1L << x)) == 0)
+                            mMap[m + x] = Hysteresis.NONE;
+                }
+                int kept = 0;
+                for (int i = 0; i < seeds; i++)
+                    if (mMap[mBlockStack[i]] == Hysteresis.STRONG)
+                        mBlockStack[kept++] = mBlockStack[i];
+                top = pushSeeds(mBlockStack, kept, top);
+            }
+        }
+        return top;
+    }
+
+    private int pushSeeds(int[] seeds, int count, int top) {
+        if (mStack.length < top + count)
+            mStack = Arrays.copyOf(mStack, Math.max(2 * mStack.length, top + count));
+        System.arraycopy(seeds, 0, mStack, top, count);
+        return top + count;
+    }
+
+    /** Dilates {@code mask} by the search radius in place, using {@code scratch} of the same size. */
+    private void dilate(PackedEdgeMap mask, PackedEdgeMap scratch) {
+        for (int i = 0; i < mSearchRadius; i++) {
+            mask.dilate(scratch);
+            mask.copyFrom(scratch);
+        }
+    }
+
+    private void ensure(int width, int height, int levels) {
+        boolean resize = mImages.length != levels || width != mWidth || height != mHeight;
+        if (resize) {
+            mWidth = width;
+            mHeight = height;
+            mImages = new byte[levels][];
+            mMasks = new PackedEdgeMap[levels];
+            mScratch = new PackedEdgeMap[levels];
+            mEdges = new PackedEdgeMap[levels];
+            mSizes = new int[2 * levels];
+            int w = width, h = height;
+            for (int l = 0; l < levels; l++) {
+                mSizes[2 * l] = w;
+                mSizes[2 * l + 1] = h;
+                if (l > 0)
+                    mImages[l] = new byte[w * h];
+                // Masks guide every level but the coarsest, which feeds its edges to the next one
+                if (l < levels - 1) {
+                    mMasks[l] = new PackedEdgeMap(w, h);
+                    mScratch[l] = new PackedEdgeMap(w, h);
+                }
+                if (l > 0)
+                    mEdges[l] = new PackedEdgeMap(w, h);
+                w = (w + 1) / 2;
+                h = (h + 1) / 2;
+            }
+        }
+        int padded = (width + 2) * (height + 2);
+        if (mMap.length < padded)
+            mMap = new byte[padded];
+        if (mRowBuf.length < width + 8)
+            mRowBuf = new int[width + 8];
+        if (mBlockStack.length < BLOCK_WIDTH * BLOCK_HEIGHT) {
+            mBlockStack = new int[BLOCK_WIDTH * BLOCK_HEIGHT];
+            CannyRegion.ensure(mWorkspace, BLOCK_WIDTH, BLOCK_HEIGHT, 7);
+        }
+    }
+}
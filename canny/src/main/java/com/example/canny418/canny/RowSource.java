@@ -0,0 +1,21 @@
+package com.example.canny418.canny;
+
+/**
+ * Supplies an image one row at a time, top to bottom, so that consumers such as
+ * {@link StreamingCannyEdgeDetector} never need the whole frame in memory. A decoder can
+ * implement this directly.
+ */
+public interface RowSource {
+    int getWidth();
+
+    int getHeight();
+
+    /** Bytes per pixel: 1 for gray, 3 for RGB or 4 for RGBA. */
+    int getChannels();
+
+    /**
+     * Copies row {@code y} into {@code dst} at {@code offset}, {@code getWidth() * getChannels()}
+     * bytes. Rows are requested once each, in increasing order starting from 0.
+     */
+    void readRow(int y, byte[] dst, int offset);
+}
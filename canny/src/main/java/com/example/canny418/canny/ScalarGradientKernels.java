@@ -0,0 +1,137 @@
+package com.example.canny418.canny;
+
+/**
+ * Plain Java {@link GradientKernels}. The Sobel rows resolve the replicated border once per row
+ * and run the interior without clamping, which is where {@link Sobel#gradientRow} spends its
+ * time.
+ */
+class ScalarGradientKernels extends GradientKernels {
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public void sobel(byte[] src, int width, int height, int apertureSize, short[] dx, short[] dy,
+                      int[] smoothRow, int[] derivRow) {
+        checkKernelAperture(apertureSize);
+        if (apertureSize == 7) {
+            Sobel.gradient(src, width, height, 7, dx, dy, smoothRow, derivRow);
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            if (apertureSize == 3)
+                sobel3Row(src, width, height, y, dx, dy);
+            else
+                sobel5Row(src, width, height, y, dx, dy);
+        }
+    }
+
+    static void sobel3Row(byte[] src, int width, int height, int y, short[] dx, short[] dy) {
+        int o0 = clamp(y - 1, height) * width;
+        int o1 = y * width;
+        int o2 = clamp(y + 1, height) * width;
+        sobel3At(src, width, o0, o1, o2, 0, dx, dy);
+        for (int x = 1; x < width - 1; x++) {
+            int a0 = src[o0 + x - 1] & 0xFF, a2 = src[o0 + x + 1] & 0xFF;
+            int b0 = src[o1 + x - 1] & 0xFF, b2 = src[o1 + x + 1] & 0xFF;
+            int c0 = src[o2 + x - 1] & 0xFF, c2 = src[o2 + x + 1] & 0xFF;
+            dx[o1 + x] = (short) (a2 - a0 + 2 * (b2 - b0) + c2 - c0);
+            dy[o1 + x] = (short) (c0 + 2 * (src[o2 + x] & 0xFF) + c2 - a0 - 2 * (src[o0 + x] & 0xFF) - a2);
+        }
+        if (width > 1)
+            sobel3At(src, width, o0, o1, o2, width - 1, dx, dy);
+    }
+
+    /** Border column of {@link #sobel3Row}. */
+    static void sobel3At(byte[] src, int width, int o0, int o1, int o2, int x, short[] dx, short[] dy) {
+        int l = clamp(x - 1, width), r = clamp(x + 1, width);
+        int a0 = src[o0 + l] & 0xFF, a1 = src[o0 + x] & 0xFF, a2 = src[o0 + r] & 0xFF;
+        int b0 = src[o1 + l] & 0xFF, b2 = src[o1 + r] & 0xFF;
+        int c0 = src[o2 + l] & 0xFF, c1 = src[o2 + x] & 0xFF, c2 = src[o2 + r] & 0xFF;
+        dx[o1 + x] = (short) (a2 - a0 + 2 * (b2 - b0) + c2 - c0);
+        dy[o1 + x] = (short) (c0 + 2 * c1 + c2 - a0 - 2 * a1 - a2);
+    }
+
+    static void sobel5Row(byte[] src, int width, int height, int y, short[] dx, short[] dy) {
+        int o0 = clamp(y - 2, height) * width;
+        int o1 = clamp(y - 1, height) * width;
+        int o2 = y * width;
+        int o3 = clamp(y + 1, height) * width;
+        int o4 = clamp(y + 2, height) * width;
+        int left = Math.min(2, width);
+        for (int x = 0; x < left; x++)
+            sobel5At(src, width, o0, o1, o2, o3, o4, x, dx, dy);
+        for (int x = 2; x < width - 2; x++) {
+            // Horizontal derivative and smoothing of each row, then the vertical pass
+            int d0 = deriv5(src, o0 + x), s0 = smooth5(src, o0 + x);
+            int d1 = deriv5(src, o1 + x), s1 = smooth5(src, o1 + x);
+            int d2 = deriv5(src, o2 + x);
+            int d3 = deriv5(src, o3 + x), s3 = smooth5(src, o3 + x);
+            int d4 = deriv5(src, o4 + x), s4 = smooth5(src, o4 + x);
+            dx[o2 + x] = (short) (d0 + 4 * d1 + 6 * d2 + 4 * d3 + d4);
+            dy[o2 + x] = (short) (s4 - s0 + 2 * (s3 - s1));
+        }
+        for (int x = Math.max(left, width - 2); x < width; x++)
+            sobel5At(src, width, o0, o1, o2, o3, o4, x, dx, dy);
+    }
+
+    private static int deriv5(byte[] src, int i) {
+        return (src[i + 2] & 0xFF) - (src[i - 2] & 0xFF) + 2 * ((src[i + 1] & 0xFF) - (src[i - 1] & 0xFF));
+    }
+
+    private static int smooth5(byte[] src, int i) {
+        return (src[i - 2] & 0xFF) + (src[i + 2] & 0xFF) + 4 * ((src[i - 1] & 0xFF) + (src[i + 1] & 0xFF))
+                + 6 * (src[i] & 0xFF);
+    }
+
+    /** Border column of {@link #sobel5Row}. */
+    static void sobel5At(byte[] src, int width, int o0, int o1, int o2, int o3, int o4, int x,
+                         short[] dx, short[] dy) {
+        int[] rows = {o0, o1, o2, o3, o4};
+        int[] s = {1, 4, 6, 4, 1};
+        int[] d = {-1, -2, 0, 2, 1};
+        int sx = 0, sy = 0;
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                int v = src[rows[i] + clamp(x + j - 2, width)] & 0xFF;
+                sx += s[i] * d[j] * v;
+                sy += d[i] * s[j] * v;
+            }
+        }
+        dx[o2 + x] = (short) sx;
+        dy[o2 + x] = (short) sy;
+    }
+
+    @Override
+    public void magnitudeL1(short[] dx, short[] dy, int offset, int count, int[] mag, int magOffset) {
+        for (int i = 0; i < count; i++)
+            mag[magOffset + i] = Math.abs(dx[offset + i]) + Math.abs(dy[offset + i]);
+    }
+
+    @Override
+    public void magnitudeL2(short[] dx, short[] dy, int offset, int count, int[] mag, int magOffset) {
+        for (int i = 0; i < count; i++) {
+            int gx = Math.min(Math.abs(dx[offset + i]), Short.MAX_VALUE);
+            int gy = Math.min(Math.abs(dy[offset + i]), Short.MAX_VALUE);
+            // Exact: the double square root is correctly rounded and the sum fits in 31 bits
+            mag[magOffset + i] = (int) Math.sqrt(gx * gx + gy * gy);
+        }
+    }
+
+    @Override
+    public void octants(short[] dx, short[] dy, int offset, int count, byte[] dir, int dirOffset) {
+        for (int i = 0; i < count; i++)
+            dir[dirOffset + i] = (byte) octant(dx[offset + i], dy[offset + i]);
+    }
+
+    @Override
+    public void sectors(short[] dx, short[] dy, int offset, int count, byte[] sector, int sectorOffset) {
+        for (int i = 0; i < count; i++)
+            sector[sectorOffset + i] = (byte) sector(dx[offset + i], dy[offset + i]);
+    }
+
+    static int clamp(int i, int n) {
+        return i < 0 ? 0 : (i >= n ? n - 1 : i);
+    }
+}
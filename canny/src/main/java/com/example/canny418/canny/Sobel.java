@@ -0,0 +1,183 @@
+package com.example.canny418.canny;
+
+/**
+ * First-order Sobel derivatives of 8-bit gray images, matching
+ * {@code Imgproc.Sobel(src, d, CV_16S, 1, 0, ksize, scale, 0, BORDER_REPLICATE)} as used by
+ * {@code Imgproc.Canny}: aperture 7 is scaled by 1/16 so it fits in a short.
+ */
+public final class Sobel {
+    private static final int[][] DERIV = {
+            null, null, null, {-1, 0, 1}, null, {-1, -2, 0, 2, 1}, null, {-1, -4, -5, 0, 5, 4, 1}};
+    private static final int[][] SMOOTH = {
+            null, null, null, {1, 2, 1}, null, {1, 4, 6, 4, 1}, null, {1, 6, 15, 20, 15, 6, 1}};
+
+    private Sobel() {
+    }
+
+    public static boolean isSupported(int apertureSize) {
+        return apertureSize == 3 || apertureSize == 5 || apertureSize == 7;
+    }
+
+    static void checkAperture(int apertureSize) {
+        if (!isSupported(apertureSize))
+            throw new IllegalArgumentException("Aperture size should be odd between 3 and 7, got " + apertureSize);
+    }
+
+    /**
+     * Computes the x and y derivatives of {@code src}.
+     *
+     * @param smoothRow scratch row of at least {@code width + apertureSize - 1} ints
+     * @param derivRow  scratch row of at least {@code width + apertureSize - 1} ints
+     */
+    public static void gradient(byte[] src, int width, int height, int apertureSize,
+                                short[] dx, short[] dy, int[] smoothRow, int[] derivRow) {
+        gradientRect(src, width, height, apertureSize, 0, 0, width, height, dx, dy, 0, width, smoothRow, derivRow);
+    }
+
+    /**
+     * Computes the derivatives of the rectangle [x0, x1) x [y0, y1) of a {@code srcWidth x srcHeight}
+     * source. Pixel (x, y) of the rectangle is written to {@code dstOffset + (y - y0) * dstStride + (x - x0)}.
+     * Reads outside the source are replicated from its nearest border pixel.
+     */
+    static void gradientRect(byte[] src, int srcWidth, int srcHeight, int apertureSize,
+                             int x0, int y0, int x1, int y1,
+                             short[] dx, short[] dy, int dstOffset, int dstStride,
+                             int[] smoothRow, int[] derivRow) {
+        checkAperture(apertureSize);
+        for (int y = y0; y < y1; y++)
+            gradientRow(src, srcWidth, srcHeight, srcHeight, y, x0, x1, apertureSize,
+                    dx, dy, dstOffset + (y - y0) * dstStride, smoothRow, derivRow);
+    }
+
+    /**
+     * Computes the derivatives of columns [x0, x1) of row {@code y} into {@code dx}/{@code dy} at
+     * {@code dstOffset}. Source row {@code r} is read from {@code (r % ringRows) * srcWidth}, so
+     * {@code src} may be a ring buffer holding only the rows around {@code y}; pass
+     * {@code ringRows = srcHeight} for a full image.
+     */
+    static void gradientRow(byte[] src, int srcWidth, int srcHeight, int ringRows, int y, int x0, int x1,
+                            int apertureSize, short[] dx, short[] dy, int dstOffset,
+                            int[] smoothRow, int[] derivRow) {
+        gradientRow(src, srcWidth, srcHeight, ringRows, 1, 0, y, x0, x1, apertureSize, dx, dy, dstOffset,
+                smoothRow, derivRow);
+    }
+
+    /**
+     * {@link #gradientRow} of one channel of an interleaved image with {@code channels} bytes per
+     * pixel, such as RGBA.
+     */
+    static void gradientRow(byte[] src, int srcWidth, int srcHeight, int ringRows, int channels, int channel,
+                            int y, int x0, int x1, int apertureSize, short[] dx, short[] dy, int dstOffset,
+                            int[] smoothRow, int[] derivRow) {
+        int n = x1 - x0;
+        int rowStep = srcWidth * channels;
+        if (apertureSize == 3) {
+            int o0 = (clamp(y - 1, srcHeight) % ringRows) * rowStep + channel;
+            int o1 = (y % ringRows) * rowStep + channel;
+            int o2 = (clamp(y + 1, srcHeight) % ringRows) * rowStep + channel;
+            for (int k = 0; k < n + 2; k++) {
+                int cx = clamp(x0 - 1 + k, srcWidth) * channels;
+                int a = src[o0 + cx] & 0xFF;
+                int b = src[o1 + cx] & 0xFF;
+                int c = src[o2 + cx] & 0xFF;
+                smoothRow[k] = a + 2 * b + c;
+                derivRow[k] = c - a;
+            }
+            for (int x = 0; x < n; x++) {
+                dx[dstOffset + x] = (short) (smoothRow[x + 2] - smoothRow[x]);
+                dy[dstOffset + x] = (short) (derivRow[x] + 2 * derivRow[x + 1] + derivRow[x + 2]);
+            }
+            return;
+        }
+
+        int[] d = DERIV[apertureSize];
+        int[] s = SMOOTH[apertureSize];
+        int r = apertureSize >> 1;
+        for (int k = 0; k < n + 2 * r; k++) {
+            smoothRow[k] = 0;
+            derivRow[k] = 0;
+        }
+        for (int i = 0; i < apertureSize; i++) {
+            int o = (clamp(y + i - r, srcHeight) % ringRows) * rowStep + channel;
+            int si = s[i];
+            int di = d[i];
+            for (int k = 0; k < n + 2 * r; k++) {
+                int v = src[o + clamp(x0 - r + k, srcWidth) * channels] & 0xFF;
+                smoothRow[k] += si * v;
+                derivRow[k] += di * v;
+            }
+        }
+        for (int x = 0; x < n; x++) {
+            int sx = 0, sy = 0;
+            for (int j = 0; j < apertureSize; j++) {
+                sx += d[j] * smoothRow[x + j];
+                sy += s[j] * derivRow[x + j];
+            }
+            dx[dstOffset + x] = toShort(sx, apertureSize);
+            dy[dstOffset + x] = toShort(sy, apertureSize);
+        }
+    }
+
+    /**
+     * Writes the L1 ({@code |dx| + |dy|}) or squared L2 ({@code dx^2 + dy^2}) gradient magnitude
+     * into a buffer padded by one pixel on every side, so pixel (x, y) lands at
+     * {@code (y + 1) * magStep + x + 1}. The padding is left untouched and must be zero.
+     */
+    public static void magnitude(short[] dx, short[] dy, int width, int height, boolean l2Gradient,
+                                 int[] mag, int magStep) {
+        for (int y = 0; y < height; y++)
+            magnitudeRow(dx, dy, y * width, width, l2Gradient, mag, (y + 1) * magStep + 1);
+    }
+
+    static void magnitudeRow(short[] dx, short[] dy, int srcOffset, int width, boolean l2Gradient,
+                             int[] mag, int dstOffset) {
+        if (l2Gradient) {
+            for (int x = 0; x < width; x++) {
+                int gx = dx[srcOffset + x];
+                int gy = dy[srcOffset + x];
+                mag[dstOffset + x] = gx * gx + gy * gy;
+            }
+        } else {
+            for (int x = 0; x < width; x++)
+                mag[dstOffset + x] = Math.abs(dx[srcOffset + x]) + Math.abs(dy[srcOffset + x]);
+        }
+    }
+
+    /**
+     * {@link #magnitudeRow} that also counts every magnitude into {@code histogram}: L1 values,
+     * or the square root of L2 values, shifted right by {@code shift} and clamped to the last bin.
+     */
+    static void magnitudeRow(short[] dx, short[] dy, int srcOffset, int width, boolean l2Gradient,
+                             int[] mag, int dstOffset, int[] histogram, int shift) {
+        int last = histogram.length - 1;
+        if (l2Gradient) {
+            for (int x = 0; x < width; x++) {
+                int gx = dx[srcOffset + x];
+                int gy = dy[srcOffset + x];
+                int m = gx * gx + gy * gy;
+                mag[dstOffset + x] = m;
+                histogram[Math.min(last, (int) Math.sqrt(m) >> shift)]++;
+            }
+        } else {
+            for (int x = 0; x < width; x++) {
+                int m = Math.abs(dx[srcOffset + x]) + Math.abs(dy[srcOffset + x]);
+                mag[dstOffset + x] = m;
+                histogram[Math.min(last, m >> shift)]++;
+            }
+        }
+    }
+
+    private static short toShort(int sum, int apertureSize) {
+        if (apertureSize == 7)
+            sum = (int) Math.rint(sum / 16.0);
+        if (sum > Short.MAX_VALUE)
+            return Short.MAX_VALUE;
+        if (sum < Short.MIN_VALUE)
+            return Short.MIN_VALUE;
+        return (short) sum;
+    }
+
+    private static int clamp(int i, int n) {
+        return i < 0 ? 0 : (i >= n ? n - 1 : i);
+    }
+}
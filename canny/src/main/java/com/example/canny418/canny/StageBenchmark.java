@@ -0,0 +1,285 @@
+package com.example.canny418.canny;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Times a pipeline stage by stage, e.g. decode, bitmapToMat, cvtColor, Canny and matToBitmap.
+ *
+ * Every iteration runs all stages in order on the calling thread. After the warm-up iterations,
+ * each stage gets its own min, median, p95, p99 and mean, plus a total row that sums the stages
+ * per iteration. With an {@link AllocationCounter} the heap bytes allocated per run are
+ * reported as well. Only the Java heap is counted, not native memory such as Mat data. Results
+ * export as JSON or CSV with no dependencies, so the same engine serves the app and the headless
+ * runner.
+ */
+public class StageBenchmark {
+    public interface Stage {
+        void run() throws Exception;
+    }
+
+    /** Bytes allocated so far by the current thread, e.g. from {@code Debug.getThreadAllocSize()}. */
+    public interface AllocationCounter {
+        long allocatedBytes();
+    }
+
+    private final List<String> mNames = new ArrayList<String>();
+    private final List<Stage> mStages = new ArrayList<Stage>();
+    private int mWarmup = 3;
+    private int mRuns = 10;
+    private AllocationCounter mCounter = threadAllocationCounter();
+
+    public StageBenchmark addStage(String name, Stage stage) {
+        mNames.add(name);
+        mStages.add(stage);
+        return this;
+    }
+
+    public void setWarmup(int warmup) {
+        if (warmup < 0)
+            throw new IllegalArgumentException("Invalid warm-up count " + warmup);
+        mWarmup = warmup;
+    }
+
+    public void setRuns(int runs) {
+        if (runs <= 0)
+            throw new IllegalArgumentException("Invalid run count " + runs);
+        mRuns = runs;
+    }
+
+    /** Counter for allocation figures, null to skip them. Defaults to HotSpot's per-thread counter where present. */
+    public void setAllocationCounter(AllocationCounter counter) {
+        mCounter = counter;
+    }
+
+    public Report run() throws Exception {
+        int stages = mStages.size();
+        if (stages == 0)
+            throw new IllegalStateException("No stages added");
+        for (int i = 0; i < mWarmup; i++) {
+            for (Stage stage : mStages)
+                stage.run();
+        }
+
+        AllocationCounter counter = mCounter;
+        long counterCost = 0;
+        if (counter != null) {
+            long a = counter.allocatedBytes();
+            long b = counter.allocatedBytes();
+            counterCost = b - a;
+        }
+        long[][] times = new long[stages + 1][mRuns];
+        long[] allocated = new long[stages + 1];
+        for (int r = 0; r < mRuns; r++) {
+            long total = 0;
+            for (int s = 0; s < stages; s++) {
+                long before = counter != null ? counter.allocatedBytes() : 0;
+                long start = System.nanoTime();
+                mStages.get(s).run();
+                long elapsed = System.nanoTime() - start;
+                if (counter != null)
+                    allocated[s] += Math.max(0, counter.allocatedBytes() - before - counterCost);
+                times[s][r] = elapsed;
+                total += elapsed;
+            }
+            times[stages][r] = total;
+        }
+
+        Stats[] stats = new Stats[stages + 1];
+        long allocatedTotal = 0;
+        for (int s = 0; s <= stages; s++) {
+            if (s < stages)
+                allocatedTotal += allocated[s];
+            long bytes = s < stages ? allocated[s] : allocatedTotal;
+            stats[s] = new Stats(s < stages ? mNames.get(s) : "total", times[s],
+                    counter != null ? bytes / mRuns : -1);
+        }
+        return new Report(mWarmup, mRuns, stats);
+    }
+
+    /**
+     * HotSpot's {@code com.sun.management.ThreadMXBean.getThreadAllocatedBytes}, looked up
+     * reflectively so this class still loads on Android; null where it is not available.
+     */
+    public static AllocationCounter threadAllocationCounter() {
+        try {
+            final Object bean = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+            Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (!type.isInstance(bean))
+                return null;
+            final Method method = type.getMethod("getThreadAllocatedBytes", long.class);
+            if ((Long) method.invoke(bean, Thread.currentThread().getId()) < 0)
+                return null;
+            return new AllocationCounter() {
+                @Override
+                public long allocatedBytes() {
+                    try {
+                        return (Long) method.invoke(bean, Thread.currentThread().getId());
+                    } catch (Exception e) {
+                        return 0;
+                    }
+                }
+            };
+        } catch (Exception | LinkageError e) {
+            // Not HotSpot, e.g. Android
+            return null;
+        }
+    }
+
+    /** Timings of one stage, in nanoseconds. */
+    public static final class Stats {
+        private final String mName;
+        private final long mMin;
+        private final long mMedian;
+        private final long mP95;
+        private final long mP99;
+        private final double mMean;
+        private final long mAllocatedBytes;
+
+        Stats(String name, long[] times, long allocatedBytes) {
+            long[] sorted = times.clone();
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long t : sorted)
+                sum += t;
+            mName = name;
+            mMin = sorted[0];
+            mMedian = percentile(sorted, 50);
+            mP95 = percentile(sorted, 95);
+            mP99 = percentile(sorted, 99);
+            mMean = (double) sum / sorted.length;
+            mAllocatedBytes = allocatedBytes;
+        }
+
+        /** Nearest-rank percentile of a sorted array. */
+        static long percentile(long[] sorted, int p) {
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public long getMinNanos() {
+            return mMin;
+        }
+
+        public long getMedianNanos() {
+            return mMedian;
+        }
+
+        public long getP95Nanos() {
+            return mP95;
+        }
+
+        public long getP99Nanos() {
+            return mP99;
+        }
+
+        public double getMeanNanos() {
+            return mMean;
+        }
+
+        /** Heap bytes allocated per run, or -1 without an allocation counter. */
+        public long getAllocatedBytes() {
+            return mAllocatedBytes;
+        }
+    }
+
+    public static final class Report {
+        private final int mWarmup;
+        private final int mRuns;
+        private final Stats[] mStats;
+
+        Report(int warmup, int runs, Stats[] stats) {
+            mWarmup = warmup;
+            mRuns = runs;
+            mStats = stats;
+        }
+
+        public int getWarmup() {
+            return mWarmup;
+        }
+
+        public int getRuns() {
+            return mRuns;
+        }
+
+        /** One entry per stage in the order added, followed by the per-iteration total. */
+        public List<Stats> getStats() {
+            return Arrays.asList(mStats);
+        }
+
+        /** The stage called {@code name}, or null. */
+        public Stats getStats(String name) {
+            for (Stats stats : mStats) {
+                if (stats.mName.equals(name))
+                    return stats;
+            }
+            return null;
+        }
+
+        public String toCsv() {
+            StringBuilder sb = new StringBuilder("stage,runs,min_ns,median_ns,p95_ns,p99_ns,mean_ns,alloc_bytes\n");
+            for (Stats s : mStats) {
+                sb.append(s.mName.replace(',', ' ')).append(',').append(mRuns).append(',')
+                        .append(s.mMin).append(',').append(s.mMedian).append(',')
+                        .append(s.mP95).append(',').append(s.mP99).append(',')
+                        .append(String.format(Locale.ROOT, "%.1f", s.mMean)).append(',')
+                        .append(s.mAllocatedBytes).append('\n');
+            }
+            return sb.toString();
+        }
+
+        public String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"warmup\":").append(mWarmup).append(",\"runs\":").append(mRuns).append(",\"stages\":[");
+            for (int i = 0; i < mStats.length; i++) {
+                Stats s = mStats[i];
+                if (i > 0)
+                    sb.append(',');
+                sb.append("{\"name\":\"").append(escape(s.mName)).append('"')
+                        .append(",\"min_ns\":").append(s.mMin)
+                        .append(",\"median_ns\":").append(s.mMedian)
+                        .append(",\"p95_ns\":").append(s.mP95)
+                        .append(",\"p99_ns\":").append(s.mP99)
+                        .append(",\"mean_ns\":").append(String.format(Locale.ROOT, "%.1f", s.mMean))
+                        .append(",\"alloc_bytes\":").append(s.mAllocatedBytes)
+                        .append('}');
+            }
+            return sb.append("]}").toString();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Stats s : mStats) {
+                sb.append(String.format(Locale.ROOT, "%-12s min %8.3f  median %8.3f  p95 %8.3f  p99 %8.3f ms",
+                        s.mName, s.mMin / 1e6, s.mMedian / 1e6, s.mP95 / 1e6, s.mP99 / 1e6));
+                if (s.mAllocatedBytes >= 0)
+                    sb.append(String.format(Locale.ROOT, "  alloc %d B", s.mAllocatedBytes));
+                sb.append('\n');
+            }
+            return sb.toString();
+        }
+
+        private static String escape(String s) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\')
+                    sb.append('\\').append(c);
+                else if (c < 0x20)
+                    sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                else
+                    sb.append(c);
+            }
+            return sb.toString();
+        }
+    }
+}
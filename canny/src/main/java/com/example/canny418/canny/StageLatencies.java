@@ -0,0 +1,134 @@
+package com.example.canny418.canny;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * A fixed set of named pipeline stages, each with its own {@link LatencyHistogram}.
+ *
+ * Stages are named up front and recorded by index, so the hot path is one array read plus the
+ * histogram update. {@link #start} runs a daemon thread that snapshots and resets every stage
+ * once per period. The last complete window stays available through {@link #getLatest} and
+ * {@link #dump}, and a listener can react to each new window.
+ */
+public class StageLatencies {
+    public interface Listener {
+        /** Called on the reporter thread after each window has been snapshotted. */
+        void onWindow(StageLatencies latencies);
+    }
+
+    private final String[] mNames;
+    private final LatencyHistogram[] mHistograms;
+    private volatile LatencyHistogram.Snapshot[] mLatest;
+    private volatile long mWindowNanos;
+    private Thread mReporter;
+
+    public StageLatencies(String... names) {
+        mNames = names.clone();
+        mHistograms = new LatencyHistogram[names.length];
+        for (int i = 0; i < names.length; i++)
+            mHistograms[i] = new LatencyHistogram();
+    }
+
+    public int getStageCount() {
+        return mNames.length;
+    }
+
+    public String getName(int stage) {
+        return mNames[stage];
+    }
+
+    /** Index of the stage called {@code name}, or -1. */
+    public int indexOf(String name) {
+        for (int i = 0; i < mNames.length; i++) {
+            if (mNames[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    public void record(int stage, long nanos) {
+        mHistograms[stage].record(nanos);
+    }
+
+    /** Starts snapshotting every {@code periodMillis}; {@code listener} may be null. */
+    public synchronized void start(final long periodMillis, final Listener listener) {
+        if (periodMillis <= 0)
+            throw new IllegalArgumentException("Invalid period " + periodMillis);
+        stop();
+        snapshotAll();
+        mReporter = new Thread("stage-latencies") {
+            @Override
+            public void run() {
+                while (!isInterrupted()) {
+                    try {
+                        Thread.sleep(periodMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    snapshotAll();
+                    if (listener != null)
+                        listener.onWindow(StageLatencies.this);
+                }
+            }
+        };
+        mReporter.setDaemon(true);
+        mReporter.start();
+    }
+
+    public synchronized void stop() {
+        if (mReporter != null) {
+            mReporter.interrupt();
+            mReporter = null;
+        }
+    }
+
+    /** Closes the current window now, as the reporter thread does once per period. */
+    public void snapshotAll() {
+        LatencyHistogram.Snapshot[] window = new LatencyHistogram.Snapshot[mHistograms.length];
+        long now = System.nanoTime();
+        for (int i = 0; i < window.length; i++)
+            window[i] = mHistograms[i].snapshotAndReset();
+        mWindowNanos = now;
+        mLatest = window;
+    }
+
+    /** The last complete window of {@code stage}, or null before the first one. */
+    public LatencyHistogram.Snapshot getLatest(int stage) {
+        LatencyHistogram.Snapshot[] latest = mLatest;
+        return latest != null ? latest[stage] : null;
+    }
+
+    /** {@link System#nanoTime()} at which the last window was closed. */
+    public long getWindowNanos() {
+        return mWindowNanos;
+    }
+
+    /**
+     * Writes the last complete window as CSV, one row per stage with percentiles in nanoseconds.
+     * With {@code header} the column names come first.
+     */
+    public void dump(Appendable out, boolean header) throws IOException {
+        LatencyHistogram.Snapshot[] latest = mLatest;
+        if (header)
+            out.append("window_ns,stage,count,mean_ns,p50_ns,p90_ns,p99_ns,p999_ns,max_ns\n");
+        if (latest == null)
+            return;
+        for (int i = 0; i < latest.length; i++) {
+            LatencyHistogram.Snapshot s = latest[i];
+            out.append(String.format(Locale.ROOT, "%d,%s,%d,%.1f,%d,%d,%d,%d,%d\n", mWindowNanos, mNames[i],
+                    s.getCount(), s.getMeanNanos(), s.getValueAtPercentile(50), s.getValueAtPercentile(90),
+                    s.getValueAtPercentile(99), s.getValueAtPercentile(99.9), s.getMaxNanos()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < mNames.length; i++) {
+            LatencyHistogram.Snapshot s = getLatest(i);
+            sb.append(mNames[i]).append(": ").append(s != null ? s : "no data").append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.canny418.canny;
+
+import java.util.Arrays;
+
+/**
+ * Canny edge detector that fuses gray conversion, blur, Sobel, magnitude and NMS into a single
+ * top-to-bottom pass over a {@link RowSource}.
+ *
+ * Each stage keeps only the rows its kernel needs in a small ring: 2r + 1 input rows for the
+ * blur and for Sobel, two rows of derivatives and three rows of magnitude. Apart from the
+ * edge map, which hysteresis needs in full, working memory is O(width), so large images can be
+ * fed straight from a decoder without ever building a full frame. The output is identical to
+ * {@link CannyEdgeDetector} run on the gray image.
+ *
+ * Thresholds are fixed, since automatic ones need the histogram of the whole frame before NMS
+ * can start, and the rows run the scalar kernels: setting an {@link AutoThreshold} or kernels
+ * other than {@link GradientKernels#scalar()} throws {@link UnsupportedOperationException}.
+ * A {@link UnionFindHysteresis} is honoured.
+ */
+public class StreamingCannyEdgeDetector extends CannyEdgeDetector {
+    private final ArrayRowSource mArraySource = new ArrayRowSource();
+
+    private byte[] mInputRow = new byte[0];
+    private byte[] mGrayRing = new byte[0];
+    private byte[] mBlurRing = new byte[0];
+    private short[] mDx = new short[0];
+    private short[] mDy = new short[0];
+    /** Three magnitude rows plus a zero row, each padded by one pixel on both sides. */
+    private int[] mMag = new int[0];
+    private int[] mRowA = new int[0];
+    private int[] mRowB = new int[0];
+    private byte[] mMap = new byte[0];
+    private int[] mStack = new int[0];
+
+    // Per call state
+    private int mWidth;
+    private int mHeight;
+    private int mLow;
+    private int mHigh;
+    private int mTop;
+
+    public StreamingCannyEdgeDetector(double threshold1, double threshold2) {
+        super(threshold1, threshold2);
+    }
+
+    public StreamingCannyEdgeDetector(double threshold1, double threshold2, int apertureSize, boolean L2gradient) {
+        super(threshold1, threshold2, apertureSize, L2gradient);
+    }
+
+    /** Only null is accepted; thresholds cannot wait for the whole frame. */
+    @Override
+    public void setAutoThreshold(AutoThreshold autoThreshold) {
+        if (autoThreshold != null)
+            throw new UnsupportedOperationException("Automatic thresholds are not supported when streaming");
+    }
+
+    /** Only {@link GradientKernels#scalar()} is accepted, which is what the rows run. */
+    @Override
+    public void setGradientKernels(GradientKernels kernels) {
+        if (kernels != GradientKernels.scalar())
+            throw new UnsupportedOperationException("Streaming only runs the scalar kernels");
+    }
+
+    @Override
+    public GradientKernels getGradientKernels() {
+        return GradientKernels.scalar();
+    }
+
+    @Override
+    public void detect(byte[] src, int width, int height, byte[] dst) {
+        checkImage(src, width, height, dst);
+        detect(mArraySource.set(src, width, height, 1, width), dst);
+    }
+
+    /** Streams {@code source} through the detector; {@code dst} receives {@code width * height} bytes. */
+    @Override
+    public void detect(RowSource source, byte[] dst) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int channels = source.getChannels();
+        ColorConversion.checkChannels(channels);
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        if (dst.length < width * height)
+            throw new IllegalArgumentException("dst too small for a " + width + "x" + height + " image");
+
+        int aperture = getApertureSize();
+        int blurSize = getBlurSize();
+        int rs = aperture >> 1;
+        int rb = blurSize >> 1;
+        int grayRows = blurSize != 0 ? 2 * rb + 1 : 2 * rs + 1;
+        int sobelRows = 2 * rs + 1;
+        ensure(width, height, channels, grayRows, sobelRows);
+
+        mWidth = width;
+        mHeight = height;
+        mLow = lowThreshold(getThreshold1(), getThreshold2(), aperture, isL2Gradient());
+        mHigh = highThreshold(getThreshold1(), getThreshold2(), aperture, isL2Gradient());
+        mTop = 0;
+        Hysteresis.clearBorder(mMap, width, height);
+
+        byte[] sobelSrc = blurSize != 0 ? mBlurRing : mGrayRing;
+        int sobelRing = blurSize != 0 ? sobelRows : grayRows;
+        int blurred = 0;
+        int sobel = 0;
+        for (int y = 0; y < height; y++) {
+            int slot = (y % grayRows) * width;
+            if (channels == 1) {
+                source.readRow(y, mGrayRing, slot);
+            } else {
+                source.readRow(y, mInputRow, 0);
+                ColorConversion.toGray(mInputRow, 0, channels, mGrayRing, slot, width);
+            }
+
+            if (blurSize != 0) {
+                // Blurred row b is ready once gray row b + rb (or the last row) is in the ring
+                while (blurred < height && Math.min(height - 1, blurred + rb) <= y) {
+                    Gaussian.blurRow(mGrayRing, width, height, grayRows, blurSize, blurred, 0, width,
+                            mBlurRing, (blurred % sobelRows) * width, mRowA);
+                    blurred++;
+                    sobel = gradientRows(sobelSrc, sobelRing, sobel, blurred - 1);
+                }
+            } else {
+                sobel = gradientRows(sobelSrc, sobelRing, sobel, y);
+            }
+        }
+        suppressRow(height - 1);
+
+        mStack = traceHysteresis(mMap, width, height, mStack, mTop);
+        Hysteresis.toEdges(mMap, width, height, dst);
+    }
+
+    /** Computes every gradient row whose Sobel window is available up to row {@code avail}, running NMS one row behind. */
+    private int gradientRows(byte[] src, int ringRows, int sobel, int avail) {
+        int width = mWidth;
+        int height = mHeight;
+        int aperture = getApertureSize();
+        int rs = aperture >> 1;
+        while (sobel < height && Math.min(height - 1, sobel + rs) <= avail) {
+            int slot = (sobel & 1) * width;
+            Sobel.gradientRow(src, width, height, ringRows, sobel, 0, width, aperture,
+                    mDx, mDy, slot, mRowA, mRowB);
+            Sobel.magnitudeRow(mDx, mDy, slot, width, isL2Gradient(), mMag, magRow(sobel % 3));
+            if (sobel > 0)
+                suppressRow(sobel - 1);
+            sobel++;
+        }
+        return sobel;
+    }
+
+    private void suppressRow(int y) {
+        int width = mWidth;
+        if (mStack.length < mTop + width)
+            mStack = Arrays.copyOf(mStack, Math.max(mTop + width, mStack.length * 2));
+        int prev = y == 0 ? magRow(3) : magRow((y - 1) % 3);
+        int next = y == mHeight - 1 ? magRow(3) : magRow((y + 1) % 3);
+        mTop = NonMaxSuppression.suppressRow(mDx, mDy, (y & 1) * width, width,
+                mMag, prev, magRow(y % 3), next, mLow, mHigh,
+                mMap, (y + 1) * (width + 2) + 1, mStack, mTop);
+    }
+
+    private int magRow(int slot) {
+        return slot * (mWidth + 2) + 1;
+    }
+
+    private void ensure(int width, int height, int channels, int grayRows, int sobelRows) {
+        if (mInputRow.length < width * channels)
+            mInputRow = new byte[width * channels];
+        if (mGrayRing.length < grayRows * width)
+            mGrayRing = new byte[grayRows * width];
+        if (mBlurRing.length < sobelRows * width)
+            mBlurRing = new byte[sobelRows * width];
+        if (mDx.length < 2 * width) {
+            mDx = new short[2 * width];
+            mDy = new short[2 * width];
+        }
+        if (mMag.length < 4 * (width + 2))
+            mMag = new int[4 * (width + 2)];
+        else
+            Arrays.fill(mMag, 0, 4 * (width + 2), 0);
+        if (mRowA.length < width + 8) {
+            mRowA = new int[width + 8];
+            mRowB = new int[width + 8];
+        }
+        int padded = (width + 2) * (height + 2);
+        if (mMap.length < padded)
+            mMap = new byte[padded];
+        if (mStack.length == 0)
+            mStack = new int[4 * (width + 2)];
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.canny418.canny;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Canny edge detector that splits the image into tiles processed on a {@link ForkJoinPool}.
+ *
+ * Each tile computes blur, Sobel and magnitude over its core plus a halo wide enough for the
+ * kernels and for NMS to see its neighbours, so the per-tile results are identical to a full
+ * frame run. Hysteresis is first run inside each tile; strong pixels on tile borders are then
+ * used to seed one flood over the whole map, which carries edges across tiles and gives exactly
+ * the single-threaded result.
+ *
+ * Tiles always use the scalar fixed-threshold stages and the stack flood fill: setting an
+ * {@link AutoThreshold}, a {@link UnionFindHysteresis} or kernels other than
+ * {@link GradientKernels#scalar()} throws {@link UnsupportedOperationException}.
+ */
+public class TiledCannyEdgeDetector extends CannyEdgeDetector implements AutoCloseable {
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private final ForkJoinPool mPool;
+    private final boolean mOwnsPool;
+    private int mTileWidth = DEFAULT_TILE_SIZE;
+    private int mTileHeight = DEFAULT_TILE_SIZE;
+
+    private final ThreadLocal<CannyWorkspace> mTileWorkspaces = new ThreadLocal<CannyWorkspace>() {
+        @Override
+        protected CannyWorkspace initialValue() {
+            return new CannyWorkspace();
+        }
+    };
+
+    // Global map and stitching stack, touched only by the calling thread
+    private byte[] mMap = new byte[0];
+    private int[] mStack = new int[0];
+
+    // Per call state shared with the tile tasks
+    private byte[] mSrc;
+    private int mWidth;
+    private int mHeight;
+    private int mLow;
+    private int mHigh;
+
+    private TileTask[] mTiles = new TileTask[0];
+    private int mLayoutWidth = -1;
+    private int mLayoutHeight = -1;
+    @SuppressWarnings("serial")
+    private final RecursiveAction mRoot = new RecursiveAction() {
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(mTiles);
+        }
+    };
+
+    /** Creates a detector with its own pool of {@code parallelism} threads; release it with {@link #close()}. */
+    public TiledCannyEdgeDetector(double threshold1, double threshold2, int apertureSize, boolean L2gradient,
+                                  int parallelism) {
+        super(threshold1, threshold2, apertureSize, L2gradient);
+        mPool = new ForkJoinPool(parallelism);
+        mOwnsPool = true;
+    }
+
+    /** Creates a detector running on a shared pool, which {@link #close()} leaves alone. */
+    public TiledCannyEdgeDetector(double threshold1, double threshold2, int apertureSize, boolean L2gradient,
+                                  ForkJoinPool pool) {
+        super(threshold1, threshold2, apertureSize, L2gradient);
+        mPool = pool;
+        mOwnsPool = false;
+    }
+
+    public void setTileSize(int tileWidth, int tileHeight) {
+        if (tileWidth <= 0 || tileHeight <= 0)
+            throw new IllegalArgumentException("Invalid tile size " + tileWidth + "x" + tileHeight);
+        mTileWidth = tileWidth;
+        mTileHeight = tileHeight;
+        mLayoutWidth = -1;
+    }
+
+    public int getTileWidth() {
+        return mTileWidth;
+    }
+
+    public int getTileHeight() {
+        return mTileHeight;
+    }
+
+    public int getParallelism() {
+        return mPool.getParallelism();
+    }
+
+    /** Only null is accepted; tiles always use the flood fill. */
+    @Override
+    public void setUnionFindHysteresis(UnionFindHysteresis unionFind) {
+        if (unionFind != null)
+            throw new UnsupportedOperationException("Union-find hysteresis is not supported by tiles");
+    }
+
+    /** Only null is accepted; per-frame thresholds would need a histogram of the whole frame first. */
+    @Override
+    public void setAutoThreshold(AutoThreshold autoThreshold) {
+        if (autoThreshold != null)
+            throw new UnsupportedOperationException("Automatic thresholds are not supported by tiles");
+    }
+
+    /** Only {@link GradientKernels#scalar()} is accepted, which is what the tiles run. */
+    @Override
+    public void setGradientKernels(GradientKernels kernels) {
+        if (kernels != GradientKernels.scalar())
+            throw new UnsupportedOperationException("Tiles only run the scalar kernels");
+    }
+
+    @Override
+    public GradientKernels getGradientKernels() {
+        return GradientKernels.scalar();
+    }
+
+    @Override
+    public void detect(byte[] src, int width, int height, byte[] dst) {
+        checkImage(src, width, height, dst);
+        int padded = (width + 2) * (height + 2);
+        if (mMap.length < padded) {
+            mMap = new byte[padded];
+            mStack = new int[padded];
+        }
+        if (width != mLayoutWidth || height != mLayoutHeight)
+            layoutTiles(width, height);
+
+        mSrc = src;
+        mWidth = width;
+        mHeight = height;
+        mLow = lowThreshold(getThreshold1(), getThreshold2(), getApertureSize(), isL2Gradient());
+        mHigh = highThreshold(getThreshold1(), getThreshold2(), getApertureSize(), isL2Gradient());
+        Hysteresis.clearBorder(mMap, width, height);
+
+        for (TileTask tile : mTiles)
+            tile.reinitialize();
+        mRoot.reinitialize();
+        mPool.invoke(mRoot);
+        mSrc = null;
+
+        Hysteresis.trace(mMap, width + 2, mStack, stitchSeeds());
+        Hysteresis.toEdges(mMap, width, height, dst);
+    }
+
+    @Override
+    public void close() {
+        if (mOwnsPool)
+            mPool.shutdown();
+    }
+
+    private void layoutTiles(int width, int height) {
+        int cols = (width + mTileWidth - 1) / mTileWidth;
+        int rows = (height + mTileHeight - 1) / mTileHeight;
+        mTiles = new TileTask[cols * rows];
+        for (int ty = 0; ty < rows; ty++) {
+            for (int tx = 0; tx < cols; tx++) {
+                int x0 = tx * mTileWidth;
+                int y0 = ty * mTileHeight;
+                mTiles[ty * cols + tx] = new TileTask(x0, y0,
+                        Math.min(width, x0 + mTileWidth), Math.min(height, y0 + mTileHeight));
+            }
+        }
+        mLayoutWidth = width;
+        mLayoutHeight = height;
+    }
+
+    /** Pushes every strong pixel on a tile border; these are the only places an edge can leave a tile. */
+    private int stitchSeeds() {
+        int step = mWidth + 2;
+        int top = 0;
+        for (TileTask t : mTiles) {
+            for (int y = t.mY0; y < t.mY1; y++) {
+                int row = (y + 1) * step + 1;
+                if (y == t.mY0 || y == t.mY1 - 1) {
+                    for (int x = t.mX0; x < t.mX1; x++)
+                        if (mMap[row + x] == Hysteresis.STRONG)
+                            mStack[top++] = row + x;
+                } else {
+                    if (mMap[row + t.mX0] == Hysteresis.STRONG)
+                        mStack[top++] = row + t.mX0;
+                    if (t.mX1 - 1 > t.mX0 && mMap[row + t.mX1 - 1] == Hysteresis.STRONG)
+                        mStack[top++] = row + t.mX1 - 1;
+                }
+            }
+        }
+        return top;
+    }
+
+    @SuppressWarnings("serial")
+    private final class TileTask extends RecursiveAction {
+        final int mX0, mY0, mX1, mY1;
+
+        TileTask(int x0, int y0, int x1, int y1) {
+            mX0 = x0;
+            mY0 = y0;
+            mX1 = x1;
+            mY1 = y1;
+        }
+
+        @Override
+        protected void compute() {
+            int width = mWidth;
+            CannyWorkspace ws = mTileWorkspaces.get();
+            CannyRegion.ensure(ws, mTileWidth, mTileHeight, getApertureSize());
+
+            // NMS and local hysteresis on a tile sized map, so the flood cannot leave the tile
+            int cw = mX1 - mX0, ch = mY1 - mY0;
+            int mapStep = cw + 2;
+            Hysteresis.clearBorder(ws.mMap, cw, ch);
+            int top = CannyRegion.suppress(mSrc, width, mHeight, getBlurSize(), getApertureSize(), isL2Gradient(),
+                    mLow, mHigh, mX0, mY0, mX1, mY1, ws, ws.mMap, mapStep + 1, mapStep, ws.mStack, 0);
+            Hysteresis.trace(ws.mMap, mapStep, ws.mStack, top);
+
+            int globalStep = width + 2;
+            for (int y = mY0; y < mY1; y++)
+                System.arraycopy(ws.mMap, (y - mY0 + 1) * mapStep + 1, mMap, (y + 1) * globalStep + 1 + mX0, cw);
+        }
+    }
+}
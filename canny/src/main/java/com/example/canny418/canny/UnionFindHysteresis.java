@@ -0,0 +1,242 @@
+package com.example.canny418.canny;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel replacement for {@link Hysteresis#trace}: labels the connected components of
+ * {@link Hysteresis#WEAK} and {@link Hysteresis#STRONG} pixels with a union-find over an
+ * {@code int[]} parent array and promotes every component that contains a strong pixel.
+ *
+ * The map is cut into bands of rows. Bands are labelled in parallel, each touching only its own
+ * part of the parent array, and each root records in the map whether its component holds a
+ * strong pixel. The band seams are then merged serially, which costs one row per band. The final
+ * promotion is parallel again and only writes non-root pixels while reading roots. Seams could be
+ * merged concurrently with {@code AtomicIntegerArray.compareAndSet}, but with one row per band
+ * the serial merge is cheap and keeps every write of a phase disjoint, without locks or atomics.
+ * The result is bit-exact with the stack flood fill.
+ *
+ * It visits every pixel where the flood fill only visits edges, so on a single core it is
+ * slower than the flood fill and can only win with several; compare the two on the target with
+ * {@code :canny:benchHysteresis} before enabling it.
+ */
+public class UnionFindHysteresis {
+    private static final int LABEL = 0;
+    private static final int PROMOTE = 1;
+
+    private final ForkJoinPool mPool;
+    private int mBandRows = 0;
+
+    private int[] mParent = new int[0];
+    private BandTask[] mBands = new BandTask[0];
+    private int mLayoutHeight = -1;
+    private int mLayoutBandRows = -1;
+
+    // Per call state shared with the band tasks
+    private byte[] mMap;
+    private int mWidth;
+    private int mPhase;
+
+    @SuppressWarnings("serial")
+    private final RecursiveAction mRoot = new RecursiveAction() {
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(mBands);
+        }
+    };
+
+    public UnionFindHysteresis(ForkJoinPool pool) {
+        mPool = pool;
+    }
+
+    /** Rows per band; 0 (the default) picks about four bands per pool thread. */
+    public void setBandRows(int bandRows) {
+        if (bandRows < 0)
+            throw new IllegalArgumentException("Invalid band size " + bandRows);
+        mBandRows = bandRows;
+    }
+
+    /**
+     * Runs hysteresis on a padded {@code (width + 2) x (height + 2)} map as produced by
+     * {@link NonMaxSuppression}, promoting connected weak pixels to {@link Hysteresis#STRONG}.
+     */
+    public void trace(byte[] map, int width, int height) {
+        int padded = (width + 2) * (height + 2);
+        if (mParent.length < padded)
+            mParent = new int[padded];
+        int bands = 4 * mPool.getParallelism();
+        int bandRows = mBandRows != 0 ? mBandRows : Math.max(8, (height + bands - 1) / bands);
+        if (height != mLayoutHeight || bandRows != mLayoutBandRows)
+            layoutBands(height, bandRows);
+
+        mMap = map;
+        mWidth = width;
+        runPhase(LABEL);
+        mergeSeams();
+        runPhase(PROMOTE);
+        mMap = null;
+    }
+
+    private void runPhase(int phase) {
+        mPhase = phase;
+        for (BandTask band : mBands)
+            band.reinitialize();
+        mRoot.reinitialize();
+        mPool.invoke(mRoot);
+    }
+
+    private void layoutBands(int height, int bandRows) {
+        int count = (height + bandRows - 1) / bandRows;
+        mBands = new BandTask[count];
+        for (int i = 0; i < count; i++)
+            mBands[i] = new BandTask(i * bandRows, Math.min(height, (i + 1) * bandRows));
+        mLayoutHeight = height;
+        mLayoutBandRows = bandRows;
+    }
+
+    /** Joins components across the first row of every band and the last row of the band above. */
+    private void mergeSeams() {
+        byte[] map = mMap;
+        int step = mWidth + 2;
+        for (int b = 1; b < mBands.length; b++) {
+            int row = (mBands[b].mY0 + 1) * step + 1;
+            for (int x = 0; x < mWidth; x++) {
+                int p = row + x;
+                if (map[p] == Hysteresis.NONE)
+                    continue;
+                int up = p - step;
+                if (map[up] != Hysteresis.NONE) {
+                    union(find(up), find(p));
+                } else {
+                    if (map[up - 1] != Hysteresis.NONE)
+                        union(find(up - 1), find(p));
+                    if (map[up + 1] != Hysteresis.NONE)
+                        union(find(up + 1), find(p));
+                }
+            }
+        }
+    }
+
+    /** Find with path halving; only called where the caller owns the touched part of the array. Keeps parents below children. */
+    private int find(int i) {
+        int[] parent = mParent;
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /** Read-only find for the parallel promotion. */
+    private int root(int i) {
+        int[] parent = mParent;
+        while (parent[i] != i)
+            i = parent[i];
+        return i;
+    }
+
+    /**
+     * Links two roots, the larger under the smaller so roots are always the first pixel of their
+     * component in raster order, and carries the strong flag over. Returns the surviving root.
+     */
+    private int union(int ra, int rb) {
+        if (ra == rb)
+            return ra;
+        int root = Math.min(ra, rb);
+        int child = Math.max(ra, rb);
+        mParent[child] = root;
+        if (mMap[child] == Hysteresis.STRONG)
+            mMap[root] = Hysteresis.STRONG;
+        return root;
+    }
+
+    @SuppressWarnings("serial")
+    private final class BandTask extends RecursiveAction {
+        final int mY0, mY1;
+
+        BandTask(int y0, int y1) {
+            mY0 = y0;
+            mY1 = y1;
+        }
+
+        @Override
+        protected void compute() {
+            if (mPhase == LABEL)
+                label();
+            else
+                promote();
+        }
+
+        /**
+         * Raster scan with the usual 8-connectivity decision tree: the pixel above is adjacent to
+         * every other already visited neighbour, so at most one union is needed per pixel. Pixels
+         * that need no union just copy a neighbour's parent, which keeps every parent index below
+         * its child and lets the flattening pass resolve roots in one step per pixel.
+         */
+        private void label() {
+            byte[] map = mMap;
+            int[] parent = mParent;
+            int width = mWidth;
+            int step = width + 2;
+            for (int y = mY0; y < mY1; y++) {
+                int row = (y + 1) * step + 1;
+                boolean first = y == mY0;
+                for (int x = 0; x < width; x++) {
+                    int p = row + x;
+                    if (map[p] == Hysteresis.NONE)
+                        continue;
+                    int up = p - step;
+                    if (first) {
+                        parent[p] = map[p - 1] != Hysteresis.NONE ? parent[p - 1] : p;
+                    } else if (map[up] != Hysteresis.NONE) {
+                        parent[p] = parent[up];
+                    } else if (map[up + 1] != Hysteresis.NONE) {
+                        int r = find(up + 1);
+                        if (map[p - 1] != Hysteresis.NONE)
+                            r = union(r, find(p - 1));
+                        else if (map[up - 1] != Hysteresis.NONE)
+                            r = union(r, find(up - 1));
+                        parent[p] = r;
+                    } else if (map[up - 1] != Hysteresis.NONE) {
+                        parent[p] = parent[up - 1];
+                    } else if (map[p - 1] != Hysteresis.NONE) {
+                        parent[p] = parent[p - 1];
+                    } else {
+                        parent[p] = p;
+                    }
+                }
+            }
+            // Flatten in raster order: parent[p] is smaller than p and already points at its root.
+            // Roots collect the strong flag of their component on the way.
+            for (int y = mY0; y < mY1; y++) {
+                int row = (y + 1) * step + 1;
+                for (int x = 0; x < width; x++) {
+                    int p = row + x;
+                    byte v = map[p];
+                    if (v == Hysteresis.NONE)
+                        continue;
+                    int r = parent[parent[p]];
+                    parent[p] = r;
+                    if (v == Hysteresis.STRONG)
+                        map[r] = Hysteresis.STRONG;
+                }
+            }
+        }
+
+        /** Promotes weak pixels whose root is strong. Only non-root pixels are written here and only roots are read. */
+        private void promote() {
+            byte[] map = mMap;
+            int width = mWidth;
+            int step = width + 2;
+            for (int y = mY0; y < mY1; y++) {
+                int row = (y + 1) * step + 1;
+                for (int x = 0; x < width; x++) {
+                    int p = row + x;
+                    if (map[p] == Hysteresis.WEAK && map[root(p)] == Hysteresis.STRONG)
+                        map[p] = Hysteresis.STRONG;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AutoThresholdTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void medianIgnoresZeroMagnitudes() {
+        AutoThreshold auto = new AutoThreshold(AutoThreshold.Method.MEDIAN);
+        auto.begin(3);
+        int[] histogram = auto.histogram();
+        histogram[0] = 1000;
+        histogram[5] = 3;
+        histogram[9] = 2;
+        auto.update(3);
+        assertEquals(0.67 * 5, auto.getLowThreshold(), EPSILON);
+        assertEquals(1.33 * 5, auto.getHighThreshold(), EPSILON);
+
+        // The median moves to the upper bin once it holds the majority
+        auto.reset();
+        auto.setSigma(0.5);
+        auto.begin(3);
+        histogram[5] = 2;
+        histogram[9] = 3;
+        auto.update(3);
+        assertEquals(4.5, auto.getLowThreshold(), EPSILON);
+        assertEquals(13.5, auto.getHighThreshold(), EPSILON);
+    }
+
+    @Test
+    public void otsuSplitsBetweenClusters() {
+        AutoThreshold auto = new AutoThreshold(AutoThreshold.Method.OTSU);
+        auto.begin(3);
+        int[] histogram = auto.histogram();
+        histogram[0] = 5000;
+        histogram[10] = 100;
+        histogram[12] = 100;
+        histogram[60] = 100;
+        auto.update(3);
+        // {10, 12} against {60} separates the classes better than {10} against {12, 60}
+        assertEquals(12, auto.getHighThreshold(), EPSILON);
+        assertEquals(6, auto.getLowThreshold(), EPSILON);
+
+        auto.reset();
+        auto.setLowRatio(0.25);
+        auto.begin(3);
+        histogram[10] = 100;
+        histogram[50] = 100;
+        auto.update(3);
+        assertEquals(10, auto.getHighThreshold(), EPSILON);
+        assertEquals(2.5, auto.getLowThreshold(), EPSILON);
+    }
+
+    @Test
+    public void largeAperturesBinBySixteen() {
+        AutoThreshold auto = new AutoThreshold(AutoThreshold.Method.MEDIAN);
+        auto.setSigma(0.5);
+        auto.begin(3);
+        assertEquals(0, auto.shift());
+        auto.begin(5);
+        assertEquals(4, auto.shift());
+        auto.histogram()[10] = 1;
+        auto.update(5);
+        // Bin 10 covers magnitudes 160 to 175
+        assertEquals(0.5 * 167.5, auto.getLowThreshold(), EPSILON);
+        assertEquals(1.5 * 167.5, auto.getHighThreshold(), EPSILON);
+
+        auto.reset();
+        auto.begin(7);
+        assertEquals(4, auto.shift());
+        auto.histogram()[10] = 1;
+        auto.update(7);
+        // Canny divides aperture 7 thresholds by 16, so they come out 16 times larger
+        assertEquals(16 * 0.5 * 167.5, auto.getLowThreshold(), EPSILON);
+        assertEquals(16 * 1.5 * 167.5, auto.getHighThreshold(), EPSILON);
+    }
+
+    @Test
+    public void smoothingAveragesAcrossUpdates() {
+        AutoThreshold auto = new AutoThreshold(AutoThreshold.Method.MEDIAN);
+        auto.setSigma(0.5);
+        auto.setSmoothing(0.25);
+
+        frame(auto, 40);
+        // The first frame is taken as is
+        assertEquals(20, auto.getLowThreshold(), EPSILON);
+        assertEquals(60, auto.getHighThreshold(), EPSILON);
+
+        frame(auto, 80);
+        assertEquals(20 + 0.25 * (40 - 20), auto.getLowThreshold(), EPSILON);
+        assertEquals(60 + 0.25 * (120 - 60), auto.getHighThreshold(), EPSILON);
+
+        frame(auto, 80);
+        assertEquals(25 + 0.25 * (40 - 25), auto.getLowThreshold(), EPSILON);
+        assertEquals(75 + 0.25 * (120 - 75), auto.getHighThreshold(), EPSILON);
+
+        auto.reset();
+        frame(auto, 10);
+        assertEquals(5, auto.getLowThreshold(), EPSILON);
+        assertEquals(15, auto.getHighThreshold(), EPSILON);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroSmoothing() {
+        new AutoThreshold(AutoThreshold.Method.OTSU).setSmoothing(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSmoothingAboveOne() {
+        new AutoThreshold(AutoThreshold.Method.OTSU).setSmoothing(1.5);
+    }
+
+    @Test
+    public void flatFrameGivesZeroThresholdsAndNoEdges() {
+        int width = 40, height = 30;
+        byte[] flat = new byte[width * height];
+        Arrays.fill(flat, (byte) 90);
+        for (AutoThreshold.Method method : AutoThreshold.Method.values()) {
+            AutoThreshold auto = new AutoThreshold(method);
+            CannyEdgeDetector canny = new CannyEdgeDetector(50, 150);
+            canny.setAutoThreshold(auto);
+            byte[] edges = new byte[width * height];
+            canny.detect(flat, width, height, edges);
+            assertEquals(method + " low", 0, auto.getLowThreshold(), EPSILON);
+            assertEquals(method + " high", 0, auto.getHighThreshold(), EPSILON);
+            assertArrayEquals(method.toString(), new byte[width * height], edges);
+        }
+    }
+
+    @Test
+    public void detectorUsesTheDerivedThresholds() {
+        for (AutoThreshold.Method method : AutoThreshold.Method.values()) {
+            for (int aperture = 3; aperture <= 7; aperture += 2) {
+                for (boolean l2 : new boolean[]{false, true}) {
+                    for (int[] size : TestImages.SIZES) {
+                        int width = size[0], height = size[1];
+                        byte[] src = TestImages.structured(width, height, width + height);
+                        AutoThreshold auto = new AutoThreshold(method);
+                        CannyEdgeDetector canny = new CannyEdgeDetector(0, 0, aperture, l2);
+                        canny.setAutoThreshold(auto);
+                        byte[] edges = new byte[width * height];
+                        canny.detect(src, width, height, edges);
+
+                        String message = method + " aperture " + aperture + " L2 " + l2 + " " + width + "x" + height;
+                        assertTrue(message, auto.getLowThreshold() <= auto.getHighThreshold());
+                        byte[] expected = new byte[width * height];
+                        new CannyEdgeDetector(auto.getLowThreshold(), auto.getHighThreshold(), aperture, l2)
+                                .detect(src, width, height, expected);
+                        assertArrayEquals(message, expected, edges);
+                    }
+                }
+            }
+        }
+    }
+
+    /** One frame whose only non-zero magnitude bin is {@code bin}. */
+    private static void frame(AutoThreshold auto, int bin) {
+        auto.begin(3);
+        auto.histogram()[0] = 100;
+        auto.histogram()[bin] = 10;
+        auto.update(3);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.canny418.canny;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchCannyEdgeDetectorTest {
+    private static final BatchCannyEdgeDetector.DetectorFactory FACTORY = new BatchCannyEdgeDetector.DetectorFactory() {
+        @Override
+        public CannyEdgeDetector create() {
+            return new CannyEdgeDetector(50, 150);
+        }
+    };
+
+    private BatchCannyEdgeDetector mBatch;
+
+    @After
+    public void tearDown() {
+        if (mBatch != null)
+            mBatch.close();
+    }
+
+    @Test
+    public void matchesSequentialDetection() throws InterruptedException {
+        final List<ArrayRowSource> images = new ArrayList<ArrayRowSource>();
+        final List<byte[]> expected = new ArrayList<byte[]>();
+        for (int[] size : TestImages.SIZES) {
+            for (byte[] image : TestImages.images(size[0], size[1], images.size())) {
+                images.add(new ArrayRowSource(image, size[0], size[1], 1));
+                expected.add(TestImages.reference(image, size[0], size[1], 3, false, 0));
+            }
+        }
+        final byte[][] results = new byte[images.size()][];
+        mBatch = new BatchCannyEdgeDetector(FACTORY, 3, 5);
+        // Twice, so the second batch runs on workers whose buffers already grew
+        for (int run = 0; run < 2; run++) {
+            mBatch.detect(images, new BatchCannyEdgeDetector.Callback() {
+                @Override
+                public void onEdges(int index, RowSource image, byte[] edges) {
+                    assertSame(images.get(index), image);
+                    byte[] copy = new byte[image.getWidth() * image.getHeight()];
+                    System.arraycopy(edges, 0, copy, 0, copy.length);
+                    results[index] = copy;
+                }
+            });
+            assertEquals(images.size(), mBatch.getImageCount());
+            for (int i = 0; i < images.size(); i++) {
+                assertNotNull("image " + i, results[i]);
+                assertArrayEquals("run " + run + " image " + i, expected.get(i), results[i]);
+                results[i] = null;
+            }
+        }
+    }
+
+    @Test
+    public void throwingCallbackAbortsBatch() throws InterruptedException {
+        final RuntimeException failure = new IllegalStateException("callback failed");
+        LazyImages images = new LazyImages(1000, 64, 48);
+        mBatch = new BatchCannyEdgeDetector(FACTORY, 2, 4);
+        try {
+            mBatch.detect(images, new BatchCannyEdgeDetector.Callback() {
+                @Override
+                public void onEdges(int index, RowSource image, byte[] edges) {
+                    if (index == 3)
+                        throw failure;
+                }
+            });
+            fail("The callback's exception was not rethrown");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        assertTrue("pulled " + images.mPulled.get(), images.mPulled.get() < images.mCount);
+
+        // A failed batch does not poison the next one
+        final AtomicInteger calls = new AtomicInteger();
+        mBatch.detect(new LazyImages(10, 64, 48), new BatchCannyEdgeDetector.Callback() {
+            @Override
+            public void onEdges(int index, RowSource image, byte[] edges) {
+                calls.incrementAndGet();
+            }
+        });
+        assertEquals(10, calls.get());
+    }
+
+    @Test
+    public void lazyIterableStaysWithinMaxInFlight() throws InterruptedException {
+        for (int maxInFlight = 2; maxInFlight <= 6; maxInFlight += 2) {
+            final LazyImages images = new LazyImages(200, 96, 64);
+            mBatch = new BatchCannyEdgeDetector(FACTORY, 2, maxInFlight);
+            mBatch.detect(images, new BatchCannyEdgeDetector.Callback() {
+                @Override
+                public void onEdges(int index, RowSource image, byte[] edges) {
+                    images.mOutstanding.decrementAndGet();
+                }
+            });
+            mBatch.close();
+            assertEquals(200, images.mPulled.get());
+            assertEquals(0, images.mOutstanding.get());
+            assertTrue("max in flight " + maxInFlight + ", peak " + images.mPeak.get(),
+                    images.mPeak.get() <= maxInFlight);
+            // Two workers and a fast iterator fill the window
+            assertTrue("max in flight " + maxInFlight + ", peak " + images.mPeak.get(), images.mPeak.get() >= 2);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void detectAfterCloseThrows() throws InterruptedException {
+        mBatch = new BatchCannyEdgeDetector(FACTORY, 2, 2);
+        mBatch.close();
+        // Closing again has no effect
+        mBatch.close();
+        mBatch.detect(new LazyImages(1, 8, 8), new BatchCannyEdgeDetector.Callback() {
+            @Override
+            public void onEdges(int index, RowSource image, byte[] edges) {
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWindowSmallerThanWorkers() {
+        new BatchCannyEdgeDetector(FACTORY, 4, 3);
+    }
+
+    /** Decodes each image only when the iterator reaches it, and counts the ones not yet called back. */
+    private static final class LazyImages implements Iterable<RowSource> {
+        final int mCount;
+        final int mWidth;
+        final int mHeight;
+        final AtomicInteger mPulled = new AtomicInteger();
+        final AtomicInteger mOutstanding = new AtomicInteger();
+        final AtomicInteger mPeak = new AtomicInteger();
+
+        LazyImages(int count, int width, int height) {
+            mCount = count;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public Iterator<RowSource> iterator() {
+            return new Iterator<RowSource>() {
+                private int mNext;
+
+                @Override
+                public boolean hasNext() {
+                    return mNext < mCount;
+                }
+
+                @Override
+                public RowSource next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    int outstanding = mOutstanding.incrementAndGet();
+                    while (true) {
+                        int peak = mPeak.get();
+                        if (outstanding <= peak || mPeak.compareAndSet(peak, outstanding))
+                            break;
+                    }
+                    mPulled.incrementAndGet();
+                    byte[] pixels = TestImages.structured(mWidth, mHeight, mNext++);
+                    return new ArrayRowSource(pixels, mWidth, mHeight, 1);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CannyEdgeDetector} against edges exported from OpenCV's {@code Imgproc.Canny}, with
+ * {@code GaussianBlur} in front when blurred; see {@code golden/cases.txt} and the
+ * {@code :canny:exportGolden} task that writes them.
+ */
+public class CannyGoldenTest {
+    private static final String DIR = "golden/";
+
+    @Test
+    public void matchesOpenCv() throws IOException {
+        List<String[]> cases = readCases();
+        // 5 images x 3 apertures x L1/L2 x 3 blur sizes
+        assertEquals(90, cases.size());
+        for (GradientKernels kernels : new GradientKernels[] {GradientKernels.scalar(), GradientKernels.best()}) {
+            for (String[] c : cases) {
+                BufferedImage input = read(c[0]);
+                int width = input.getWidth(), height = input.getHeight();
+                CannyEdgeDetector canny = new CannyEdgeDetector(Double.parseDouble(c[2]), Double.parseDouble(c[3]),
+                        Integer.parseInt(c[4]), Boolean.parseBoolean(c[5]));
+                canny.setBlurSize(Integer.parseInt(c[6]));
+                canny.setGradientKernels(kernels);
+                byte[] edges = new byte[width * height];
+                canny.detect(pixels(input), width, height, edges);
+                assertArrayEquals(c[1] + " with " + kernels.getName() + " kernels", pixels(read(c[1])), edges);
+            }
+        }
+    }
+
+    @Test
+    public void fixturesHaveEdgesToCompare() throws IOException {
+        int cases = 0, withEdges = 0;
+        for (String[] c : readCases()) {
+            byte[] edges = pixels(read(c[1]));
+            int count = 0;
+            for (byte e : edges)
+                if (e != 0)
+                    count++;
+            cases++;
+            if (count > 0 && count < edges.length)
+                withEdges++;
+        }
+        // Only the 3x2 image may come out all or nothing
+        assertTrue(withEdges + " of " + cases, withEdges >= cases - 18);
+    }
+
+    private static List<String[]> readCases() throws IOException {
+        InputStream in = CannyGoldenTest.class.getResourceAsStream(DIR + "cases.txt");
+        assertNotNull("cases.txt", in);
+        List<String[]> cases = new ArrayList<String[]>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#"))
+                    cases.add(line.split(" "));
+            }
+        } finally {
+            reader.close();
+        }
+        return cases;
+    }
+
+    private static BufferedImage read(String name) throws IOException {
+        InputStream in = CannyGoldenTest.class.getResourceAsStream(DIR + name);
+        assertNotNull(name, in);
+        try {
+            BufferedImage image = ImageIO.read(in);
+            assertEquals(name, BufferedImage.TYPE_BYTE_GRAY, image.getType());
+            return image;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CannyThresholdSweepTest {
+    /** Every ordered pair is tried, so half the grid has threshold1 above threshold2. */
+    private static final double[] THRESHOLDS = {0, 7.5, 20, 50, 100, 150, 400};
+    private static final int[][] SETTINGS = {
+            // aperture, L2, blur
+            {3, 0, 0}, {3, 1, 0}, {5, 0, 0}, {5, 1, 3}, {7, 0, 0}, {7, 1, 0}, {7, 1, 5},
+    };
+
+    @Test
+    public void matchesFreshDetectorForEveryPair() {
+        for (int[] setting : SETTINGS) {
+            int aperture = setting[0];
+            boolean l2 = setting[1] != 0;
+            int blur = setting[2];
+            CannyThresholdSweep sweep = new CannyThresholdSweep(aperture, l2);
+            sweep.setBlurSize(blur);
+            // One sweep across sizes also checks that a larger image left nothing behind
+            for (int[] size : TestImages.SIZES) {
+                int width = size[0], height = size[1];
+                byte[][] images = TestImages.images(width, height, 2);
+                for (int i = 0; i < images.length; i++) {
+                    sweep.prepare(images[i], width, height);
+                    for (double t1 : THRESHOLDS) {
+                        for (double t2 : THRESHOLDS) {
+                            CannyEdgeDetector canny = new CannyEdgeDetector(t1, t2, aperture, l2);
+                            canny.setBlurSize(blur);
+                            byte[] expected = new byte[width * height];
+                            canny.detect(images[i], width, height, expected);
+
+                            String message = TestImages.describe(width, height, i) + " aperture " + aperture
+                                    + " L2 " + l2 + " blur " + blur + " thresholds " + t1 + ", " + t2;
+                            byte[] edges = new byte[width * height];
+                            sweep.detect(t1, t2, edges);
+                            assertArrayEquals(message, expected, edges);
+                            assertEquals(message, count(expected), sweep.countEdges(t1, t2));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countsEveryPairOfArrays() {
+        int width = 100, height = 75;
+        byte[] src = TestImages.structured(width, height, 3);
+        CannyThresholdSweep sweep = new CannyThresholdSweep(3, false);
+        sweep.prepare(src, width, height);
+        double[] low = new double[THRESHOLDS.length * THRESHOLDS.length];
+        double[] high = new double[low.length];
+        for (int i = 0; i < THRESHOLDS.length; i++) {
+            for (int j = 0; j < THRESHOLDS.length; j++) {
+                low[i * THRESHOLDS.length + j] = THRESHOLDS[i];
+                high[i * THRESHOLDS.length + j] = THRESHOLDS[j];
+            }
+        }
+        int[] counts = new int[low.length];
+        sweep.countEdges(low, high, counts);
+        for (int i = 0; i < low.length; i++) {
+            byte[] expected = new byte[width * height];
+            new CannyEdgeDetector(low[i], high[i]).detect(src, width, height, expected);
+            assertEquals(low[i] + ", " + high[i], count(expected), counts[i]);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void detectNeedsPrepare() {
+        new CannyThresholdSweep(3, false).detect(50, 150, new byte[16]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMismatchedArrays() {
+        CannyThresholdSweep sweep = new CannyThresholdSweep(3, false);
+        sweep.prepare(new byte[4], 2, 2);
+        sweep.countEdges(new double[2], new double[3], new int[3]);
+    }
+
+    private static int count(byte[] edges) {
+        int n = 0;
+        for (byte e : edges)
+            if (e != 0)
+                n++;
+        return n;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColorCannyEdgeDetectorTest {
+    // Different hues whose BT.601 luminance rounds to the same gray level
+    private static final int[] RED = {255, 0, 0};
+    private static final int[] GREEN = {0, 130, 0};
+
+    @Test
+    public void grayPixelsMatchGrayDetector() {
+        for (int aperture = 3; aperture <= 7; aperture += 2) {
+            for (boolean l2 : new boolean[]{false, true}) {
+                ColorCannyEdgeDetector color = new ColorCannyEdgeDetector(50, 150, aperture, l2);
+                for (int[] size : TestImages.SIZES) {
+                    byte[][] images = TestImages.images(size[0], size[1], 4);
+                    for (int i = 0; i < images.length; i++) {
+                        byte[] expected = TestImages.reference(images[i], size[0], size[1], aperture, l2, 0);
+                        for (int channels = 1; channels <= 4; channels += channels == 1 ? 2 : 1) {
+                            byte[] edges = new byte[size[0] * size[1]];
+                            color.detect(expand(images[i], channels, 9), size[0], size[1], channels, edges);
+                            assertArrayEquals(TestImages.describe(size[0], size[1], i) + " aperture " + aperture
+                                    + " L2 " + l2 + " channels " + channels, expected, edges);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void isoLuminantBoundaryIsFoundOnlyInColour() {
+        int width = 40, height = 30;
+        for (int channels = 3; channels <= 4; channels++) {
+            byte[] rgb = new byte[width * height * channels];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int[] c = x < width / 2 ? RED : GREEN;
+                    int p = (y * width + x) * channels;
+                    for (int k = 0; k < 3; k++)
+                        rgb[p + k] = (byte) c[k];
+                    if (channels == 4)
+                        rgb[p + 3] = (byte) 255;
+                }
+            }
+            byte[] gray = new byte[width * height];
+            for (int y = 0; y < height; y++)
+                ColorConversion.toGray(rgb, y * width * channels, channels, gray, y * width, width);
+            assertEquals("RED and GREEN convert to the same gray", gray[0], gray[width - 1]);
+
+            byte[] grayEdges = new byte[width * height];
+            new CannyEdgeDetector(50, 150).detect(gray, width, height, grayEdges);
+            assertEquals(0, count(grayEdges));
+
+            byte[] colorEdges = new byte[width * height];
+            new ColorCannyEdgeDetector(50, 150).detect(rgb, width, height, channels, colorEdges);
+            // A one pixel wide vertical line down the boundary
+            assertEquals(height, count(colorEdges));
+            for (int y = 0; y < height; y++) {
+                byte left = colorEdges[y * width + width / 2 - 1];
+                byte right = colorEdges[y * width + width / 2];
+                assertTrue("row " + y, left != 0 || right != 0);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBlur() {
+        new ColorCannyEdgeDetector(50, 150).setBlurSize(3);
+    }
+
+    @Test
+    public void acceptsNoBlur() {
+        ColorCannyEdgeDetector color = new ColorCannyEdgeDetector(50, 150);
+        color.setBlurSize(0);
+        assertEquals(0, color.getBlurSize());
+    }
+
+    @Test
+    public void autoThresholdOnGrayPixelsMatchesGrayDetector() {
+        for (AutoThreshold.Method method : AutoThreshold.Method.values()) {
+            for (boolean l2 : new boolean[]{false, true}) {
+                for (int[] size : TestImages.SIZES) {
+                    int width = size[0], height = size[1];
+                    byte[] src = TestImages.structured(width, height, 8);
+
+                    AutoThreshold grayAuto = new AutoThreshold(method);
+                    CannyEdgeDetector gray = new CannyEdgeDetector(50, 150, 3, l2);
+                    gray.setAutoThreshold(grayAuto);
+                    byte[] expected = new byte[width * height];
+                    gray.detect(src, width, height, expected);
+
+                    AutoThreshold colorAuto = new AutoThreshold(method);
+                    ColorCannyEdgeDetector color = new ColorCannyEdgeDetector(50, 150, 3, l2);
+                    color.setAutoThreshold(colorAuto);
+                    byte[] edges = new byte[width * height];
+                    color.detect(expand(src, 4, 10), width, height, 4, edges);
+
+                    String message = method + " L2 " + l2 + " " + width + "x" + height;
+                    assertEquals(message, grayAuto.getLowThreshold(), colorAuto.getLowThreshold(), 0);
+                    assertEquals(message, grayAuto.getHighThreshold(), colorAuto.getHighThreshold(), 0);
+                    assertArrayEquals(message, expected, edges);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void autoThresholdFindsIsoLuminantEdges() {
+        int width = 64, height = 48;
+        byte[] rgb = new byte[width * height * 3];
+        Random random = new Random(12);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[] c = (x / 16 + y / 12) % 2 == 0 ? RED : GREEN;
+                for (int k = 0; k < 3; k++)
+                    rgb[(y * width + x) * 3 + k] = (byte) Math.max(0, Math.min(255, c[k] + random.nextInt(5) - 2));
+            }
+        }
+        AutoThreshold auto = new AutoThreshold(AutoThreshold.Method.OTSU);
+        ColorCannyEdgeDetector color = new ColorCannyEdgeDetector(0, 0);
+        color.setAutoThreshold(auto);
+        byte[] edges = new byte[width * height];
+        color.detect(rgb, width, height, 3, edges);
+        assertTrue(auto.getHighThreshold() > 0);
+        // The checkerboard has three vertical and three horizontal boundaries; noise alone gives none
+        assertTrue(count(edges) >= 3 * height);
+        assertTrue(count(edges) < width * height / 4);
+    }
+
+    /** Gray pixels repeated into {@code channels} channels, with random alpha for four. */
+    private static byte[] expand(byte[] gray, int channels, long seed) {
+        if (channels == 1)
+            return gray;
+        Random random = new Random(seed);
+        byte[] out = new byte[gray.length * channels];
+        for (int i = 0; i < gray.length; i++) {
+            for (int k = 0; k < 3; k++)
+                out[i * channels + k] = gray[i];
+            if (channels == 4)
+                out[i * channels + 3] = (byte) random.nextInt();
+        }
+        return out;
+    }
+
+    private static int count(byte[] edges) {
+        int n = 0;
+        for (byte e : edges)
+            if (e != 0)
+                n++;
+        return n;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EdgeListTest {
+    @Test
+    public void matchesDenseEdges() {
+        CannyEdgeDetector canny = new CannyEdgeDetector(50, 150);
+        EdgeList list = new EdgeList();
+        for (int[] size : TestImages.SIZES) {
+            byte[][] images = TestImages.images(size[0], size[1], 13);
+            for (int i = 0; i < images.length; i++) {
+                canny.detect(images[i], size[0], size[1], list);
+                assertArrayEquals(TestImages.describe(size[0], size[1], i),
+                        TestImages.reference(images[i], size[0], size[1], 3, false, 0), render(list, size[0], size[1]));
+            }
+        }
+    }
+
+    @Test
+    public void matchesDenseEdgesWithUnionFind() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            CannyEdgeDetector canny = new CannyEdgeDetector(50, 150);
+            canny.setUnionFindHysteresis(new UnionFindHysteresis(pool));
+            EdgeList list = new EdgeList(true);
+            for (int[] size : TestImages.SIZES) {
+                byte[] image = TestImages.structured(size[0], size[1], 14);
+                canny.detect(image, size[0], size[1], list);
+                assertArrayEquals(size[0] + "x" + size[1],
+                        TestImages.reference(image, size[0], size[1], 3, false, 0), render(list, size[0], size[1]));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void recordsSobelGradients() {
+        int width = 83, height = 59;
+        byte[] image = TestImages.structured(width, height, 15);
+        short[] dx = new short[width * height];
+        short[] dy = new short[width * height];
+        Sobel.gradient(image, width, height, 3, dx, dy, new int[width + 8], new int[width + 8]);
+        for (int l2 = 0; l2 < 2; l2++) {
+            CannyEdgeDetector canny = new CannyEdgeDetector(50, 150, 3, l2 == 1);
+            EdgeList list = new EdgeList(true);
+            canny.detect(image, width, height, list);
+            assertTrue(list.size() > 0);
+            for (int e = 0; e < list.size(); e++) {
+                int i = list.getY(e) * width + list.getX(e);
+                assertEquals(dx[i], list.getDx()[e]);
+                assertEquals(dy[i], list.getDy()[e]);
+                int magnitude = l2 == 1 ? dx[i] * dx[i] + dy[i] * dy[i] : Math.abs(dx[i]) + Math.abs(dy[i]);
+                assertEquals(magnitude, list.getMagnitudes()[e]);
+            }
+        }
+    }
+
+    /** Draws the list as a dense map, failing on duplicate entries. */
+    private static byte[] render(EdgeList list, int width, int height) {
+        byte[] edges = new byte[width * height];
+        for (int e = 0; e < list.size(); e++) {
+            int i = list.getY(e) * width + list.getX(e);
+            assertEquals("duplicate edge at " + list.getX(e) + "," + list.getY(e), 0, edges[i]);
+            edges[i] = (byte) 255;
+        }
+        return edges;
+    }
+}
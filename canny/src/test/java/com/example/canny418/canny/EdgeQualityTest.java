@@ -0,0 +1,77 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EdgeQualityTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void identicalEdgesScorePerfectly() {
+        int width = 120, height = 80;
+        byte[] reference = TestImages.reference(TestImages.structured(width, height, 18), width, height, 3, false, 0);
+        EdgeQuality quality = EdgeQuality.compare(reference, reference.clone(), width, height, 0);
+        assertEquals(0, quality.getMismatchedPixels());
+        assertEquals(1.0, quality.getPixelAgreement(), EPSILON);
+        assertEquals(1.0, quality.getPrecision(), EPSILON);
+        assertEquals(1.0, quality.getRecall(), EPSILON);
+        assertEquals(1.0, quality.getFigureOfMerit(), EPSILON);
+    }
+
+    @Test
+    public void detectorVariantsMatchTheReference() {
+        int width = 157, height = 93;
+        byte[] image = TestImages.structured(width, height, 19);
+        byte[] reference = TestImages.reference(image, width, height, 3, false, 0);
+        CannyEdgeDetector[] variants = {
+                new StreamingCannyEdgeDetector(50, 150),
+                new IncrementalCannyEdgeDetector(50, 150),
+        };
+        for (CannyEdgeDetector variant : variants) {
+            byte[] edges = new byte[width * height];
+            variant.detect(image, width, height, edges);
+            EdgeQuality quality = EdgeQuality.compare(reference, edges, width, height, 1);
+            assertEquals(variant.getClass().getSimpleName(), 1.0, quality.getFMeasure(), EPSILON);
+            assertEquals(variant.getClass().getSimpleName(), 1.0, quality.getFigureOfMerit(), EPSILON);
+        }
+    }
+
+    @Test
+    public void shiftedLineMatchesWithinRadius() {
+        int width = 40, height = 20;
+        byte[] reference = new byte[width * height];
+        byte[] candidate = new byte[width * height];
+        for (int x = 0; x < width; x++) {
+            reference[10 * width + x] = (byte) 255;
+            candidate[11 * width + x] = (byte) 255;
+        }
+        EdgeQuality exact = EdgeQuality.compare(reference, candidate, width, height, 0);
+        assertEquals(0.0, exact.getPrecision(), EPSILON);
+        assertEquals(0.0, exact.getRecall(), EPSILON);
+        assertEquals(2L * width, exact.getMismatchedPixels());
+
+        EdgeQuality near = EdgeQuality.compare(reference, candidate, width, height, 1);
+        assertEquals(1.0, near.getPrecision(), EPSILON);
+        assertEquals(1.0, near.getRecall(), EPSILON);
+        // Every candidate pixel is one pixel away from the reference
+        assertEquals(1 / (1 + EdgeQuality.PRATT_ALPHA), near.getFigureOfMerit(), EPSILON);
+    }
+
+    @Test
+    public void missingEdgesLowerRecallOnly() {
+        int width = 30, height = 30;
+        byte[] reference = new byte[width * height];
+        byte[] candidate = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            reference[y * width + 5] = (byte) 255;
+            reference[y * width + 20] = (byte) 255;
+            candidate[y * width + 5] = (byte) 255;
+        }
+        EdgeQuality quality = EdgeQuality.compare(reference, candidate, width, height, 1);
+        assertEquals(1.0, quality.getPrecision(), EPSILON);
+        assertEquals(0.5, quality.getRecall(), EPSILON);
+        assertEquals(2.0 / 3, quality.getFMeasure(), EPSILON);
+        assertEquals(0.5, quality.getFigureOfMerit(), EPSILON);
+    }
+}
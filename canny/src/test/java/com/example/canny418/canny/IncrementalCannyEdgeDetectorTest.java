@@ -0,0 +1,67 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalCannyEdgeDetectorTest {
+    @Test
+    public void matchesFullFrameOnEverySize() {
+        IncrementalCannyEdgeDetector incremental = new IncrementalCannyEdgeDetector(50, 150);
+        for (int[] size : TestImages.SIZES) {
+            byte[][] images = TestImages.images(size[0], size[1], 8);
+            for (int i = 0; i < images.length; i++) {
+                byte[] edges = new byte[size[0] * size[1]];
+                incremental.detect(images[i], size[0], size[1], edges);
+                assertArrayEquals(TestImages.describe(size[0], size[1], i),
+                        TestImages.reference(images[i], size[0], size[1], 3, false, 0), edges);
+            }
+        }
+    }
+
+    @Test
+    public void matchesFullFrameAcrossChangingFrames() {
+        int width = 150, height = 101;
+        IncrementalCannyEdgeDetector incremental = new IncrementalCannyEdgeDetector(50, 150);
+        incremental.setBlockSize(16);
+        incremental.setBlurSize(3);
+        byte[] frame = TestImages.structured(width, height, 9);
+        byte[] edges = new byte[width * height];
+        Random random = new Random(10);
+        for (int n = 0; n < 20; n++) {
+            // Repaint a few patches, including ones crossing block and image borders
+            int patches = n % 4;
+            for (int p = 0; p < patches; p++) {
+                int x0 = random.nextInt(width), y0 = random.nextInt(height);
+                int x1 = Math.min(width, x0 + 1 + random.nextInt(40));
+                int y1 = Math.min(height, y0 + 1 + random.nextInt(40));
+                int value = random.nextInt(256);
+                for (int y = y0; y < y1; y++)
+                    for (int x = x0; x < x1; x++)
+                        frame[y * width + x] = (byte) value;
+            }
+            incremental.detect(frame, width, height, edges);
+            assertArrayEquals("frame " + n, TestImages.reference(frame, width, height, 3, false, 3), edges);
+            if (patches == 0 && n > 0)
+                assertEquals("frame " + n, 0.0, incremental.getDirtyBlockRatio(), 0.0);
+        }
+    }
+
+    @Test
+    public void recomputesAfterParameterChange() {
+        int width = 90, height = 70;
+        byte[] frame = TestImages.structured(width, height, 11);
+        IncrementalCannyEdgeDetector incremental = new IncrementalCannyEdgeDetector(50, 150);
+        byte[] edges = new byte[width * height];
+        incremental.detect(frame, width, height, edges);
+        incremental.setThresholds(20, 60);
+        incremental.detect(frame, width, height, edges);
+        CannyEdgeDetector reference = new CannyEdgeDetector(20, 60);
+        byte[] expected = new byte[width * height];
+        reference.detect(frame, width, height, expected);
+        assertArrayEquals(expected, edges);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void smallValuesAreExact() {
+        for (int v = 0; v < 16; v++) {
+            assertEquals(v, LatencyHistogram.bucket(v));
+            assertEquals(v, LatencyHistogram.highestValue(v));
+        }
+    }
+
+    @Test
+    public void firstLogarithmicBuckets() {
+        assertEquals(15, LatencyHistogram.bucket(15));
+        assertEquals(16, LatencyHistogram.bucket(16));
+        assertEquals(16, LatencyHistogram.bucket(17));
+        assertEquals(17, LatencyHistogram.bucket(18));
+        assertEquals(17, LatencyHistogram.highestValue(16));
+        assertEquals(31, LatencyHistogram.highestValue(LatencyHistogram.bucket(31)));
+    }
+
+    @Test
+    public void powersOfTwoStartABucket() {
+        for (int k = 4; k <= 62; k++) {
+            long power = 1L << k;
+            int bucket = LatencyHistogram.bucket(power);
+            assertEquals("2^" + k, 16 + (k - 4) * 8, bucket);
+            assertEquals("2^" + k + " - 1", bucket - 1, LatencyHistogram.bucket(power - 1));
+            assertEquals("2^" + k + " - 1", power - 1, LatencyHistogram.highestValue(bucket - 1));
+        }
+    }
+
+    @Test
+    public void maxValueLandsInLastBucket() {
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void bucketsTileTheRange() {
+        for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+            long highest = LatencyHistogram.highestValue(b);
+            assertEquals("bucket " + b, b, LatencyHistogram.bucket(highest));
+            if (b + 1 < LatencyHistogram.BUCKETS)
+                assertEquals("bucket " + b, b + 1, LatencyHistogram.bucket(highest + 1));
+        }
+    }
+
+    @Test
+    public void upperBoundWithinAnEighth() {
+        Random random = new Random(20);
+        for (int i = 0; i < 100000; i++) {
+            // Spread over every exponent rather than mostly huge values
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.bucket(value));
+            assertTrue(value + " -> " + highest, highest >= value);
+            assertTrue(value + " -> " + highest, highest - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void percentilesWithinAnEighth() {
+        Random random = new Random(21);
+        long[] values = new long[20000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-uniform from 1 us to about 1 s, like frame stage latencies
+            values[i] = (long) (1000 * Math.pow(1e6, random.nextDouble()));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(values[values.length - 1], snapshot.getMaxNanos());
+        for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = snapshot.getValueAtPercentile(percentile);
+            assertTrue("p" + percentile + " " + reported + " below " + exact, reported >= exact);
+            assertTrue("p" + percentile + " " + reported + " above " + exact, reported <= exact + exact / 8);
+        }
+        assertEquals(values[values.length - 1], snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void recordsExtremes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(Long.MAX_VALUE, snapshot.getMaxNanos());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, snapshot.getValueAtPercentile(100));
+
+        LatencyHistogram.Snapshot empty = histogram.snapshot();
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMaxNanos());
+        assertEquals(0, empty.getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class NonMaxSuppressionTest {
+    @Test
+    public void sectorsMatchDirectComparison() {
+        for (int[] size : TestImages.SIZES) {
+            int width = size[0], height = size[1];
+            byte[][] images = TestImages.images(width, height, 12);
+            for (int i = 0; i < images.length; i++) {
+                for (int l2 = 0; l2 < 2; l2++) {
+                    int pixels = width * height;
+                    int padded = (width + 2) * (height + 2);
+                    short[] dx = new short[pixels];
+                    short[] dy = new short[pixels];
+                    int[] mag = new int[padded];
+                    Sobel.gradient(images[i], width, height, 3, dx, dy, new int[width + 8], new int[width + 8]);
+                    Sobel.magnitude(dx, dy, width, height, l2 == 1, mag, width + 2);
+                    int low = CannyEdgeDetector.lowThreshold(50, 150, 3, l2 == 1);
+                    int high = CannyEdgeDetector.highThreshold(50, 150, 3, l2 == 1);
+
+                    byte[] direct = new byte[padded];
+                    int[] directStack = new int[padded];
+                    int directTop = NonMaxSuppression.suppress(dx, dy, mag, width, height, low, high, direct, directStack);
+
+                    byte[] sector = new byte[pixels];
+                    GradientKernels.scalar().sectors(dx, dy, 0, pixels, sector, 0);
+                    byte[] sectors = new byte[padded];
+                    int[] sectorStack = new int[padded];
+                    int sectorTop = NonMaxSuppression.suppressSectors(sector, mag, width, height, low, high, sectors, sectorStack);
+
+                    String message = TestImages.describe(width, height, i) + " L2 " + (l2 == 1);
+                    assertArrayEquals(message, direct, sectors);
+                    assertEquals(message, directTop, sectorTop);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sectorIsOctantModFour() {
+        for (int gx = -300; gx <= 300; gx += 7) {
+            for (int gy = -300; gy <= 300; gy += 5)
+                assertEquals(gx + "," + gy, GradientKernels.octant(gx, gy) & 3, GradientKernels.sector(gx, gy));
+        }
+        assertEquals(GradientKernels.octant(Short.MIN_VALUE, 1) & 3, GradientKernels.sector(Short.MIN_VALUE, 1));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PackedEdgeMapTest {
+    @Test
+    public void roundTripsDetectedEdges() {
+        for (int[] size : TestImages.SIZES) {
+            int width = size[0], height = size[1];
+            byte[][] images = TestImages.images(width, height, 16);
+            for (int i = 0; i < images.length; i++) {
+                byte[] edges = TestImages.reference(images[i], width, height, 3, false, 0);
+                PackedEdgeMap packed = new PackedEdgeMap(width, height);
+                packed.pack(edges, 0, width);
+
+                int count = 0;
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        boolean edge = edges[y * width + x] != 0;
+                        if (edge)
+                            count++;
+                        assertEquals(edge, packed.get(x, y));
+                    }
+                }
+                String message = TestImages.describe(width, height, i);
+                assertEquals(message, count, packed.count());
+
+                byte[] unpacked = new byte[width * height];
+                packed.unpack(unpacked, 0, width);
+                assertArrayEquals(message, edges, unpacked);
+            }
+        }
+    }
+
+    @Test
+    public void packsWithOffsetAndStride() {
+        int width = 70, height = 9, stride = 80, offset = 5;
+        byte[] edges = TestImages.reference(TestImages.random(width, height, 17), width, height, 3, false, 0);
+        byte[] strided = new byte[offset + stride * height];
+        for (int y = 0; y < height; y++)
+            System.arraycopy(edges, y * width, strided, offset + y * stride, width);
+        PackedEdgeMap packed = new PackedEdgeMap(width, height);
+        packed.pack(strided, offset, stride);
+        byte[] unpacked = new byte[width * height];
+        packed.unpack(unpacked, 0, width);
+        assertArrayEquals(edges, unpacked);
+    }
+}
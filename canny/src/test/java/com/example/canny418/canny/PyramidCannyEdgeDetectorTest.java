@@ -0,0 +1,133 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PyramidCannyEdgeDetectorTest {
+    /** Sizes deep enough for two or three levels, odd ones upsampling to {@code 2w - 1}. */
+    private static final int[][] PYRAMID_SIZES = {
+            {64, 64}, {65, 64}, {64, 65}, {129, 97}, {131, 257}, {257, 131}, {300, 200},
+    };
+
+    @Test
+    public void oneLevelMatchesFullFrame() {
+        for (int aperture = 3; aperture <= 7; aperture += 2) {
+            for (boolean l2 : new boolean[]{false, true}) {
+                for (int blur = 0; blur <= 5; blur += 5) {
+                    PyramidCannyEdgeDetector pyramid = new PyramidCannyEdgeDetector(50, 150, aperture, l2);
+                    pyramid.setLevels(1);
+                    pyramid.setBlurSize(blur);
+                    for (int[] size : TestImages.SIZES) {
+                        byte[][] images = TestImages.images(size[0], size[1], 3);
+                        for (int i = 0; i < images.length; i++) {
+                            byte[] expected = TestImages.reference(images[i], size[0], size[1], aperture, l2, blur);
+                            byte[] edges = new byte[size[0] * size[1]];
+                            pyramid.detect(images[i], size[0], size[1], edges);
+                            assertArrayEquals(TestImages.describe(size[0], size[1], i) + " aperture " + aperture
+                                    + " L2 " + l2 + " blur " + blur, expected, edges);
+                            assertEquals(1, pyramid.getLevelsUsed());
+                            assertEquals(1.0, pyramid.getProcessedRatio(), 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void edgesAreASubsetOfFullFrameEdges() {
+        for (int levels = 2; levels <= 4; levels++) {
+            for (int radius = 0; radius <= 3; radius++) {
+                for (int aperture = 3; aperture <= 5; aperture += 2) {
+                    PyramidCannyEdgeDetector pyramid = new PyramidCannyEdgeDetector(50, 150, aperture, false);
+                    pyramid.setLevels(levels);
+                    pyramid.setSearchRadius(radius);
+                    for (int[] size : PYRAMID_SIZES) {
+                        int width = size[0], height = size[1];
+                        byte[][] images = TestImages.images(width, height, levels * 7 + radius);
+                        for (int i = 0; i < images.length; i++) {
+                            String message = TestImages.describe(width, height, i) + " levels " + levels
+                                    + " radius " + radius + " aperture " + aperture;
+                            byte[] full = TestImages.reference(images[i], width, height, aperture, false, 0);
+                            byte[] edges = new byte[width * height];
+                            pyramid.detect(images[i], width, height, edges);
+                            assertTrue(message, pyramid.getLevelsUsed() > 1);
+                            assertSubset(message, full, edges);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void searchingEverywhereMatchesFullFrame() {
+        // A radius as large as the image turns the mask of every finer level into the whole frame
+        for (int[] size : PYRAMID_SIZES) {
+            int width = size[0], height = size[1];
+            PyramidCannyEdgeDetector pyramid = new PyramidCannyEdgeDetector(50, 150);
+            pyramid.setLevels(3);
+            pyramid.setSearchRadius(Math.max(width, height));
+            byte[] src = TestImages.structured(width, height, 5);
+            byte[] edges = new byte[width * height];
+            pyramid.detect(src, width, height, edges);
+            assertArrayEquals(width + "x" + height, TestImages.reference(src, width, height, 3, false, 0), edges);
+        }
+    }
+
+    @Test
+    public void oddSizesFindTheStructuredEdges() {
+        for (int[] size : PYRAMID_SIZES) {
+            int width = size[0], height = size[1];
+            PyramidCannyEdgeDetector pyramid = new PyramidCannyEdgeDetector(50, 150);
+            pyramid.setLevels(3);
+            byte[] src = TestImages.structured(width, height, 6);
+            byte[] edges = new byte[width * height];
+            pyramid.detect(src, width, height, edges);
+            byte[] full = TestImages.reference(src, width, height, 3, false, 0);
+            int found = count(edges), total = count(full);
+            // The long lines and the disc survive halving, so most edges are recovered
+            assertTrue(width + "x" + height + ": " + found + " of " + total, found * 2 > total);
+        }
+    }
+
+    @Test
+    public void levelsStopAtTheMinimumSize() {
+        PyramidCannyEdgeDetector pyramid = new PyramidCannyEdgeDetector(50, 150);
+        pyramid.setLevels(8);
+        int[][] cases = {{63, 200, 1}, {64, 64, 2}, {127, 127, 2}, {128, 128, 3}, {300, 200, 3}, {1024, 512, 5}};
+        for (int[] c : cases) {
+            byte[] src = TestImages.structured(c[0], c[1], 1);
+            pyramid.detect(src, c[0], c[1], new byte[c[0] * c[1]]);
+            assertEquals(c[0] + "x" + c[1], c[2], pyramid.getLevelsUsed());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroLevels() {
+        new PyramidCannyEdgeDetector(50, 150).setLevels(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeSearchRadius() {
+        new PyramidCannyEdgeDetector(50, 150).setSearchRadius(-1);
+    }
+
+    private static void assertSubset(String message, byte[] full, byte[] edges) {
+        for (int i = 0; i < edges.length; i++)
+            if (edges[i] != 0 && full[i] == 0)
+                fail(message + ": edge at " + i + " missing at full resolution");
+    }
+
+    private static int count(byte[] edges) {
+        int n = 0;
+        for (byte e : edges)
+            if (e != 0)
+                n++;
+        return n;
+    }
+}
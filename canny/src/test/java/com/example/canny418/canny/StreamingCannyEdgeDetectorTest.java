@@ -0,0 +1,76 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class StreamingCannyEdgeDetectorTest {
+    @Test
+    public void matchesFullFrame() {
+        StreamingCannyEdgeDetector streaming = new StreamingCannyEdgeDetector(50, 150);
+        for (int[] size : TestImages.SIZES) {
+            byte[][] images = TestImages.images(size[0], size[1], 3);
+            for (int i = 0; i < images.length; i++) {
+                byte[] edges = new byte[size[0] * size[1]];
+                streaming.detect(images[i], size[0], size[1], edges);
+                assertArrayEquals(TestImages.describe(size[0], size[1], i),
+                        TestImages.reference(images[i], size[0], size[1], 3, false, 0), edges);
+            }
+        }
+    }
+
+    @Test
+    public void matchesFullFrameWithEveryKernel() {
+        int width = 97, height = 61;
+        byte[] image = TestImages.structured(width, height, 4);
+        for (int aperture = 3; aperture <= 7; aperture += 2) {
+            for (int blur = 0; blur <= 5; blur += 5) {
+                for (int l2 = 0; l2 < 2; l2++) {
+                    StreamingCannyEdgeDetector streaming = new StreamingCannyEdgeDetector(50, 150, aperture, l2 == 1);
+                    streaming.setBlurSize(blur);
+                    byte[] edges = new byte[width * height];
+                    streaming.detect(image, width, height, edges);
+                    assertArrayEquals("aperture " + aperture + " blur " + blur + " L2 " + (l2 == 1),
+                            TestImages.reference(image, width, height, aperture, l2 == 1, blur), edges);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesFullFrameOnColourRows() {
+        int width = 71, height = 45;
+        byte[] rgba = TestImages.random(width * 4, height, 5);
+        ArrayRowSource source = new ArrayRowSource(rgba, width, height, 4);
+        byte[] expected = new byte[width * height];
+        new CannyEdgeDetector(50, 150).detect(source, expected);
+        byte[] edges = new byte[width * height];
+        new StreamingCannyEdgeDetector(50, 150).detect(source, edges);
+        assertArrayEquals(expected, edges);
+    }
+
+    @Test
+    public void matchesFullFrameWithUnionFind() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            StreamingCannyEdgeDetector streaming = new StreamingCannyEdgeDetector(50, 150);
+            streaming.setUnionFindHysteresis(new UnionFindHysteresis(pool));
+            for (int[] size : TestImages.SIZES) {
+                byte[] image = TestImages.structured(size[0], size[1], 6);
+                byte[] edges = new byte[size[0] * size[1]];
+                streaming.detect(image, size[0], size[1], edges);
+                assertArrayEquals(size[0] + "x" + size[1],
+                        TestImages.reference(image, size[0], size[1], 3, false, 0), edges);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void rejectsAutoThreshold() {
+        new StreamingCannyEdgeDetector(50, 150).setAutoThreshold(new AutoThreshold(AutoThreshold.Method.MEDIAN));
+    }
+}
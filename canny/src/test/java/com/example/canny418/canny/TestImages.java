@@ -0,0 +1,64 @@
+package com.example.canny418.canny;
+
+import java.util.Random;
+
+/** Gray test images and the sizes the detector variants are checked at. */
+final class TestImages {
+    /** Width, height pairs: single rows and columns, tiny images and sizes off the tile and block grids. */
+    static final int[][] SIZES = {
+            {1, 1}, {1, 37}, {53, 1}, {2, 2}, {3, 97}, {64, 64}, {100, 75}, {257, 131}, {300, 33},
+    };
+
+    private TestImages() {
+    }
+
+    /** Uniform noise, which leaves edges almost everywhere. */
+    static byte[] random(int width, int height, long seed) {
+        byte[] image = new byte[width * height];
+        new Random(seed).nextBytes(image);
+        return image;
+    }
+
+    /**
+     * Lines, a ramp, rectangles and a disc over light noise, giving long connected edges of every
+     * direction plus weak ones for hysteresis to join or drop.
+     */
+    static byte[] structured(int width, int height, long seed) {
+        Random random = new Random(seed);
+        byte[] image = new byte[width * height];
+        int cx = width / 2, cy = height / 2;
+        int r = Math.max(1, Math.min(width, height) / 3);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = 40 + 100 * x / Math.max(1, width - 1);
+                if ((x / 17 + y / 13) % 5 == 0)
+                    v += 60;
+                if ((x - cx) * (x - cx) + (y - cy) * (y - cy) <= r * r)
+                    v = 220;
+                if (Math.abs(x - y) <= 1 || (x + 2 * y) % 29 == 0)
+                    v = 10;
+                v += random.nextInt(9) - 4;
+                image[y * width + x] = (byte) Math.max(0, Math.min(255, v));
+            }
+        }
+        return image;
+    }
+
+    /** Both kinds of image at the given size. */
+    static byte[][] images(int width, int height, long seed) {
+        return new byte[][] {random(width, height, seed), structured(width, height, seed)};
+    }
+
+    /** Edges from the plain full-frame detector with the given settings. */
+    static byte[] reference(byte[] src, int width, int height, int apertureSize, boolean L2gradient, int blurSize) {
+        CannyEdgeDetector canny = new CannyEdgeDetector(50, 150, apertureSize, L2gradient);
+        canny.setBlurSize(blurSize);
+        byte[] edges = new byte[width * height];
+        canny.detect(src, width, height, edges);
+        return edges;
+    }
+
+    static String describe(int width, int height, int image) {
+        return width + "x" + height + (image == 0 ? " random" : " structured");
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.canny418.canny;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class TiledCannyEdgeDetectorTest {
+    private static final int[][] TILE_SIZES = {
+            {16, 16}, {7, 5}, {64, 32}, {TiledCannyEdgeDetector.DEFAULT_TILE_SIZE, TiledCannyEdgeDetector.DEFAULT_TILE_SIZE},
+    };
+
+    private ForkJoinPool mPool;
+
+    @Before
+    public void setUp() {
+        mPool = new ForkJoinPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Test
+    public void matchesFullFrame() {
+        for (int[] tile : TILE_SIZES) {
+            TiledCannyEdgeDetector tiled = new TiledCannyEdgeDetector(50, 150, 3, false, mPool);
+            tiled.setTileSize(tile[0], tile[1]);
+            for (int[] size : TestImages.SIZES) {
+                byte[][] images = TestImages.images(size[0], size[1], 1);
+                for (int i = 0; i < images.length; i++) {
+                    byte[] expected = TestImages.reference(images[i], size[0], size[1], 3, false, 0);
+                    byte[] edges = new byte[size[0] * size[1]];
+                    tiled.detect(images[i], size[0], size[1], edges);
+                    assertArrayEquals(TestImages.describe(size[0], size[1], i) + " tiles " + tile[0] + "x" + tile[1],
+                            expected, edges);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesFullFrameWithEveryKernel() {
+        int width = 123, height = 77;
+        byte[] image = TestImages.structured(width, height, 2);
+        for (int aperture = 3; aperture <= 7; aperture += 2) {
+            for (int blur = 0; blur <= 5; blur += 5) {
+                for (int l2 = 0; l2 < 2; l2++) {
+                    TiledCannyEdgeDetector tiled = new TiledCannyEdgeDetector(50, 150, aperture, l2 == 1, mPool);
+                    tiled.setTileSize(20, 12);
+                    tiled.setBlurSize(blur);
+                    byte[] edges = new byte[width * height];
+                    tiled.detect(image, width, height, edges);
+                    assertArrayEquals("aperture " + aperture + " blur " + blur + " L2 " + (l2 == 1),
+                            TestImages.reference(image, width, height, aperture, l2 == 1, blur), edges);
+                }
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void rejectsAutoThreshold() {
+        new TiledCannyEdgeDetector(50, 150, 3, false, mPool).setAutoThreshold(new AutoThreshold(AutoThreshold.Method.OTSU));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void rejectsUnionFind() {
+        new TiledCannyEdgeDetector(50, 150, 3, false, mPool).setUnionFindHysteresis(new UnionFindHysteresis(mPool));
+    }
+}
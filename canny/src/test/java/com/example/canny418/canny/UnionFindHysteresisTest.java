@@ -0,0 +1,43 @@
+package com.example.canny418.canny;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class UnionFindHysteresisTest {
+    private ForkJoinPool mPool;
+
+    @Before
+    public void setUp() {
+        mPool = new ForkJoinPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Test
+    public void matchesFloodFill() {
+        // 0 picks the band size from the pool; 1 and 3 put a seam on nearly every row
+        for (int bandRows : new int[] {0, 1, 3, 16}) {
+            UnionFindHysteresis unionFind = new UnionFindHysteresis(mPool);
+            unionFind.setBandRows(bandRows);
+            CannyEdgeDetector canny = new CannyEdgeDetector(50, 150);
+            canny.setUnionFindHysteresis(unionFind);
+            for (int[] size : TestImages.SIZES) {
+                byte[][] images = TestImages.images(size[0], size[1], 7);
+                for (int i = 0; i < images.length; i++) {
+                    byte[] edges = new byte[size[0] * size[1]];
+                    canny.detect(images[i], size[0], size[1], edges);
+                    assertArrayEquals(TestImages.describe(size[0], size[1], i) + " bands of " + bandRows,
+                            TestImages.reference(images[i], size[0], size[1], 3, false, 0), edges);
+                }
+            }
+        }
+    }
+}
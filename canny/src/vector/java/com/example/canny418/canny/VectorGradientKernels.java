@@ -0,0 +1,210 @@
+package com.example.canny418.canny;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link GradientKernels} on the incubating Vector API. Loaded by {@link GradientKernels#best()}
+ * through reflection, so the main classes stay Java 8 and Android compatible.
+ *
+ * Sobel widens bytes to short lanes; apertures 3 and 5 cannot overflow a short, so no
+ * saturation is needed. The magnitude and octant kernels widen to int lanes. Image borders and
+ * the tails of each row run the scalar code.
+ */
+class VectorGradientKernels extends ScalarGradientKernels {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES_FOR_SHORTS =
+            ByteVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORTS_FOR_INTS =
+            SHORTS.withShape(VectorShape.forBitSize(INTS.vectorBitSize() / 2));
+    private static final VectorSpecies<Byte> BYTES_FOR_INTS =
+            ByteVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(INTS.vectorBitSize() / 4));
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    /** 2^23: adding it to a float below 2^23 leaves the rounded integer in the low mantissa bits. */
+    private static final float MAGIC = 8388608f;
+    private static final int MAGIC_BITS = Float.floatToRawIntBits(MAGIC);
+
+    @Override
+    public String getName() {
+        return "vector" + SHORTS.vectorBitSize();
+    }
+
+    @Override
+    public void sobel(byte[] src, int width, int height, int apertureSize, short[] dx, short[] dy,
+                      int[] smoothRow, int[] derivRow) {
+        if (apertureSize != 3 && apertureSize != 5) {
+            super.sobel(src, width, height, apertureSize, dx, dy, smoothRow, derivRow);
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            if (apertureSize == 3)
+                sobel3Row(src, width, height, y, dx, dy);
+            else
+                sobel5Row(src, width, height, y, dx, dy);
+        }
+    }
+
+    private static ShortVector load(byte[] src, int offset) {
+        return (ShortVector) ByteVector.fromArray(BYTES_FOR_SHORTS, src, offset)
+                .convertShape(VectorOperators.B2S, SHORTS, 0)
+                .lanewise(VectorOperators.AND, 0xFF);
+    }
+
+    static void sobel3Row(byte[] src, int width, int height, int y, short[] dx, short[] dy) {
+        int o0 = clamp(y - 1, height) * width;
+        int o1 = y * width;
+        int o2 = clamp(y + 1, height) * width;
+        sobel3At(src, width, o0, o1, o2, 0, dx, dy);
+        int lanes = SHORTS.length();
+        int x = 1;
+        // Loads reach x + lanes, which must stay inside the row
+        for (; x + lanes < width; x += lanes) {
+            ShortVector a0 = load(src, o0 + x - 1), a1 = load(src, o0 + x), a2 = load(src, o0 + x + 1);
+            ShortVector b0 = load(src, o1 + x - 1), b2 = load(src, o1 + x + 1);
+            ShortVector c0 = load(src, o2 + x - 1), c1 = load(src, o2 + x), c2 = load(src, o2 + x + 1);
+            ShortVector b = b2.sub(b0);
+            a2.sub(a0).add(b).add(b).add(c2).sub(c0).intoArray(dx, o1 + x);
+            c0.add(c1).add(c1).add(c2).sub(a0).sub(a1).sub(a1).sub(a2).intoArray(dy, o1 + x);
+        }
+        for (; x < width - 1; x++)
+            sobel3At(src, width, o0, o1, o2, x, dx, dy);
+        if (width > 1)
+            sobel3At(src, width, o0, o1, o2, width - 1, dx, dy);
+    }
+
+    static void sobel5Row(byte[] src, int width, int height, int y, short[] dx, short[] dy) {
+        int o0 = clamp(y - 2, height) * width;
+        int o1 = clamp(y - 1, height) * width;
+        int o2 = y * width;
+        int o3 = clamp(y + 1, height) * width;
+        int o4 = clamp(y + 2, height) * width;
+        int left = Math.min(2, width);
+        for (int x = 0; x < left; x++)
+            sobel5At(src, width, o0, o1, o2, o3, o4, x, dx, dy);
+        int lanes = SHORTS.length();
+        int x = 2;
+        for (; x + lanes + 1 < width; x += lanes) {
+            ShortVector s0 = smooth5(src, o0 + x), s1 = smooth5(src, o1 + x);
+            ShortVector s3 = smooth5(src, o3 + x), s4 = smooth5(src, o4 + x);
+            ShortVector d1 = deriv5(src, o1 + x), d2 = deriv5(src, o2 + x), d3 = deriv5(src, o3 + x);
+            ShortVector d13 = d1.add(d3);
+            deriv5(src, o0 + x).add(deriv5(src, o4 + x))
+                    .add(d13.lanewise(VectorOperators.LSHL, 2))
+                    .add(d2.lanewise(VectorOperators.LSHL, 2)).add(d2).add(d2)
+                    .intoArray(dx, o2 + x);
+            ShortVector s31 = s3.sub(s1);
+            s4.sub(s0).add(s31).add(s31).intoArray(dy, o2 + x);
+        }
+        for (; x < width - 2; x++)
+            sobel5At(src, width, o0, o1, o2, o3, o4, x, dx, dy);
+        for (x = Math.max(left, width - 2); x < width; x++)
+            sobel5At(src, width, o0, o1, o2, o3, o4, x, dx, dy);
+    }
+
+    private static ShortVector deriv5(byte[] src, int i) {
+        ShortVector inner = load(src, i + 1).sub(load(src, i - 1));
+        return load(src, i + 2).sub(load(src, i - 2)).add(inner).add(inner);
+    }
+
+    private static ShortVector smooth5(byte[] src, int i) {
+        ShortVector center = load(src, i);
+        return load(src, i - 2).add(load(src, i + 2))
+                .add(load(src, i - 1).add(load(src, i + 1)).lanewise(VectorOperators.LSHL, 2))
+                .add(center.lanewise(VectorOperators.LSHL, 2)).add(center).add(center);
+    }
+
+    private static IntVector loadInts(short[] a, int offset) {
+        return (IntVector) ShortVector.fromArray(SHORTS_FOR_INTS, a, offset)
+                .convertShape(VectorOperators.S2I, INTS, 0);
+    }
+
+    @Override
+    public void magnitudeL1(short[] dx, short[] dy, int offset, int count, int[] mag, int magOffset) {
+        int lanes = INTS.length();
+        int i = 0;
+        for (; i + lanes <= count; i += lanes)
+            loadInts(dx, offset + i).abs().add(loadInts(dy, offset + i).abs()).intoArray(mag, magOffset + i);
+        super.magnitudeL1(dx, dy, offset + i, count - i, mag, magOffset + i);
+    }
+
+    @Override
+    public void magnitudeL2(short[] dx, short[] dy, int offset, int count, int[] mag, int magOffset) {
+        int lanes = INTS.length();
+        int i = 0;
+        if (FLOATS.length() == lanes) {
+            for (; i + lanes <= count; i += lanes) {
+                IntVector gx = loadInts(dx, offset + i).abs().min(Short.MAX_VALUE);
+                IntVector gy = loadInts(dy, offset + i).abs().min(Short.MAX_VALUE);
+                IntVector n = gx.mul(gx).add(gy.mul(gy));
+                // Round the float root to an int by adding 2^23 and reading the mantissa bits, which
+                // avoids the float to int conversion that is not intrinsified everywhere. The estimate
+                // is off by at most one either way; fix it with integer compares. Correcting down
+                // first keeps (r + 1)^2 below 2^31.
+                IntVector r = ((FloatVector) n.convert(VectorOperators.I2F, 0)).sqrt().add(MAGIC)
+                        .reinterpretAsInts().sub(MAGIC_BITS);
+                r = r.blend(r.sub(1), r.mul(r).compare(VectorOperators.GT, n));
+                IntVector next = r.add(1);
+                r = r.blend(next, next.mul(next).compare(VectorOperators.LE, n));
+                r.intoArray(mag, magOffset + i);
+            }
+        }
+        super.magnitudeL2(dx, dy, offset + i, count - i, mag, magOffset + i);
+    }
+
+    @Override
+    public void octants(short[] dx, short[] dy, int offset, int count, byte[] dir, int dirOffset) {
+        int lanes = INTS.length();
+        int i = 0;
+        for (; i + lanes <= count; i += lanes) {
+            IntVector gx = loadInts(dx, offset + i);
+            IntVector gy = loadInts(dy, offset + i);
+            IntVector ax = gx.abs().min(Short.MAX_VALUE);
+            IntVector ay = gy.abs().lanewise(VectorOperators.LSHL, 15);
+            IntVector tg22x = ax.mul(NonMaxSuppression.TG22);
+            VectorMask<Integer> horizontal = ay.compare(VectorOperators.LT, tg22x);
+            VectorMask<Integer> vertical = ay.sub(tg22x)
+                    .compare(VectorOperators.GT, ax.lanewise(VectorOperators.LSHL, 16))
+                    .andNot(horizontal);
+            VectorMask<Integer> gxNegative = gx.compare(VectorOperators.LT, 0);
+            VectorMask<Integer> gyPositive = gy.compare(VectorOperators.GT, 0);
+            VectorMask<Integer> sameSign = gx.lanewise(VectorOperators.XOR, gy).compare(VectorOperators.GE, 0);
+            VectorMask<Integer> sumNegative = gx.add(gy).compare(VectorOperators.LT, 0);
+
+            // Diagonals first, then the axis cases override them
+            IntVector same = IntVector.broadcast(INTS, 1).blend(5, sumNegative);
+            IntVector opposite = IntVector.broadcast(INTS, 7).blend(3, gyPositive);
+            IntVector d = opposite.blend(same, sameSign);
+            d = d.blend(IntVector.broadcast(INTS, 6).blend(2, gyPositive), vertical);
+            d = d.blend(IntVector.broadcast(INTS, 0).blend(4, gxNegative), horizontal);
+            ((ByteVector) d.convertShape(VectorOperators.I2B, BYTES_FOR_INTS, 0)).intoArray(dir, dirOffset + i);
+        }
+        super.octants(dx, dy, offset + i, count - i, dir, dirOffset + i);
+    }
+
+    @Override
+    public void sectors(short[] dx, short[] dy, int offset, int count, byte[] sector, int sectorOffset) {
+        int lanes = INTS.length();
+        int i = 0;
+        for (; i + lanes <= count; i += lanes) {
+            IntVector gx = loadInts(dx, offset + i);
+            IntVector gy = loadInts(dy, offset + i);
+            IntVector ax = gx.abs().min(Short.MAX_VALUE);
+            IntVector ay = gy.abs().lanewise(VectorOperators.LSHL, 15);
+            IntVector tg22x = ax.mul(NonMaxSuppression.TG22);
+            VectorMask<Integer> horizontal = ay.compare(VectorOperators.LT, tg22x);
+            VectorMask<Integer> vertical = ay.sub(tg22x)
+                    .compare(VectorOperators.GT, ax.lanewise(VectorOperators.LSHL, 16));
+            VectorMask<Integer> sameSign = gx.lanewise(VectorOperators.XOR, gy).compare(VectorOperators.GE, 0);
+            IntVector d = IntVector.broadcast(INTS, 3).blend(1, sameSign).blend(2, vertical).blend(0, horizontal);
+            ((ByteVector) d.convertShape(VectorOperators.I2B, BYTES_FOR_INTS, 0)).intoArray(sector, sectorOffset + i);
+        }
+        super.sectors(dx, dy, offset + i, count - i, sector, sectorOffset + i);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.canny418.canny;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link VectorGradientKernels} against {@link ScalarGradientKernels}, bit for bit. Widths 1 to 17
+ * cover rows with no full lane and rows that end in a partial one.
+ */
+public class VectorGradientKernelsTest {
+    private static final int MAX_NARROW_WIDTH = 17;
+    private static final int[][] WIDE_SIZES = {{31, 7}, {64, 5}, {67, 13}, {257, 9}};
+    private static final short[] EXTREMES = {0, 1, -1, 2, -2, 12, -29, 255, -255, 1020, -1020,
+            Short.MAX_VALUE, Short.MIN_VALUE, Short.MAX_VALUE - 1, Short.MIN_VALUE + 1};
+
+    private final GradientKernels mScalar = new ScalarGradientKernels();
+    private final GradientKernels mVector = new VectorGradientKernels();
+
+    @Test
+    public void bestIsVector() {
+        assertEquals(VectorGradientKernels.class, GradientKernels.best().getClass());
+    }
+
+    @Test
+    public void sobelMatchesScalar() {
+        Random random = new Random(11);
+        for (int aperture = 3; aperture <= 7; aperture += 2) {
+            for (int width = 1; width <= MAX_NARROW_WIDTH; width++)
+                for (int height = 1; height <= 6; height++)
+                    checkSobel(random, width, height, aperture);
+            for (int[] size : WIDE_SIZES)
+                checkSobel(random, size[0], size[1], aperture);
+        }
+    }
+
+    @Test
+    public void pixelKernelsMatchScalarOnSobelOutput() {
+        Random random = new Random(12);
+        for (int aperture = 3; aperture <= 7; aperture += 2) {
+            for (int[] size : WIDE_SIZES) {
+                int width = size[0], height = size[1], pixels = width * height;
+                byte[] src = randomImage(random, width, height);
+                short[] dx = new short[pixels];
+                short[] dy = new short[pixels];
+                mScalar.sobel(src, width, height, aperture, dx, dy, new int[width + 8], new int[width + 8]);
+                // Row by row, as CannyEdgeDetector calls them, so every row has its own tail
+                for (int y = 0; y < height; y++)
+                    checkPixelKernels(dx, dy, y * width, width, "aperture " + aperture + " " + width + "x" + height
+                            + " row " + y);
+            }
+        }
+    }
+
+    @Test
+    public void pixelKernelsMatchScalarOnExtremes() {
+        Random random = new Random(13);
+        int length = 4 * MAX_NARROW_WIDTH + 64;
+        short[] dx = new short[length];
+        short[] dy = new short[length];
+        for (int i = 0; i < length; i++) {
+            dx[i] = random.nextInt(4) == 0 ? EXTREMES[random.nextInt(EXTREMES.length)] : (short) random.nextInt();
+            dy[i] = random.nextInt(4) == 0 ? EXTREMES[random.nextInt(EXTREMES.length)] : (short) random.nextInt();
+        }
+        for (int offset = 0; offset < 4; offset++)
+            for (int count = 0; count <= length - offset; count += count < 2 * MAX_NARROW_WIDTH ? 1 : 13)
+                checkPixelKernels(dx, dy, offset, count, "offset " + offset + " count " + count);
+
+        // Every pair of extremes, which covers the exact 22.5 and 67.5 degree ties and -32768
+        short[] ex = new short[EXTREMES.length * EXTREMES.length];
+        short[] ey = new short[ex.length];
+        for (int i = 0; i < EXTREMES.length; i++) {
+            for (int j = 0; j < EXTREMES.length; j++) {
+                ex[i * EXTREMES.length + j] = EXTREMES[i];
+                ey[i * EXTREMES.length + j] = EXTREMES[j];
+            }
+        }
+        checkPixelKernels(ex, ey, 0, ex.length, "extreme pairs");
+    }
+
+    private void checkSobel(Random random, int width, int height, int aperture) {
+        int pixels = width * height;
+        byte[] src = randomImage(random, width, height);
+        short[] expectedDx = new short[pixels];
+        short[] expectedDy = new short[pixels];
+        short[] dx = new short[pixels];
+        short[] dy = new short[pixels];
+        int[] smoothRow = new int[width + aperture - 1];
+        int[] derivRow = new int[width + aperture - 1];
+        mScalar.sobel(src, width, height, aperture, expectedDx, expectedDy, smoothRow, derivRow);
+        mVector.sobel(src, width, height, aperture, dx, dy, smoothRow, derivRow);
+        String message = "aperture " + aperture + " " + width + "x" + height;
+        assertArrayEquals(message + " dx", expectedDx, dx);
+        assertArrayEquals(message + " dy", expectedDy, dy);
+    }
+
+    /** Runs every per-pixel kernel on {@code [offset, offset + count)}, writing at a shifted offset to catch stray stores. */
+    private void checkPixelKernels(short[] dx, short[] dy, int offset, int count, String message) {
+        int outOffset = 3;
+        int length = outOffset + count + 3;
+
+        int[] expectedMag = new int[length];
+        int[] mag = new int[length];
+        mScalar.magnitudeL1(dx, dy, offset, count, expectedMag, outOffset);
+        mVector.magnitudeL1(dx, dy, offset, count, mag, outOffset);
+        assertArrayEquals(message + " L1", expectedMag, mag);
+
+        expectedMag = new int[length];
+        mag = new int[length];
+        mScalar.magnitudeL2(dx, dy, offset, count, expectedMag, outOffset);
+        mVector.magnitudeL2(dx, dy, offset, count, mag, outOffset);
+        assertArrayEquals(message + " L2", expectedMag, mag);
+
+        byte[] expectedDir = new byte[length];
+        byte[] dir = new byte[length];
+        mScalar.octants(dx, dy, offset, count, expectedDir, outOffset);
+        mVector.octants(dx, dy, offset, count, dir, outOffset);
+        assertArrayEquals(message + " octants", expectedDir, dir);
+
+        expectedDir = new byte[length];
+        dir = new byte[length];
+        mScalar.sectors(dx, dy, offset, count, expectedDir, outOffset);
+        mVector.sectors(dx, dy, offset, count, dir, outOffset);
+        assertArrayEquals(message + " sectors", expectedDir, dir);
+    }
+
+    private static byte[] randomImage(Random random, int width, int height) {
+        byte[] src = new byte[width * height];
+        random.nextBytes(src);
+        // Some saturated runs so the derivatives reach their extremes
+        for (int i = 0; i < src.length; i += 1 + random.nextInt(5))
+            src[i] = random.nextBoolean() ? 0 : (byte) 255;
+        return src;
+    }
+}
@@ -0,0 +1,204 @@
+package org.opencv.core;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.OpenCVLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** {@link MatPool} with real Mats, so it runs on a device or emulator. */
+@RunWith(AndroidJUnit4.class)
+public class MatPoolTest {
+    // 8-bit single channel shapes of 100, 110, 120 and 130 bytes
+    private static final int COLS = 10;
+    private static final int TYPE = CvType.CV_8UC1;
+
+    private MatPool mPool;
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        assertTrue(OpenCVLoader.initDebug());
+    }
+
+    @Before
+    public void setUp() {
+        mPool = new MatPool(1 << 20);
+    }
+
+    @After
+    public void tearDown() {
+        mPool.clear();
+    }
+
+    @Test
+    public void threadCacheOverflowsIntoSharedPool() {
+        Mat[] mats = new Mat[6];
+        for (int i = 0; i < mats.length; i++)
+            mats[i] = mPool.borrow(10, COLS, TYPE);
+        for (Mat mat : mats)
+            mPool.recycle(mat);
+        // Four thread slots, the other two go to the shared pool
+        assertEquals(4 * 100, mPool.getThreadCachedBytes());
+        assertEquals(2 * 100, mPool.getIdleBytes());
+
+        for (int i = 0; i < mats.length; i++)
+            mPool.borrow(10, COLS, TYPE);
+        assertEquals(12, mPool.getBorrowCount());
+        assertEquals(4, mPool.getThreadHitCount());
+        assertEquals(6, mPool.getHitCount());
+        assertEquals(0, mPool.getThreadCachedBytes());
+        assertEquals(0, mPool.getIdleBytes());
+    }
+
+    @Test
+    public void flushMovesThreadCacheToSharedPool() {
+        for (int i = 0; i < 6; i++)
+            mPool.recycle(new Mat(10 + i, COLS, TYPE));
+        assertEquals(100 + 110 + 120 + 130, mPool.getThreadCachedBytes());
+        assertEquals(140 + 150, mPool.getIdleBytes());
+
+        mPool.flushThreadCache();
+        assertEquals(0, mPool.getThreadCachedBytes());
+        assertEquals(100 + 110 + 120 + 130 + 140 + 150, mPool.getIdleBytes());
+
+        // Now served by the shared pool
+        mPool.borrow(10, COLS, TYPE);
+        assertEquals(0, mPool.getThreadHitCount());
+        assertEquals(1, mPool.getHitCount());
+
+        mPool.clear();
+        assertEquals(0, mPool.getThreadCachedBytes());
+        assertEquals(0, mPool.getIdleBytes());
+    }
+
+    @Test
+    public void clearEmptiesThreadCache() {
+        mPool.recycle(new Mat(10, COLS, TYPE));
+        mPool.recycle(new Mat(11, COLS, TYPE));
+        assertEquals(210, mPool.getThreadCachedBytes());
+        mPool.clear();
+        assertEquals(0, mPool.getThreadCachedBytes());
+        assertEquals(0, mPool.getIdleBytes());
+    }
+
+    @Test
+    public void flushFromAnotherThread() throws InterruptedException {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mPool.recycle(new Mat(10, COLS, TYPE));
+                mPool.recycle(new Mat(10, COLS, TYPE));
+                mPool.flushThreadCache();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(0, mPool.getThreadCachedBytes());
+        assertEquals(200, mPool.getIdleBytes());
+
+        mPool.borrow(10, COLS, TYPE);
+        mPool.borrow(10, COLS, TYPE);
+        assertEquals(2, mPool.getHitCount());
+        assertEquals(0, mPool.getThreadHitCount());
+        assertEquals(0, mPool.getIdleBytes());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedShapeFirst() {
+        mPool.setByteCap(350);
+        Mat a = new Mat(10, COLS, TYPE);
+        Mat b = new Mat(11, COLS, TYPE);
+        Mat c = new Mat(12, COLS, TYPE);
+        share(a);
+        share(b);
+        share(c);
+        assertEquals(330, mPool.getIdleBytes());
+        assertEquals(0, mPool.getEvictionCount());
+
+        // Borrowing and returning a makes b the least recently used shape
+        assertSame(a, mPool.borrow(10, COLS, TYPE));
+        share(a);
+
+        Mat d = new Mat(13, COLS, TYPE);
+        share(d);
+        // 460 bytes over a cap of 350: dropping b alone is enough
+        assertEquals(1, mPool.getEvictionCount());
+        assertEquals(110, mPool.getEvictedBytes());
+        assertEquals(350, mPool.getIdleBytes());
+        assertTrue(b.empty());
+        assertFalse(a.empty());
+
+        assertSame(c, mPool.borrow(12, COLS, TYPE));
+        assertSame(a, mPool.borrow(10, COLS, TYPE));
+        assertSame(d, mPool.borrow(13, COLS, TYPE));
+        assertNotSame(b, mPool.borrow(11, COLS, TYPE));
+        assertEquals(0, mPool.getIdleBytes());
+    }
+
+    @Test
+    public void lowerCapEvictsImmediately() {
+        share(new Mat(10, COLS, TYPE));
+        share(new Mat(11, COLS, TYPE));
+        share(new Mat(12, COLS, TYPE));
+        mPool.setByteCap(200);
+        assertEquals(120, mPool.getIdleBytes());
+        assertEquals(2, mPool.getEvictionCount());
+        assertEquals(210, mPool.getEvictedBytes());
+    }
+
+    @Test
+    public void matsLargerThanTheCapAreReleased() {
+        mPool.setByteCap(99);
+        Mat mat = new Mat(10, COLS, TYPE);
+        mPool.recycle(mat);
+        assertTrue(mat.empty());
+        assertEquals(0, mPool.getThreadCachedBytes());
+        assertEquals(0, mPool.getIdleBytes());
+    }
+
+    @Test
+    public void submatricesAreReleased() {
+        Mat parent = new Mat(10, COLS, TYPE);
+        Mat sub = parent.submat(0, 5, 0, 5);
+        mPool.recycle(sub);
+        assertTrue(sub.empty());
+        assertEquals(0, mPool.getThreadCachedBytes());
+        parent.release();
+    }
+
+    @Test
+    public void emptyIdleMatsAreDropped() {
+        Mat cached = new Mat(10, COLS, TYPE);
+        mPool.recycle(cached);
+        Mat shared = new Mat(11, COLS, TYPE);
+        share(shared);
+        // Released behind the pool's back, as a caller that kept its reference might
+        cached.release();
+        shared.release();
+
+        Mat mat = mPool.borrow(10, COLS, TYPE);
+        assertNotSame(cached, mat);
+        assertFalse(mat.empty());
+        mat = mPool.borrow(11, COLS, TYPE);
+        assertNotSame(shared, mat);
+        assertFalse(mat.empty());
+        assertEquals(0, mPool.getHitCount());
+        assertEquals(0, mPool.getThreadCachedBytes());
+        assertEquals(0, mPool.getIdleBytes());
+    }
+
+    /** Recycles {@code mat} straight into the shared pool. */
+    private void share(Mat mat) {
+        mPool.recycle(mat);
+        mPool.flushThreadCache();
+    }
+}
@@ -1,10 +1,13 @@
 package org.opencv.android;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.opencv.BuildConfig;
 import org.opencv.R;
 import org.opencv.core.Mat;
+import org.opencv.core.MatPool;
+import org.opencv.core.MatScope;
 import org.opencv.core.Size;
 
 import android.app.Activity;
@@ -39,6 +42,7 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     private CvCameraViewListener2 mListener;
     private boolean mSurfaceExist;
     private final Object mSyncObject = new Object();
+    private volatile long mLastDrawNanos;
 
     protected int mFrameWidth;
     protected int mFrameHeight;
@@ -48,7 +52,10 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     protected int mPreviewFormat = RGBA;
     protected int mCameraIndex = CAMERA_ID_ANY;
     protected boolean mEnabled;
-    protected FpsMeter mFpsMeter = null;
+    protected final FrameStats mFrameStats = new FrameStats();
+    protected boolean mShowFrameStats;
+    private volatile boolean mFrameScopeEnabled;
+    protected MatPool mMatPool = MatPool.getDefault();
 
     public static final int CAMERA_ID_ANY   = -1;
     public static final int CAMERA_ID_BACK  = 99;
@@ -190,6 +197,28 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
         public Mat gray();
     };
 
+    /**
+     * Frame that also exposes the camera's luminance plane as delivered, so gray scale processing
+     * can read it in place without going through rgba() or gray().
+     * The same lifetime rules as for CvCameraViewFrame apply to the returned buffer.
+     */
+    public interface CvCameraViewPlaneFrame extends CvCameraViewFrame {
+
+        /**
+         * This method returns the Y plane; the first pixel is at index 0
+         */
+        public ByteBuffer yPlane();
+
+        /**
+         * This method returns the distance between Y rows in bytes, at least width()
+         */
+        public int yRowStride();
+
+        public int width();
+
+        public int height();
+    };
+
     public void surfaceChanged(SurfaceHolder arg0, int arg1, int arg2, int arg3) {
         Log.d(TAG, "call surfaceChanged event");
         synchronized(mSyncObject) {
@@ -242,17 +271,45 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     }
 
     /**
-     * This method enables label with fps value on the screen
+     * This method enables label with fps value, frame drops and capture-to-display
+     * latency on the screen
      */
     public void enableFpsMeter() {
-        if (mFpsMeter == null) {
-            mFpsMeter = new FpsMeter();
-            mFpsMeter.setResolution(mFrameWidth, mFrameHeight);
-        }
+        mShowFrameStats = true;
     }
 
     public void disableFpsMeter() {
-            mFpsMeter = null;
+        mShowFrameStats = false;
+    }
+
+    /**
+     * Frame interval, latency and drop statistics of this view, collected whether
+     * or not the on-screen label is enabled
+     */
+    public FrameStats getFrameStats() {
+        return mFrameStats;
+    }
+
+    /**
+     * Sets the pool the camera takes its frame buffers from, {@link MatPool#getDefault()}
+     * unless changed. Takes effect the next time the camera is connected.
+     */
+    public void setMatPool(MatPool pool) {
+        mMatPool = pool;
+    }
+
+    public MatPool getMatPool() {
+        return mMatPool;
+    }
+
+    /**
+     * When enabled, each frame is delivered and drawn inside a {@link MatScope}, so Mats the
+     * listener creates in onCameraFrame are released once the frame is on screen. Mats kept
+     * across frames must then be created outside onCameraFrame or promoted out of
+     * {@link MatScope}.
+     */
+    public void setFrameScopeEnabled(boolean enabled) {
+        mFrameScopeEnabled = enabled;
     }
 
     /**
@@ -386,16 +443,43 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
      * @param frame - the current frame to be delivered
      */
     protected void deliverAndDrawFrame(CvCameraViewFrame frame) {
+        deliverAndDrawFrame(frame, System.nanoTime());
+    }
+
+    /**
+     * Same as {@link #deliverAndDrawFrame(CvCameraViewFrame)}, for subclasses that know when
+     * the frame arrived from the camera
+     * @param frame - the current frame to be delivered
+     * @param captureNanos - {@link System#nanoTime()} at which the camera delivered the frame
+     */
+    protected void deliverAndDrawFrame(CvCameraViewFrame frame, long captureNanos) {
+        if (!mFrameScopeEnabled) {
+            drawFrame(frame, captureNanos);
+            return;
+        }
+        MatScope scope = MatScope.open();
+        try {
+            drawFrame(frame, captureNanos);
+        } finally {
+            scope.close();
+        }
+    }
+
+    private void drawFrame(CvCameraViewFrame frame, long captureNanos) {
         Mat modified;
 
+        FrameTracer.begin("listener");
         if (mListener != null) {
             modified = mListener.onCameraFrame(frame);
         } else {
             modified = frame.rgba();
         }
+        FrameTracer.end("listener");
 
+        long drawStart = System.nanoTime();
         boolean bmpValid = true;
         if (modified != null) {
+            FrameTracer.begin("matToBitmap");
             try {
                 Utils.matToBitmap(modified, mCacheBitmap);
             } catch(Exception e) {
@@ -404,11 +488,15 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
                 Log.e(TAG, "Utils.matToBitmap() throws an exception: " + e.getMessage());
                 bmpValid = false;
             }
+            FrameTracer.end("matToBitmap");
         }
 
         if (bmpValid && mCacheBitmap != null) {
+            FrameTracer.begin("lockCanvas");
             Canvas canvas = getHolder().lockCanvas();
+            FrameTracer.end("lockCanvas");
             if (canvas != null) {
+                FrameTracer.begin("canvasPost");
                 canvas.drawColor(0, android.graphics.PorterDuff.Mode.CLEAR);
                 if (BuildConfig.DEBUG)
                     Log.d(TAG, "mStretch value: " + mScale);
@@ -427,13 +515,22 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
                          (canvas.getHeight() - mCacheBitmap.getHeight()) / 2 + mCacheBitmap.getHeight()), null);
                 }
 
-                if (mFpsMeter != null) {
-                    mFpsMeter.measure();
-                    mFpsMeter.draw(canvas, 20, 30);
-                }
+                if (mShowFrameStats)
+                    mFrameStats.drawOverlay(canvas, 20, 30);
                 getHolder().unlockCanvasAndPost(canvas);
+                mFrameStats.frameDisplayed(captureNanos, System.nanoTime());
+                FrameTracer.end("canvasPost");
             }
         }
+        mLastDrawNanos = System.nanoTime() - drawStart;
+    }
+
+    /**
+     * Time the last frame took from the listener returning to the canvas being posted,
+     * i.e. matToBitmap plus drawing; 0 before the first frame.
+     */
+    public long getLastDrawNanos() {
+        return mLastDrawNanos;
     }
 
     /**
@@ -455,6 +552,8 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     protected void AllocateCache()
     {
         mCacheBitmap = Bitmap.createBitmap(mFrameWidth, mFrameHeight, Bitmap.Config.ARGB_8888);
+        mFrameStats.reset();
+        mFrameStats.setResolution(mFrameWidth, mFrameHeight);
     }
 
     public interface ListItemAccessor {
@@ -0,0 +1,224 @@
+package org.opencv.android;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * Frame statistics of a camera view over a rolling window of the last {@link #WINDOW} displayed
+ * frames: the interval between displayed frames, the latency from capture to display, and the
+ * number of camera frames that were overwritten before they could be processed.
+ *
+ * Recording a frame and drawing the overlay allocate nothing: samples go into fixed rings, and the
+ * overlay text is formatted into char arrays a few times per second. {@link #snapshot()} copies
+ * the window for programmatic use and may be called from any thread.
+ */
+public class FrameStats {
+    /** Number of displayed frames the percentiles are taken over. */
+    public static final int WINDOW = 120;
+    private static final int OVERLAY_UPDATE_FRAMES = 15;
+
+    private final long[] mIntervals = new long[WINDOW];
+    private final long[] mLatencies = new long[WINDOW];
+    private final long[] mSorted = new long[WINDOW];
+    private final AtomicLong mDropped = new AtomicLong();
+    private int mIntervalCount;
+    private int mLatencyCount;
+    private int mIntervalPos;
+    private int mLatencyPos;
+    private long mLastDisplayNanos;
+    private long mFrames;
+    private int mWidth;
+    private int mHeight;
+
+    private final Paint mPaint;
+    private final char[] mLine1 = new char[64];
+    private final char[] mLine2 = new char[64];
+    private int mLine1Length;
+    private int mLine2Length;
+    private int mPos;
+
+    public FrameStats() {
+        mPaint = new Paint();
+        mPaint.setColor(Color.BLUE);
+        mPaint.setTextSize(20);
+    }
+
+    /** Clears the window and the drop count, e.g. when the camera is reconnected. */
+    public synchronized void reset() {
+        mIntervalCount = mLatencyCount = 0;
+        mIntervalPos = mLatencyPos = 0;
+        mLastDisplayNanos = 0;
+        mFrames = 0;
+        mDropped.set(0);
+        mLine1Length = mLine2Length = 0;
+    }
+
+    public synchronized void setResolution(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /** Counts camera frames that were replaced by a newer one before being delivered. */
+    public void addDroppedFrames(int count) {
+        mDropped.addAndGet(count);
+    }
+
+    /** Records a frame posted to the screen at {@code displayNanos}, both times from {@link System#nanoTime()}. */
+    public synchronized void frameDisplayed(long captureNanos, long displayNanos) {
+        if (mLastDisplayNanos != 0) {
+            mIntervals[mIntervalPos] = displayNanos - mLastDisplayNanos;
+            mIntervalPos = (mIntervalPos + 1) % WINDOW;
+            if (mIntervalCount < WINDOW)
+                mIntervalCount++;
+        }
+        mLastDisplayNanos = displayNanos;
+        mLatencies[mLatencyPos] = displayNanos - captureNanos;
+        mLatencyPos = (mLatencyPos + 1) % WINDOW;
+        if (mLatencyCount < WINDOW)
+            mLatencyCount++;
+        mFrames++;
+    }
+
+    public synchronized Snapshot snapshot() {
+        long[] intervals = Arrays.copyOf(mIntervals, mIntervalCount);
+        long[] latencies = Arrays.copyOf(mLatencies, mLatencyCount);
+        Arrays.sort(intervals);
+        Arrays.sort(latencies);
+        return new Snapshot(mFrames, mDropped.get(), intervals, latencies);
+    }
+
+    /**
+     * Draws frame rate, resolution, drops and latency percentiles at ({@code x}, {@code y}).
+     * Call on the thread that records frames.
+     */
+    public synchronized void drawOverlay(Canvas canvas, float x, float y) {
+        if (mLine1Length == 0 || mFrames % OVERLAY_UPDATE_FRAMES == 0)
+            updateOverlay();
+        canvas.drawText(mLine1, 0, mLine1Length, x, y, mPaint);
+        canvas.drawText(mLine2, 0, mLine2Length, x, y + mPaint.getTextSize() * 1.25f, mPaint);
+    }
+
+    private void updateOverlay() {
+        System.arraycopy(mIntervals, 0, mSorted, 0, mIntervalCount);
+        Arrays.sort(mSorted, 0, mIntervalCount);
+        long interval = percentile(mSorted, mIntervalCount, 50);
+        mPos = 0;
+        appendFixed(mLine1, interval > 0 ? 1e10 / interval : 0, 1);
+        appendText(mLine1, " FPS");
+        if (mWidth != 0 && mHeight != 0) {
+            appendText(mLine1, "@");
+            appendFixed(mLine1, mWidth, 0);
+            appendText(mLine1, "x");
+            appendFixed(mLine1, mHeight, 0);
+        }
+        appendText(mLine1, "  drop ");
+        appendFixed(mLine1, mDropped.get(), 0);
+        mLine1Length = mPos;
+
+        System.arraycopy(mLatencies, 0, mSorted, 0, mLatencyCount);
+        Arrays.sort(mSorted, 0, mLatencyCount);
+        mPos = 0;
+        appendText(mLine2, "latency ");
+        appendFixed(mLine2, percentile(mSorted, mLatencyCount, 50) / 1e5, 1);
+        appendText(mLine2, "/");
+        appendFixed(mLine2, percentile(mSorted, mLatencyCount, 95) / 1e5, 1);
+        appendText(mLine2, "/");
+        appendFixed(mLine2, percentile(mSorted, mLatencyCount, 99) / 1e5, 1);
+        appendText(mLine2, " ms");
+        mLine2Length = mPos;
+    }
+
+    private void appendText(char[] line, String text) {
+        int count = Math.min(text.length(), line.length - mPos);
+        text.getChars(0, count, line, mPos);
+        mPos += count;
+    }
+
+    /**
+     * Appends {@code scaled / 10^decimals} with that many decimals, {@code scaled} having been
+     * multiplied up by the caller so no floating-point formatting is needed.
+     */
+    private void appendFixed(char[] line, double scaled, int decimals) {
+        long value = Math.round(scaled);
+        int start = mPos;
+        int digits = 0;
+        do {
+            if (mPos == line.length)
+                return;
+            if (digits == decimals && decimals > 0) {
+                line[mPos++] = '.';
+                if (mPos == line.length)
+                    return;
+            }
+            line[mPos++] = (char) ('0' + value % 10);
+            value /= 10;
+            digits++;
+        } while (value != 0 || digits <= decimals);
+        for (int i = start, j = mPos - 1; i < j; i++, j--) {
+            char c = line[i];
+            line[i] = line[j];
+            line[j] = c;
+        }
+    }
+
+    /** Nearest-rank percentile of the first {@code count} values of a sorted array, 0 when empty. */
+    static long percentile(long[] sorted, int count, double p) {
+        if (count == 0)
+            return 0;
+        int rank = (int) Math.ceil(p / 100.0 * count);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /** Copy of the window; times in nanoseconds. */
+    public static final class Snapshot {
+        private final long mFrames;
+        private final long mDropped;
+        private final long[] mIntervals;
+        private final long[] mLatencies;
+
+        Snapshot(long frames, long dropped, long[] sortedIntervals, long[] sortedLatencies) {
+            mFrames = frames;
+            mDropped = dropped;
+            mIntervals = sortedIntervals;
+            mLatencies = sortedLatencies;
+        }
+
+        /** Frames displayed since the last reset. */
+        public long getFrameCount() {
+            return mFrames;
+        }
+
+        /** Camera frames overwritten before delivery since the last reset. */
+        public long getDroppedFrames() {
+            return mDropped;
+        }
+
+        /** Frame rate from the median interval of the window, 0 without data. */
+        public double getFps() {
+            long median = getIntervalPercentile(50);
+            return median > 0 ? 1e9 / median : 0;
+        }
+
+        public long getIntervalPercentile(double p) {
+            return percentile(mIntervals, mIntervals.length, p);
+        }
+
+        public long getLatencyPercentile(double p) {
+            return percentile(mLatencies, mLatencies.length, p);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%.1f fps, interval p50/95/99 %.1f/%.1f/%.1f ms, latency p50/95/99 %.1f/%.1f/%.1f ms, %d dropped of %d",
+                    getFps(), getIntervalPercentile(50) / 1e6, getIntervalPercentile(95) / 1e6,
+                    getIntervalPercentile(99) / 1e6, getLatencyPercentile(50) / 1e6,
+                    getLatencyPercentile(95) / 1e6, getLatencyPercentile(99) / 1e6, mDropped, mFrames + mDropped);
+        }
+    }
+}
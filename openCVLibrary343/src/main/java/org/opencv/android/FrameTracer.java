@@ -0,0 +1,134 @@
+package org.opencv.android;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in tracer for per-frame pipeline timelines, exported as Chrome trace-event JSON
+ * (chrome://tracing, Perfetto).
+ *
+ * Begin and end events go into a ring buffer that is allocated when tracing starts; once it is
+ * full the oldest events are overwritten. Recording an event costs a clock read, an atomic
+ * increment and a few array stores, without allocation. While no tracer is active,
+ * {@link #begin} and {@link #end} return after a single volatile read. Event names should be
+ * string constants, since only the reference is stored.
+ */
+public final class FrameTracer {
+    private static volatile FrameTracer sActive;
+
+    private final int mMask;
+    private final long[] mTimes;
+    private final long[] mThreads;
+    private final String[] mNames;
+    private final String[] mThreadNames;
+    private final boolean[] mBegin;
+    private final AtomicLong mNext = new AtomicLong();
+    private final long mStartNanos = System.nanoTime();
+
+    private FrameTracer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mMask = size - 1;
+        mTimes = new long[size];
+        mThreads = new long[size];
+        mNames = new String[size];
+        mThreadNames = new String[size];
+        mBegin = new boolean[size];
+    }
+
+    /** Starts tracing into a new ring of at least {@code capacity} events, replacing any active tracer. */
+    public static FrameTracer start(int capacity) {
+        FrameTracer tracer = new FrameTracer(capacity);
+        sActive = tracer;
+        return tracer;
+    }
+
+    /** Stops tracing; the returned tracer, if any, still holds its events for {@link #writeJson}. */
+    public static FrameTracer stop() {
+        FrameTracer tracer = sActive;
+        sActive = null;
+        return tracer;
+    }
+
+    public static boolean isEnabled() {
+        return sActive != null;
+    }
+
+    public static void begin(String name) {
+        FrameTracer tracer = sActive;
+        if (tracer != null)
+            tracer.record(name, true);
+    }
+
+    public static void end(String name) {
+        FrameTracer tracer = sActive;
+        if (tracer != null)
+            tracer.record(name, false);
+    }
+
+    private void record(String name, boolean begin) {
+        long now = System.nanoTime();
+        Thread thread = Thread.currentThread();
+        int slot = (int) (mNext.getAndIncrement() & mMask);
+        mTimes[slot] = now;
+        mThreads[slot] = thread.getId();
+        mThreadNames[slot] = thread.getName();
+        mNames[slot] = name;
+        mBegin[slot] = begin;
+    }
+
+    /** Number of events held, at most the ring size. */
+    public int getEventCount() {
+        return (int) Math.min(mNext.get(), mMask + 1);
+    }
+
+    /**
+     * Writes the held events, oldest first, as a trace-event JSON object with one thread name
+     * record per thread. Call after {@link #stop()}; events recorded concurrently may be torn.
+     */
+    public void writeJson(Writer out) throws IOException {
+        long end = mNext.get();
+        long first = Math.max(0, end - (mMask + 1));
+        Map<Long, String> threads = new HashMap<Long, String>();
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean comma = false;
+        for (long i = first; i < end; i++) {
+            int slot = (int) (i & mMask);
+            if (comma)
+                out.write(',');
+            comma = true;
+            threads.put(mThreads[slot], mThreadNames[slot]);
+            out.write(String.format(Locale.ROOT, "\n{\"name\":\"%s\",\"ph\":\"%s\",\"ts\":%.3f,\"pid\":1,\"tid\":%d}",
+                    escape(mNames[slot]), mBegin[slot] ? "B" : "E", (mTimes[slot] - mStartNanos) / 1e3,
+                    mThreads[slot]));
+        }
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            if (comma)
+                out.write(',');
+            comma = true;
+            out.write(String.format(Locale.ROOT,
+                    "\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":\"%s\"}}",
+                    thread.getKey(), escape(thread.getValue())));
+        }
+        out.write("\n]}\n");
+    }
+
+    private static String escape(String s) {
+        if (s == null)
+            return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+}
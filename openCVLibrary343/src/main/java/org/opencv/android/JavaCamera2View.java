@@ -24,6 +24,7 @@ import android.view.ViewGroup.LayoutParams;
 
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.MatPool;
 import org.opencv.imgproc.Imgproc;
 
 /**
@@ -73,6 +74,14 @@ public class JavaCamera2View extends CameraBridgeViewBase {
         Log.i(LOGTAG, "stopBackgroundThread");
         if (mBackgroundThread == null)
             return;
+        // Frames are converted on this thread, so its pooled Mats go back to the shared pool
+        final MatPool pool = mMatPool;
+        mBackgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                pool.flushThreadCache();
+            }
+        });
         mBackgroundThread.quitSafely();
         try {
             mBackgroundThread.join();
@@ -163,9 +172,20 @@ public class JavaCamera2View extends CameraBridgeViewBase {
             mImageReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
                 @Override
                 public void onImageAvailable(ImageReader reader) {
-                    Image image = reader.acquireLatestImage();
-                    if (image == null)
+                    FrameTracer.begin("capture");
+                    long captureNanos = System.nanoTime();
+                    // Like acquireLatestImage(), but counting the older images it would discard
+                    Image image = reader.acquireNextImage();
+                    if (image == null) {
+                        FrameTracer.end("capture");
                         return;
+                    }
+                    Image next;
+                    while ((next = reader.acquireNextImage()) != null) {
+                        image.close();
+                        image = next;
+                        mFrameStats.addDroppedFrames(1);
+                    }
 
                     // sanity checks - 3 planes
                     Image.Plane[] planes = image.getPlanes();
@@ -183,8 +203,12 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                     Mat y_mat = new Mat(h, w, CvType.CV_8UC1, y_plane);
                     Mat uv_mat = new Mat(h / 2, w / 2, CvType.CV_8UC2, uv_plane);
                     JavaCamera2Frame tempFrame = new JavaCamera2Frame(y_mat, uv_mat, w, h);
-                    deliverAndDrawFrame(tempFrame);
+                    tempFrame.setYPlane(y_plane, planes[0].getRowStride());
+                    FrameTracer.end("capture");
+                    deliverAndDrawFrame(tempFrame, captureNanos);
                     tempFrame.release();
+                    y_mat.release();
+                    uv_mat.release();
                     image.close();
                 }
             }, mBackgroundHandler);
@@ -322,7 +346,27 @@ public class JavaCamera2View extends CameraBridgeViewBase {
         return true;
     }
 
-    private class JavaCamera2Frame implements CvCameraViewFrame {
+    private class JavaCamera2Frame implements CvCameraViewPlaneFrame {
+        @Override
+        public ByteBuffer yPlane() {
+            return mYPlane;
+        }
+
+        @Override
+        public int yRowStride() {
+            return mYRowStride;
+        }
+
+        @Override
+        public int width() {
+            return mWidth;
+        }
+
+        @Override
+        public int height() {
+            return mHeight;
+        }
+
         @Override
         public Mat gray() {
             return mYuvFrameData.submat(0, mHeight, 0, mWidth);
@@ -330,6 +374,10 @@ public class JavaCamera2View extends CameraBridgeViewBase {
 
         @Override
         public Mat rgba() {
+            // Borrowed on first use, so frames only read as gray never touch the pool
+            if (mRgba == null)
+                mRgba = mMatPool.borrow(mHeight, mWidth, CvType.CV_8UC4);
+            FrameTracer.begin("convert");
             if (mPreviewFormat == ImageFormat.NV21)
                 Imgproc.cvtColor(mYuvFrameData, mRgba, Imgproc.COLOR_YUV2RGBA_NV21, 4);
             else if (mPreviewFormat == ImageFormat.YV12)
@@ -339,6 +387,7 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                 Imgproc.cvtColorTwoPlane(mYuvFrameData, mUVFrameData, mRgba, Imgproc.COLOR_YUV2RGBA_NV21);
             } else
                 throw new IllegalArgumentException("Preview Format can be NV21 or YV12");
+            FrameTracer.end("convert");
 
             return mRgba;
         }
@@ -349,7 +398,6 @@ public class JavaCamera2View extends CameraBridgeViewBase {
             mHeight = height;
             mYuvFrameData = Yuv420sp;
             mUVFrameData = null;
-            mRgba = new Mat();
         }
 
         public JavaCamera2Frame(Mat Y, Mat UV, int width, int height) {
@@ -358,13 +406,22 @@ public class JavaCamera2View extends CameraBridgeViewBase {
             mHeight = height;
             mYuvFrameData = Y;
             mUVFrameData = UV;
-            mRgba = new Mat();
+        }
+
+        public void setYPlane(ByteBuffer yPlane, int rowStride) {
+            mYPlane = yPlane;
+            mYRowStride = rowStride;
         }
 
         public void release() {
-            mRgba.release();
+            if (mRgba != null) {
+                mMatPool.recycle(mRgba);
+                mRgba = null;
+            }
         }
 
+        private ByteBuffer mYPlane;
+        private int mYRowStride;
         private Mat mYuvFrameData;
         private Mat mUVFrameData;
         private Mat mRgba;
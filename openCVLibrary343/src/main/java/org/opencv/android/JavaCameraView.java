@@ -34,6 +34,7 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
 
     private byte mBuffer[];
     private Mat[] mFrameChain;
+    private final long[] mCaptureNanos = new long[2];
     private int mChainIdx = 0;
     private Thread mThread;
     private boolean mStopThread;
@@ -184,10 +185,6 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
                     else
                         mScale = 0;
 
-                    if (mFpsMeter != null) {
-                        mFpsMeter.setResolution(mFrameWidth, mFrameHeight);
-                    }
-
                     int size = mFrameWidth * mFrameHeight;
                     size  = size * ImageFormat.getBitsPerPixel(params.getPreviewFormat()) / 8;
                     mBuffer = new byte[size];
@@ -196,8 +193,8 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
                     mCamera.setPreviewCallbackWithBuffer(this);
 
                     mFrameChain = new Mat[2];
-                    mFrameChain[0] = new Mat(mFrameHeight + (mFrameHeight/2), mFrameWidth, CvType.CV_8UC1);
-                    mFrameChain[1] = new Mat(mFrameHeight + (mFrameHeight/2), mFrameWidth, CvType.CV_8UC1);
+                    mFrameChain[0] = mMatPool.borrow(mFrameHeight + (mFrameHeight/2), mFrameWidth, CvType.CV_8UC1);
+                    mFrameChain[1] = mMatPool.borrow(mFrameHeight + (mFrameHeight/2), mFrameWidth, CvType.CV_8UC1);
 
                     AllocateCache();
 
@@ -236,13 +233,15 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
             }
             mCamera = null;
             if (mFrameChain != null) {
-                mFrameChain[0].release();
-                mFrameChain[1].release();
+                mMatPool.recycle(mFrameChain[0]);
+                mMatPool.recycle(mFrameChain[1]);
+                mFrameChain = null;
             }
             if (mCameraFrame != null) {
                 mCameraFrame[0].release();
                 mCameraFrame[1].release();
             }
+            mMatPool.flushThreadCache();
         }
     }
 
@@ -301,11 +300,20 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
     public void onPreviewFrame(byte[] frame, Camera arg1) {
         if (BuildConfig.DEBUG)
             Log.d(TAG, "Preview Frame received. Frame size: " + frame.length);
+        FrameTracer.begin("capture");
         synchronized (this) {
-            mFrameChain[mChainIdx].put(0, 0, frame);
-            mCameraFrameReady = true;
-            this.notify();
+            // Skip a callback still queued after releaseCamera() returned the buffers to the pool
+            if (mFrameChain != null) {
+                // The worker has not picked up the previous frame yet, so it is lost
+                if (mCameraFrameReady)
+                    mFrameStats.addDroppedFrames(1);
+                mFrameChain[mChainIdx].put(0, 0, frame);
+                mCaptureNanos[mChainIdx] = System.nanoTime();
+                mCameraFrameReady = true;
+                this.notify();
+            }
         }
+        FrameTracer.end("capture");
         if (mCamera != null)
             mCamera.addCallbackBuffer(mBuffer);
     }
@@ -318,12 +326,17 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
 
         @Override
         public Mat rgba() {
+            // Borrowed on first use, so frames only read as gray never touch the pool
+            if (mRgba == null)
+                mRgba = mMatPool.borrow(mHeight, mWidth, CvType.CV_8UC4);
+            FrameTracer.begin("convert");
             if (mPreviewFormat == ImageFormat.NV21)
                 Imgproc.cvtColor(mYuvFrameData, mRgba, Imgproc.COLOR_YUV2RGBA_NV21, 4);
             else if (mPreviewFormat == ImageFormat.YV12)
                 Imgproc.cvtColor(mYuvFrameData, mRgba, Imgproc.COLOR_YUV2RGB_I420, 4);  // COLOR_YUV2RGBA_YV12 produces inverted colors
             else
                 throw new IllegalArgumentException("Preview Format can be NV21 or YV12");
+            FrameTracer.end("convert");
 
             return mRgba;
         }
@@ -333,11 +346,13 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
             mWidth = width;
             mHeight = height;
             mYuvFrameData = Yuv420sp;
-            mRgba = new Mat();
         }
 
         public void release() {
-            mRgba.release();
+            if (mRgba != null) {
+                mMatPool.recycle(mRgba);
+                mRgba = null;
+            }
         }
 
         private Mat mYuvFrameData;
@@ -352,6 +367,7 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
         public void run() {
             do {
                 boolean hasFrame = false;
+                FrameTracer.begin("waitFrame");
                 synchronized (JavaCameraView.this) {
                     try {
                         while (!mCameraFrameReady && !mStopThread) {
@@ -367,12 +383,14 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
                         hasFrame = true;
                     }
                 }
+                FrameTracer.end("waitFrame");
 
                 if (!mStopThread && hasFrame) {
                     if (!mFrameChain[1 - mChainIdx].empty())
-                        deliverAndDrawFrame(mCameraFrame[1 - mChainIdx]);
+                        deliverAndDrawFrame(mCameraFrame[1 - mChainIdx], mCaptureNanos[1 - mChainIdx]);
                 }
             } while (!mStopThread);
+            mMatPool.flushThreadCache();
             Log.d(TAG, "Finish processing thread");
         }
     }
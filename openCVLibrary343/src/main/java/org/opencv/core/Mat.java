@@ -8,11 +8,17 @@ public class Mat {
 
     public final long nativeObj;
 
+    // Set while a MatTracker was active when this Mat was created
+    private MatTracker.Allocation tracked;
+
     public Mat(long addr)
     {
         if (addr == 0)
             throw new java.lang.UnsupportedOperationException("Native object address is NULL");
         nativeObj = addr;
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated(n_isSubmatrix(addr) ? 0 : n_total(addr) * n_elemSize(addr));
+        MatScope.adopt(this);
     }
 
     //
@@ -24,6 +30,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat();
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated(0);
+        MatScope.adopt(this);
 
         return;
     }
@@ -37,6 +46,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat(rows, cols, type);
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated((long) rows * cols * CvType.ELEM_SIZE(type));
+        MatScope.adopt(this);
 
         return;
     }
@@ -50,6 +62,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat(rows, cols, type, data);
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated(0);
+        MatScope.adopt(this);
 
         return;
     }
@@ -63,6 +78,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat(size.width, size.height, type);
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated((long) (size.width * size.height) * CvType.ELEM_SIZE(type));
+        MatScope.adopt(this);
 
         return;
     }
@@ -76,6 +94,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat(rows, cols, type, s.val[0], s.val[1], s.val[2], s.val[3]);
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated((long) rows * cols * CvType.ELEM_SIZE(type));
+        MatScope.adopt(this);
 
         return;
     }
@@ -89,6 +110,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat(size.width, size.height, type, s.val[0], s.val[1], s.val[2], s.val[3]);
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated((long) (size.width * size.height) * CvType.ELEM_SIZE(type));
+        MatScope.adopt(this);
 
         return;
     }
@@ -102,6 +126,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat(m.nativeObj, rowRange.start, rowRange.end, colRange.start, colRange.end);
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated(0);
+        MatScope.adopt(this);
 
         return;
     }
@@ -111,6 +138,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat(m.nativeObj, rowRange.start, rowRange.end);
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated(0);
+        MatScope.adopt(this);
 
         return;
     }
@@ -124,6 +154,9 @@ public class Mat {
     {
 
         nativeObj = n_Mat(m.nativeObj, roi.y, roi.y + roi.height, roi.x, roi.x + roi.width);
+        if (MatTracker.isEnabled())
+            tracked = MatTracker.allocated(0);
+        MatScope.adopt(this);
 
         return;
     }
@@ -353,6 +386,8 @@ public class Mat {
     {
 
         n_create(nativeObj, rows, cols, type);
+        if (tracked != null)
+            tracked.resized((long) rows * cols * CvType.ELEM_SIZE(type));
 
         return;
     }
@@ -366,6 +401,8 @@ public class Mat {
     {
 
         n_create(nativeObj, size.width, size.height, type);
+        if (tracked != null)
+            tracked.resized((long) (size.width * size.height) * CvType.ELEM_SIZE(type));
 
         return;
     }
@@ -655,6 +692,8 @@ public class Mat {
     {
 
         n_release(nativeObj);
+        if (tracked != null)
+            tracked.resized(0);
 
         return;
     }
@@ -923,6 +962,8 @@ public class Mat {
 
     @Override
     protected void finalize() throws Throwable {
+        if (tracked != null)
+            tracked.freed();
         n_delete(nativeObj);
         super.finalize();
     }
@@ -0,0 +1,276 @@
+package org.opencv.core;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of continuous Mats keyed by (rows, cols, type), so frame buffers of the same shape are
+ * reused instead of allocated and freed every frame.
+ *
+ * {@link #borrow} hands out an idle Mat of the requested shape, or a new one, and {@link #recycle}
+ * takes it back; the caller must not touch a Mat after recycling it. Each thread first checks a
+ * small cache of its own, then the shared pool. Returning a Mat never takes the shared pool above
+ * the byte cap: it releases the shapes used least recently instead. Mats borrowed inside a
+ * {@link MatScope} are not adopted by it.
+ *
+ * Thread caches are outside the cap, which only the shared pool can enforce, and hold at most
+ * four Mats per thread. Only their own thread can empty them, so a thread that borrows or
+ * recycles should call {@link #flushThreadCache()} before it ends; its cached Mats are otherwise
+ * freed by the finalizer once the thread is gone.
+ */
+public final class MatPool {
+    /** Idle Mats a thread keeps for itself before returning them to the shared pool. */
+    private static final int THREAD_SLOTS = 4;
+    private static final long DEFAULT_BYTE_CAP = 64L << 20;
+    private static final MatPool sDefault = new MatPool(DEFAULT_BYTE_CAP);
+
+    private final ThreadLocal<ThreadCache> mCaches = new ThreadLocal<ThreadCache>() {
+        @Override
+        protected ThreadCache initialValue() {
+            return new ThreadCache();
+        }
+    };
+    // Access-ordered, so iteration starts at the least recently used shape
+    private final LinkedHashMap<Long, ArrayDeque<Mat>> mShared = new LinkedHashMap<Long, ArrayDeque<Mat>>(16, 0.75f, true);
+    private volatile long mByteCap;
+    private final AtomicLong mIdleBytes = new AtomicLong();
+    private final AtomicLong mCachedBytes = new AtomicLong();
+    private final AtomicLong mBorrows = new AtomicLong();
+    private final AtomicLong mThreadHits = new AtomicLong();
+    private final AtomicLong mSharedHits = new AtomicLong();
+    private final AtomicLong mEvictions = new AtomicLong();
+    private final AtomicLong mEvictedBytes = new AtomicLong();
+
+    public MatPool(long byteCap) {
+        setByteCap(byteCap);
+    }
+
+    /** Process-wide pool used by the camera views, capped at 64 MB. */
+    public static MatPool getDefault() {
+        return sDefault;
+    }
+
+    /** Caps the bytes held by the shared pool, releasing least recently used Mats beyond it. */
+    public void setByteCap(long byteCap) {
+        if (byteCap < 0)
+            throw new IllegalArgumentException("Invalid byte cap " + byteCap);
+        mByteCap = byteCap;
+        synchronized (mShared) {
+            evict();
+        }
+    }
+
+    public long getByteCap() {
+        return mByteCap;
+    }
+
+    /**
+     * A continuous Mat of the given shape with undefined contents. Idle Mats that were released
+     * while in the pool, by a caller that kept a reference after recycling, are dropped.
+     */
+    public Mat borrow(int rows, int cols, int type) {
+        mBorrows.incrementAndGet();
+        long key = key(rows, cols, type);
+        if (key >= 0) {
+            ThreadCache cache = mCaches.get();
+            for (int i = 0; i < THREAD_SLOTS; i++) {
+                if (cache.mMats[i] != null && cache.mKeys[i] == key) {
+                    Mat mat = cache.mMats[i];
+                    cache.mMats[i] = null;
+                    mCachedBytes.addAndGet(-bytes(key));
+                    if (mat.empty())
+                        continue;
+                    mThreadHits.incrementAndGet();
+                    return mat;
+                }
+            }
+            synchronized (mShared) {
+                ArrayDeque<Mat> idle = mShared.get(key);
+                Mat mat = null;
+                while (mat == null && idle != null && !idle.isEmpty()) {
+                    mat = idle.pollLast();
+                    mIdleBytes.addAndGet(-bytes(key));
+                    if (mat.empty())
+                        mat = null;
+                }
+                if (idle != null && idle.isEmpty())
+                    mShared.remove(key);
+                if (mat != null) {
+                    mSharedHits.incrementAndGet();
+                    return mat;
+                }
+            }
+        }
+        Mat mat = new Mat(rows, cols, type);
+        MatScope.disown(mat);
+        return mat;
+    }
+
+    /**
+     * Takes back a Mat from {@link #borrow}, or any other continuous Mat that owns its data;
+     * submatrices and empty Mats are released instead.
+     */
+    public void recycle(Mat mat) {
+        if (mat == null)
+            return;
+        MatScope.disown(mat);
+        long key = mat.empty() || mat.isSubmatrix() || !mat.isContinuous() || mat.dims() > 2
+                ? -1 : key(mat.rows(), mat.cols(), mat.type());
+        long bytes = key >= 0 ? bytes(key) : 0;
+        if (key < 0 || bytes > mByteCap) {
+            mat.release();
+            return;
+        }
+        ThreadCache cache = mCaches.get();
+        for (int i = 0; i < THREAD_SLOTS; i++) {
+            if (cache.mMats[i] == null) {
+                cache.mKeys[i] = key;
+                cache.mMats[i] = mat;
+                mCachedBytes.addAndGet(bytes);
+                return;
+            }
+        }
+        synchronized (mShared) {
+            share(mat, key, bytes);
+            evict();
+        }
+    }
+
+    /**
+     * Moves the Mats cached by the calling thread to the shared pool, where the cap applies and
+     * other threads can borrow them. Call before a thread that used the pool ends.
+     */
+    public void flushThreadCache() {
+        ThreadCache cache = mCaches.get();
+        synchronized (mShared) {
+            for (int i = 0; i < THREAD_SLOTS; i++) {
+                if (cache.mMats[i] != null) {
+                    long bytes = bytes(cache.mKeys[i]);
+                    mCachedBytes.addAndGet(-bytes);
+                    share(cache.mMats[i], cache.mKeys[i], bytes);
+                    cache.mMats[i] = null;
+                }
+            }
+            evict();
+        }
+        mCaches.remove();
+    }
+
+    /** Releases the shared idle Mats and those cached by the calling thread. */
+    public void clear() {
+        ThreadCache cache = mCaches.get();
+        for (int i = 0; i < THREAD_SLOTS; i++) {
+            if (cache.mMats[i] != null) {
+                cache.mMats[i].release();
+                cache.mMats[i] = null;
+                mCachedBytes.addAndGet(-bytes(cache.mKeys[i]));
+            }
+        }
+        synchronized (mShared) {
+            for (Map.Entry<Long, ArrayDeque<Mat>> entry : mShared.entrySet()) {
+                for (Mat mat : entry.getValue()) {
+                    mat.release();
+                    mIdleBytes.addAndGet(-bytes(entry.getKey()));
+                }
+            }
+            mShared.clear();
+        }
+    }
+
+    /** Called with mShared held. */
+    private void share(Mat mat, long key, long bytes) {
+        ArrayDeque<Mat> idle = mShared.get(key);
+        if (idle == null) {
+            idle = new ArrayDeque<Mat>();
+            mShared.put(key, idle);
+        }
+        idle.addLast(mat);
+        mIdleBytes.addAndGet(bytes);
+    }
+
+    /** Called with mShared held. */
+    private void evict() {
+        Iterator<Map.Entry<Long, ArrayDeque<Mat>>> lru = mShared.entrySet().iterator();
+        while (mIdleBytes.get() > mByteCap && lru.hasNext()) {
+            Map.Entry<Long, ArrayDeque<Mat>> entry = lru.next();
+            long bytes = bytes(entry.getKey());
+            ArrayDeque<Mat> idle = entry.getValue();
+            while (mIdleBytes.get() > mByteCap && !idle.isEmpty()) {
+                idle.pollFirst().release();
+                mIdleBytes.addAndGet(-bytes);
+                mEvictions.incrementAndGet();
+                mEvictedBytes.addAndGet(bytes);
+            }
+            if (idle.isEmpty())
+                lru.remove();
+        }
+    }
+
+    /** Packs a shape into a non-negative key, or -1 when it is out of range for pooling. */
+    static long key(int rows, int cols, int type) {
+        if (rows <= 0 || cols <= 0 || rows >= 1 << 23 || cols >= 1 << 24 || type < 0 || type >= 1 << 16)
+            return -1;
+        return (long) rows << 40 | (long) cols << 16 | type;
+    }
+
+    static long bytes(long key) {
+        long rows = key >>> 40;
+        long cols = (key >>> 16) & 0xffffff;
+        return rows * cols * CvType.ELEM_SIZE((int) (key & 0xffff));
+    }
+
+    public long getBorrowCount() {
+        return mBorrows.get();
+    }
+
+    /** Borrows served from the borrowing thread's own cache. */
+    public long getThreadHitCount() {
+        return mThreadHits.get();
+    }
+
+    /** Borrows served from the pool, by a thread cache or the shared pool. */
+    public long getHitCount() {
+        return mThreadHits.get() + mSharedHits.get();
+    }
+
+    /** Share of borrows served without allocating, 0 before the first one. */
+    public double getHitRate() {
+        long borrows = mBorrows.get();
+        return borrows == 0 ? 0 : (double) getHitCount() / borrows;
+    }
+
+    /** Bytes held by the shared pool, at most the byte cap. */
+    public long getIdleBytes() {
+        return mIdleBytes.get();
+    }
+
+    /** Bytes held by the thread caches of all threads, outside the cap. */
+    public long getThreadCachedBytes() {
+        return mCachedBytes.get();
+    }
+
+    public long getEvictionCount() {
+        return mEvictions.get();
+    }
+
+    public long getEvictedBytes() {
+        return mEvictedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d borrows, %.1f%% hits (%d thread, %d shared), %.1f of %.1f MB idle, %.1f MB in thread caches, %d evicted (%.1f MB)",
+                getBorrowCount(), getHitRate() * 100, mThreadHits.get(), mSharedHits.get(), mIdleBytes.get() / 1048576.0,
+                mByteCap / 1048576.0, mCachedBytes.get() / 1048576.0, mEvictions.get(), mEvictedBytes.get() / 1048576.0);
+    }
+
+    private static final class ThreadCache {
+        final long[] mKeys = new long[THREAD_SLOTS];
+        final Mat[] mMats = new Mat[THREAD_SLOTS];
+    }
+}
@@ -0,0 +1,145 @@
+package org.opencv.core;
+
+import java.io.Closeable;
+
+/**
+ * Arena for temporary Mats: every Mat created on this thread while the scope is the innermost
+ * open one, including those created inside OpenCV's Java wrappers, is released when the scope
+ * closes. Results that must outlive the scope are handed out with {@link #promote}.
+ *
+ * <pre>
+ * MatScope scope = MatScope.open();
+ * try {
+ *     Mat hsv = new Mat();
+ *     Imgproc.cvtColor(rgba, hsv, Imgproc.COLOR_RGB2HSV_FULL);
+ *     result = scope.promote(someResult(hsv));
+ * } finally {
+ *     scope.close();
+ * }
+ * </pre>
+ *
+ * Scopes nest; a promoted Mat moves to the enclosing scope, or is left to the caller at the
+ * outermost one. Closing releases the Mats' data deterministically; their small native headers
+ * are still freed by the finalizer. While no scope is open on any thread, creating a Mat costs
+ * one extra volatile read.
+ */
+public final class MatScope implements Closeable {
+    private static final ThreadLocal<MatScope> sCurrent = new ThreadLocal<MatScope>();
+    private static volatile int sOpenScopes;
+
+    private final MatScope mParent;
+    private final Thread mThread;
+    private Mat[] mMats = new Mat[16];
+    private int mCount;
+    private boolean mClosed;
+
+    private MatScope(MatScope parent) {
+        mParent = parent;
+        mThread = Thread.currentThread();
+    }
+
+    /** Opens a scope on the calling thread, nested in the one already open there, if any. */
+    public static MatScope open() {
+        MatScope scope = new MatScope(sCurrent.get());
+        sCurrent.set(scope);
+        synchronized (MatScope.class) {
+            sOpenScopes++;
+        }
+        return scope;
+    }
+
+    /** Called by Mat on creation. */
+    static void adopt(Mat mat) {
+        if (sOpenScopes == 0)
+            return;
+        MatScope scope = sCurrent.get();
+        if (scope != null)
+            scope.add(mat);
+    }
+
+    /** Called by MatPool, whose Mats outlive any scope. */
+    static void disown(Mat mat) {
+        if (sOpenScopes == 0)
+            return;
+        MatScope scope = sCurrent.get();
+        while (scope != null) {
+            scope.remove(mat);
+            scope = scope.mParent;
+        }
+    }
+
+    /** Adds a Mat created outside the scope, so it is released with the others. */
+    public <T extends Mat> T track(T mat) {
+        checkOpen();
+        add(mat);
+        return mat;
+    }
+
+    /**
+     * Removes {@code mat} from this scope so it survives the close, moving it to the enclosing
+     * scope if there is one.
+     */
+    public <T extends Mat> T promote(T mat) {
+        checkOpen();
+        if (remove(mat) && mParent != null)
+            mParent.add(mat);
+        return mat;
+    }
+
+    /** Number of Mats that will be released on close. */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Releases the Mats of this scope, newest first. Must be called on the opening thread, inner
+     * scopes before outer ones; closing again has no effect.
+     */
+    @Override
+    public void close() {
+        if (mClosed)
+            return;
+        if (Thread.currentThread() != mThread)
+            throw new IllegalStateException("MatScope closed on another thread");
+        if (sCurrent.get() != this)
+            throw new IllegalStateException("MatScope closed before a scope nested in it");
+        mClosed = true;
+        if (mParent != null)
+            sCurrent.set(mParent);
+        else
+            sCurrent.remove();
+        synchronized (MatScope.class) {
+            sOpenScopes--;
+        }
+        for (int i = mCount - 1; i >= 0; i--) {
+            mMats[i].release();
+            mMats[i] = null;
+        }
+        mCount = 0;
+    }
+
+    private void add(Mat mat) {
+        if (mCount == mMats.length) {
+            Mat[] grown = new Mat[mCount * 2];
+            System.arraycopy(mMats, 0, grown, 0, mCount);
+            mMats = grown;
+        }
+        mMats[mCount++] = mat;
+    }
+
+    private boolean remove(Mat mat) {
+        for (int i = mCount - 1; i >= 0; i--) {
+            if (mMats[i] == mat) {
+                System.arraycopy(mMats, i + 1, mMats, i, mCount - i - 1);
+                mMats[--mCount] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkOpen() {
+        if (mClosed)
+            throw new IllegalStateException("MatScope already closed");
+    }
+}
@@ -0,0 +1,315 @@
+package org.opencv.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in tracker of live native {@link Mat}s, for finding code that leaves native memory to
+ * {@code finalize()}.
+ *
+ * While a tracker is active, every Mat created counts as live until it is finalized, with an
+ * approximate size: rows * cols * element size for the allocating constructors and
+ * {@link Mat#create}, total * element size for Mats returned from native calls, and nothing for
+ * submatrices or Mats over a caller's buffer. {@link Mat#release()} sets the size to zero but
+ * leaves the Mat live, since its native header is only freed by the finalizer. Data that native
+ * functions allocate into an output Mat is not seen.
+ *
+ * One allocation in {@code sampleInterval} records a stack trace and is attributed to its site, the
+ * first frame outside OpenCV; per-site figures are scaled up by the interval. While no tracker is
+ * active, creating a Mat costs one extra volatile read.
+ */
+public final class MatTracker {
+    public interface Listener {
+        /** Called on the reporter thread after each periodic report. */
+        void onReport(Report report);
+    }
+
+    private static volatile MatTracker sActive;
+
+    private final int mSampleInterval;
+    private final AtomicLong mAllocations = new AtomicLong();
+    private final AtomicLong mLive = new AtomicLong();
+    private final AtomicLong mLiveBytes = new AtomicLong();
+    private final ConcurrentHashMap<String, Site> mSites = new ConcurrentHashMap<String, Site>();
+    private Thread mReporter;
+
+    private MatTracker(int sampleInterval) {
+        if (sampleInterval <= 0)
+            throw new IllegalArgumentException("Invalid sample interval " + sampleInterval);
+        mSampleInterval = sampleInterval;
+    }
+
+    /**
+     * Starts tracking Mats created from now on, recording the site of one in
+     * {@code sampleInterval}, and replaces any active tracker.
+     */
+    public static MatTracker start(int sampleInterval) {
+        MatTracker tracker = new MatTracker(sampleInterval);
+        MatTracker previous = sActive;
+        sActive = tracker;
+        if (previous != null)
+            previous.stopReporting();
+        return tracker;
+    }
+
+    /** Stops tracking new Mats; the returned tracker, if any, keeps counting those it saw being freed. */
+    public static MatTracker stop() {
+        MatTracker tracker = sActive;
+        sActive = null;
+        if (tracker != null)
+            tracker.stopReporting();
+        return tracker;
+    }
+
+    public static boolean isEnabled() {
+        return sActive != null;
+    }
+
+    /** Called by Mat on creation; null when not tracking. */
+    static Allocation allocated(long bytes) {
+        MatTracker tracker = sActive;
+        return tracker != null ? tracker.record(bytes) : null;
+    }
+
+    private Allocation record(long bytes) {
+        long n = mAllocations.getAndIncrement();
+        Site site = null;
+        if (n % mSampleInterval == 0) {
+            site = siteOf(new Throwable().getStackTrace());
+            site.mAllocations.incrementAndGet();
+            site.mLive.incrementAndGet();
+            site.mLiveBytes.addAndGet(bytes);
+        }
+        mLive.incrementAndGet();
+        mLiveBytes.addAndGet(bytes);
+        return new Allocation(this, site, bytes);
+    }
+
+    private Site siteOf(StackTraceElement[] stack) {
+        String key = "unknown";
+        for (StackTraceElement frame : stack) {
+            if (!frame.getClassName().startsWith("org.opencv.")) {
+                key = frame.toString();
+                break;
+            }
+        }
+        Site site = mSites.get(key);
+        if (site == null) {
+            Site created = new Site(key);
+            site = mSites.putIfAbsent(key, created);
+            if (site == null)
+                site = created;
+        }
+        return site;
+    }
+
+    /** Mats created while tracking, sampled or not. */
+    public long getAllocationCount() {
+        return mAllocations.get();
+    }
+
+    /** Mats created while tracking and not yet finalized. */
+    public long getLiveCount() {
+        return mLive.get();
+    }
+
+    public long getLiveBytes() {
+        return mLiveBytes.get();
+    }
+
+    public int getSampleInterval() {
+        return mSampleInterval;
+    }
+
+    /**
+     * Reports the {@code topSites} sites with the most growth in live Mats since the previous
+     * report, then the most live bytes. Reports are meant to be taken from a single thread.
+     */
+    public Report report(int topSites) {
+        List<SiteReport> sites = new ArrayList<SiteReport>(mSites.size());
+        for (Site site : mSites.values()) {
+            long live = site.mLive.get();
+            long growth = live - site.mReportedLive;
+            site.mReportedLive = live;
+            sites.add(new SiteReport(site.mKey, site.mAllocations.get() * mSampleInterval,
+                    live * mSampleInterval, site.mLiveBytes.get() * mSampleInterval, growth * mSampleInterval));
+        }
+        Collections.sort(sites, new Comparator<SiteReport>() {
+            @Override
+            public int compare(SiteReport a, SiteReport b) {
+                if (a.mGrowth != b.mGrowth)
+                    return a.mGrowth > b.mGrowth ? -1 : 1;
+                return a.mLiveBytes > b.mLiveBytes ? -1 : a.mLiveBytes < b.mLiveBytes ? 1 : 0;
+            }
+        });
+        if (sites.size() > topSites)
+            sites = new ArrayList<SiteReport>(sites.subList(0, topSites));
+        return new Report(System.nanoTime(), mAllocations.get(), mLive.get(), mLiveBytes.get(), sites);
+    }
+
+    /** Calls {@code listener} with a report of the top {@code topSites} every {@code periodMillis}. */
+    public synchronized void startReporting(final long periodMillis, final int topSites, final Listener listener) {
+        if (periodMillis <= 0)
+            throw new IllegalArgumentException("Invalid period " + periodMillis);
+        stopReporting();
+        mReporter = new Thread("mat-tracker") {
+            @Override
+            public void run() {
+                while (!isInterrupted()) {
+                    try {
+                        Thread.sleep(periodMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    listener.onReport(report(topSites));
+                }
+            }
+        };
+        mReporter.setDaemon(true);
+        mReporter.start();
+    }
+
+    public synchronized void stopReporting() {
+        if (mReporter != null) {
+            mReporter.interrupt();
+            mReporter = null;
+        }
+    }
+
+    private static final class Site {
+        final String mKey;
+        final AtomicLong mAllocations = new AtomicLong();
+        final AtomicLong mLive = new AtomicLong();
+        final AtomicLong mLiveBytes = new AtomicLong();
+        long mReportedLive;
+
+        Site(String key) {
+            mKey = key;
+        }
+    }
+
+    /** Tracking state of one Mat, held by the Mat itself. */
+    static final class Allocation {
+        private final MatTracker mTracker;
+        private final Site mSite;
+        private long mBytes;
+
+        Allocation(MatTracker tracker, Site site, long bytes) {
+            mTracker = tracker;
+            mSite = site;
+            mBytes = bytes;
+        }
+
+        /** The Mat's data was (re)allocated or released. */
+        synchronized void resized(long bytes) {
+            long delta = bytes - mBytes;
+            mBytes = bytes;
+            mTracker.mLiveBytes.addAndGet(delta);
+            if (mSite != null)
+                mSite.mLiveBytes.addAndGet(delta);
+        }
+
+        /** The Mat was finalized. */
+        synchronized void freed() {
+            mTracker.mLive.decrementAndGet();
+            mTracker.mLiveBytes.addAndGet(-mBytes);
+            if (mSite != null) {
+                mSite.mLive.decrementAndGet();
+                mSite.mLiveBytes.addAndGet(-mBytes);
+            }
+            mBytes = 0;
+        }
+    }
+
+    /** Estimated figures of one allocation site. */
+    public static final class SiteReport {
+        private final String mSite;
+        private final long mAllocations;
+        private final long mLive;
+        private final long mLiveBytes;
+        private final long mGrowth;
+
+        SiteReport(String site, long allocations, long live, long liveBytes, long growth) {
+            mSite = site;
+            mAllocations = allocations;
+            mLive = live;
+            mLiveBytes = liveBytes;
+            mGrowth = growth;
+        }
+
+        /** First stack frame outside OpenCV, as class.method(file:line). */
+        public String getSite() {
+            return mSite;
+        }
+
+        public long getAllocations() {
+            return mAllocations;
+        }
+
+        public long getLiveCount() {
+            return mLive;
+        }
+
+        public long getLiveBytes() {
+            return mLiveBytes;
+        }
+
+        /** Change in live Mats since the previous report. */
+        public long getGrowth() {
+            return mGrowth;
+        }
+    }
+
+    public static final class Report {
+        private final long mTimeNanos;
+        private final long mAllocations;
+        private final long mLive;
+        private final long mLiveBytes;
+        private final List<SiteReport> mSites;
+
+        Report(long timeNanos, long allocations, long live, long liveBytes, List<SiteReport> sites) {
+            mTimeNanos = timeNanos;
+            mAllocations = allocations;
+            mLive = live;
+            mLiveBytes = liveBytes;
+            mSites = Collections.unmodifiableList(sites);
+        }
+
+        /** {@link System#nanoTime()} at which the report was taken. */
+        public long getTimeNanos() {
+            return mTimeNanos;
+        }
+
+        public long getAllocationCount() {
+            return mAllocations;
+        }
+
+        public long getLiveCount() {
+            return mLive;
+        }
+
+        public long getLiveBytes() {
+            return mLiveBytes;
+        }
+
+        public List<SiteReport> getSites() {
+            return mSites;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                    "%d live Mats, %.1f MB, %d created\n", mLive, mLiveBytes / 1048576.0, mAllocations));
+            for (SiteReport s : mSites) {
+                sb.append(String.format(Locale.ROOT, "  %+6d live %6d %9.1f MB  %s\n",
+                        s.mGrowth, s.mLive, s.mLiveBytes / 1048576.0, s.mSite));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.opencv.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Shape keys and byte sizes of {@link MatPool}, which need no native code. */
+public class MatPoolKeyTest {
+    private static final int[] TYPES = {
+            CvType.CV_8UC1, CvType.CV_8UC3, CvType.CV_8UC4, CvType.CV_16SC1, CvType.CV_16UC2,
+            CvType.CV_32SC1, CvType.CV_32FC4, CvType.CV_64FC1, CvType.CV_64FC3, CvType.makeType(CvType.CV_8U, 511),
+    };
+
+    @Test
+    public void bytesOfCameraFrames() {
+        assertEquals(640L * 480, MatPool.bytes(MatPool.key(480, 640, CvType.CV_8UC1)));
+        assertEquals(640L * 480 * 4, MatPool.bytes(MatPool.key(480, 640, CvType.CV_8UC4)));
+        assertEquals(1920L * 1080 * 2, MatPool.bytes(MatPool.key(1080, 1920, CvType.CV_16SC1)));
+        assertEquals(4000L * 3000 * 24, MatPool.bytes(MatPool.key(3000, 4000, CvType.CV_64FC3)));
+    }
+
+    @Test
+    public void bytesMatchElementSize() {
+        int[] sizes = {1, 2, 3, 479, 480, 1080, (1 << 23) - 1};
+        for (int type : TYPES) {
+            for (int rows : sizes) {
+                for (int cols : sizes) {
+                    long key = MatPool.key(rows, cols, type);
+                    assertTrue(rows + "x" + cols + " " + CvType.typeToString(type), key >= 0);
+                    assertEquals(rows + "x" + cols + " " + CvType.typeToString(type),
+                            (long) rows * cols * CvType.ELEM_SIZE(type), MatPool.bytes(key));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void keysAreDistinctPerShape() {
+        long[] keys = {
+                MatPool.key(480, 640, CvType.CV_8UC1),
+                MatPool.key(640, 480, CvType.CV_8UC1),
+                MatPool.key(480, 640, CvType.CV_8UC4),
+                MatPool.key(481, 640, CvType.CV_8UC1),
+                MatPool.key(480, 641, CvType.CV_8UC1),
+                MatPool.key(1, 1, CvType.CV_8UC1),
+                MatPool.key((1 << 23) - 1, (1 << 24) - 1, (1 << 16) - 1),
+        };
+        for (int i = 0; i < keys.length; i++) {
+            assertTrue(keys[i] >= 0);
+            for (int j = i + 1; j < keys.length; j++)
+                assertNotEquals(i + " vs " + j, keys[i], keys[j]);
+        }
+    }
+
+    @Test
+    public void keysAtTheFieldLimits() {
+        long key = MatPool.key((1 << 23) - 1, (1 << 24) - 1, (1 << 16) - 1);
+        assertEquals((1 << 23) - 1, key >>> 40);
+        assertEquals((1 << 24) - 1, (key >>> 16) & 0xffffff);
+        assertEquals((1 << 16) - 1, key & 0xffff);
+    }
+
+    @Test
+    public void shapesOutOfRangeAreNotPooled() {
+        assertEquals(-1, MatPool.key(0, 640, CvType.CV_8UC1));
+        assertEquals(-1, MatPool.key(480, 0, CvType.CV_8UC1));
+        assertEquals(-1, MatPool.key(-1, 640, CvType.CV_8UC1));
+        assertEquals(-1, MatPool.key(480, -1, CvType.CV_8UC1));
+        assertEquals(-1, MatPool.key(1 << 23, 640, CvType.CV_8UC1));
+        assertEquals(-1, MatPool.key(480, 1 << 24, CvType.CV_8UC1));
+        assertEquals(-1, MatPool.key(480, 640, -1));
+        assertEquals(-1, MatPool.key(480, 640, 1 << 16));
+    }
+}